@@ -9,6 +9,6 @@ else
 ffi_lib_str="    environment 'CEDAR_JAVA_FFI_LIB', '"$parent_dir"/CedarJavaFFI/target/debug/libcedar_java_ffi.so'"
 fi
 
-sed "89s;.*;$ffi_lib_str;" "build.gradle" > new_build.gradle
+sed "s;^    environment 'CEDAR_JAVA_FFI_LIB', '.*;$ffi_lib_str;" "build.gradle" > new_build.gradle
 mv new_build.gradle build.gradle
 export MUST_RUN_CEDAR_INTEGRATION_TESTS=1
\ No newline at end of file
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static com.cedarpolicy.CedarJson.cborWriter;
+import static com.cedarpolicy.CedarJson.objectWriter;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of one authorization request, end to end and one stage at a time: serializing the
+ * request, the JNI call (including Cedar parsing the slice and evaluating the policies), and
+ * parsing the response.
+ *
+ * <p>The slice has <code>policyCount</code> policies and <code>entityCount</code> documents. The
+ * principal is a user at the bottom of a chain of <code>depth</code> roles, and every policy
+ * applies to members of the top role, so each request walks the whole chain. The context has
+ * <code>contextSize</code> string attributes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+    private static final String OPERATION = "AuthorizationOperation";
+    private static final String PRINCIPAL = "User::\"alice\"";
+
+    @Param({"10", "100", "1000"})
+    public int policyCount;
+
+    @Param({"10", "1000"})
+    public int entityCount;
+
+    @Param({"1", "8"})
+    public int depth;
+
+    @Param({"0", "16"})
+    public int contextSize;
+
+    private WrapperAuthorizationEngine engine;
+    private AuthorizationRequest query;
+    private Slice slice;
+    private WrapperAuthorizationEngine.AuthorizationRequest request;
+    private WrapperAuthorizationEngine.AuthorizationRequest preparedRequest;
+    private String requestJson;
+    private String responseJson;
+
+    /** Build the slice and request, and make one call to capture a response to parse. */
+    @Setup
+    public void setUp() throws AuthException, IOException {
+        engine = new WrapperAuthorizationEngine();
+        slice = new BasicSlice(policies(), entities());
+        final Map<String, Value> context = new HashMap<>();
+        for (int i = 0; i < contextSize; i++) {
+            context.put("attribute" + i, new PrimString("value" + i));
+        }
+        query =
+                new AuthorizationRequest(
+                        Optional.of(PRINCIPAL),
+                        "Action::\"view\"",
+                        Optional.of(document(0)),
+                        context,
+                        Optional.empty());
+        request = new WrapperAuthorizationEngine.AuthorizationRequest(query, slice);
+        final Slice prepared = new PreparedSlice(slice);
+        preparedRequest = new WrapperAuthorizationEngine.AuthorizationRequest(query, prepared);
+        requestJson = objectWriter().writeValueAsString(request);
+        responseJson = WrapperAuthorizationEngine.callCedarJNI(OPERATION, requestJson);
+    }
+
+    private Set<Policy> policies() {
+        final Set<Policy> policies = new HashSet<>();
+        for (int i = 0; i < policyCount; i++) {
+            policies.add(
+                    new Policy(
+                            "permit(principal in "
+                                    + role(0)
+                                    + ", action == Action::\"view\", resource == "
+                                    + document(i % entityCount)
+                                    + ");",
+                            "policy" + i));
+        }
+        return policies;
+    }
+
+    private Set<Entity> entities() {
+        final Set<Entity> entities = new HashSet<>();
+        entities.add(new Entity(PRINCIPAL, new HashMap<>(), Set.of(role(depth - 1))));
+        entities.add(new Entity(role(0)));
+        for (int i = 1; i < depth; i++) {
+            entities.add(new Entity(role(i), new HashMap<>(), Set.of(role(i - 1))));
+        }
+        for (int i = 0; i < entityCount; i++) {
+            final Map<String, Value> attrs = new HashMap<>();
+            attrs.put("owner", new EntityUID(PRINCIPAL));
+            entities.add(new Entity(document(i), attrs, new HashSet<>()));
+        }
+        return entities;
+    }
+
+    private static String role(int level) {
+        return "Role::\"" + level + "\"";
+    }
+
+    private static String document(int i) {
+        return "Document::\"" + i + "\"";
+    }
+
+    /** The whole pipeline, using the protocol negotiated with the native library. */
+    @Benchmark
+    public AuthorizationResponse isAuthorized() throws AuthException {
+        return engine.isAuthorized(query, slice);
+    }
+
+    /** Serializing the request and slice to JSON. */
+    @Benchmark
+    public String serializeJson() throws IOException {
+        return objectWriter().writeValueAsString(request);
+    }
+
+    /** Serializing the request and slice to CBOR. */
+    @Benchmark
+    public byte[] serializeCbor() throws IOException {
+        return cborWriter().writeValueAsBytes(request);
+    }
+
+    /** Serializing the request to JSON with a prepared slice. */
+    @Benchmark
+    public String serializeJsonPrepared() throws IOException {
+        return objectWriter().writeValueAsString(preparedRequest);
+    }
+
+    /** Serializing the request to CBOR with a prepared slice. */
+    @Benchmark
+    public byte[] serializeCborPrepared() throws IOException {
+        return cborWriter().writeValueAsBytes(preparedRequest);
+    }
+
+    /** The JNI call with a request already serialized to JSON. */
+    @Benchmark
+    public String callJni() {
+        return WrapperAuthorizationEngine.callCedarJNI(OPERATION, requestJson);
+    }
+
+    /** Parsing a JSON response. */
+    @Benchmark
+    public AuthorizationResponse parseResponse() throws AuthException, IOException {
+        return WrapperAuthorizationEngine.readJsonResponse(
+                responseJson, AuthorizationResponse.class);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.serializer.JsonEUID;
+import com.cedarpolicy.serializer.ValueCedarSerializer;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of building and serializing a slice, to be run with the GC profiler to compare bytes
+ * allocated per request. <code>serializeJsonBuffered</code> is the baseline: it serializes through
+ * the intermediate entity objects the slice serializer used to build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SliceSerializationBenchmark {
+    @Param({"10", "1000"})
+    public int entityCount;
+
+    private Set<Policy> policies;
+    private Set<Entity> entities;
+    private Slice slice;
+    private ObjectWriter bufferedWriter;
+
+    /** Build the policies and entities. */
+    @Setup
+    public void setUp() {
+        policies = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            policies.add(
+                    new Policy(
+                            "permit(principal, action, resource == Document::\"" + i + "\");",
+                            "policy" + i));
+        }
+        entities = new HashSet<>();
+        for (int i = 0; i < entityCount; i++) {
+            final Map<String, Value> attrs = new HashMap<>();
+            attrs.put("owner", new EntityUID("User::\"alice\""));
+            attrs.put("title", new PrimString("Document " + i));
+            attrs.put("size", new PrimLong((long) i));
+            entities.add(
+                    new Entity(
+                            "Document::\"" + i + "\"",
+                            attrs,
+                            Set.of("Folder::\"" + i % 10 + "\"", "Workspace::\"main\"")));
+        }
+        slice = new BasicSlice(policies, entities);
+
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(Slice.class, new BufferedSliceSerializer());
+        module.addSerializer(Value.class, new ValueCedarSerializer());
+        bufferedWriter =
+                JsonMapper.builder().addModule(module).addModule(new Jdk8Module()).build().writer();
+    }
+
+    /** Building a slice from policies and entities. */
+    @Benchmark
+    public Slice buildSlice() {
+        return new BasicSlice(policies, entities);
+    }
+
+    /** Serializing a slice to JSON, streaming entities to the generator. */
+    @Benchmark
+    public String serializeJson() throws IOException {
+        return CedarJson.objectWriter().writeValueAsString(slice);
+    }
+
+    /** Serializing a slice to CBOR, streaming entities to the generator. */
+    @Benchmark
+    public byte[] serializeCbor() throws IOException {
+        return CedarJson.cborWriter().writeValueAsBytes(slice);
+    }
+
+    /** Serializing a slice to JSON through intermediate entity objects, as a baseline. */
+    @Benchmark
+    public String serializeJsonBuffered() throws IOException {
+        return bufferedWriter.writeValueAsString(slice);
+    }
+
+    /** The slice serializer as it was before it streamed entities. */
+    private static final class BufferedSliceSerializer extends JsonSerializer<Slice> {
+        @Override
+        public void serialize(Slice slice, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            final Set<JsonEntity> jsonEntities = new HashSet<>();
+            for (Entity entity : slice.getEntities()) {
+                jsonEntities.add(new JsonEntity(entity));
+            }
+            generator.writeStartObject();
+            generator.writeObjectField("policies", slice.getPolicies());
+            generator.writeObjectField("entities", jsonEntities);
+            generator.writeObjectField("templates", slice.getTemplates());
+            generator.writeObjectField(
+                    "template_instantiations", slice.getTemplateInstantiations());
+            generator.writeEndObject();
+        }
+    }
+
+    private static final class JsonEntity {
+        public final JsonEUID uid;
+        public final Map<String, Value> attrs;
+        public final Set<JsonEUID> parents = new HashSet<>();
+
+        JsonEntity(Entity entity) {
+            this.uid = new JsonEUID(entity.uid);
+            this.attrs = entity.attrs;
+            for (String parent : entity.parents) {
+                parents.add(new JsonEUID(parent));
+            }
+        }
+    }
+}
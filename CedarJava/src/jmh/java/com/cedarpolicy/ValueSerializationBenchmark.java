@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.Decimal;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.IpAddress;
+import com.cedarpolicy.value.PrimBool;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of serializing a request context with <code>contextSize</code> attributes of every
+ * kind of value, as the same values are sent again and again. <code>serializeJsonInstanceof</code>
+ * and <code>serializeCborInstanceof</code> are the baseline: the value serializer as it was before
+ * it dispatched through a visitor and cached the encodings of strings, entity UIDs and extensions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueSerializationBenchmark {
+    @Param({"100", "500"})
+    public int contextSize;
+
+    private Map<String, Value> context;
+    private ObjectWriter instanceofJsonWriter;
+    private ObjectWriter instanceofCborWriter;
+
+    /** Build the context. */
+    @Setup
+    public void setUp() {
+        context = new HashMap<>();
+        for (int i = 0; i < contextSize; i++) {
+            context.put("attribute" + i, value(i));
+        }
+
+        final SimpleModule module = new SimpleModule();
+        module.addSerializer(Value.class, new InstanceofValueSerializer());
+        instanceofJsonWriter = JsonMapper.builder().addModule(module).build().writer();
+        instanceofCborWriter = CBORMapper.builder().addModule(module).build().writer();
+    }
+
+    private static Value value(int i) {
+        switch (i % 8) {
+            case 0:
+                return new EntityUID("User::\"user" + i + "\"");
+            case 1:
+                return new PrimString("a string attribute, number " + i);
+            case 2:
+                return new PrimBool(i % 3 == 0);
+            case 3:
+                return new PrimLong((long) i);
+            case 4:
+                final CedarList list = new CedarList();
+                list.add(new EntityUID("Group::\"group" + i + "\""));
+                list.add(new PrimString("tag" + i));
+                return list;
+            case 5:
+                final CedarMap record = new CedarMap();
+                record.put("owner", new EntityUID("User::\"owner" + i + "\""));
+                record.put("label", new PrimString("label" + i));
+                return record;
+            case 6:
+                return new IpAddress("10.0." + i % 256 + ".1");
+            default:
+                return new Decimal(i + ".25");
+        }
+    }
+
+    /** Serializing the context to JSON. */
+    @Benchmark
+    public String serializeJson() throws IOException {
+        return CedarJson.objectWriter().writeValueAsString(context);
+    }
+
+    /** Serializing the context to CBOR. */
+    @Benchmark
+    public byte[] serializeCbor() throws IOException {
+        return CedarJson.cborWriter().writeValueAsBytes(context);
+    }
+
+    /** Serializing the context to JSON with the old value serializer, as a baseline. */
+    @Benchmark
+    public String serializeJsonInstanceof() throws IOException {
+        return instanceofJsonWriter.writeValueAsString(context);
+    }
+
+    /** Serializing the context to CBOR with the old value serializer, as a baseline. */
+    @Benchmark
+    public byte[] serializeCborInstanceof() throws IOException {
+        return instanceofCborWriter.writeValueAsBytes(context);
+    }
+
+    /** The value serializer as it was before it dispatched through a visitor. */
+    private static final class InstanceofValueSerializer extends JsonSerializer<Value> {
+        @Override
+        public void serialize(Value value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            if (value instanceof EntityUID) {
+                generator.writeStartObject();
+                generator.writeFieldName("__expr");
+                generator.writeString(value.toString());
+                generator.writeEndObject();
+            } else if (value instanceof PrimString) {
+                generator.writeString(value.toString());
+            } else if (value instanceof PrimBool) {
+                generator.writeBoolean(((PrimBool) value).value);
+            } else if (value instanceof PrimLong) {
+                generator.writeNumber(((PrimLong) value).value);
+            } else if (value instanceof CedarList) {
+                generator.writeStartArray();
+                for (Value v : ((CedarList) value).list) {
+                    generator.writeObject(v);
+                }
+                generator.writeEndArray();
+            } else if (value instanceof CedarMap) {
+                generator.writeStartObject();
+                for (Map.Entry<String, Value> entry : ((CedarMap) value).map.entrySet()) {
+                    generator.writeObjectField(entry.getKey(), entry.getValue());
+                }
+                generator.writeEndObject();
+            } else {
+                generator.writeStartObject();
+                generator.writeFieldName("__extn");
+                generator.writeStartObject();
+                generator.writeStringField("fn", value instanceof IpAddress ? "ip" : "decimal");
+                generator.writeStringField("arg", value.toString());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+        }
+    }
+}
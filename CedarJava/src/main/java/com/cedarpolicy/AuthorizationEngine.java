@@ -23,6 +23,9 @@ import com.cedarpolicy.model.ValidationResult;
 import com.cedarpolicy.model.exception.AuthException;
 import com.cedarpolicy.model.exception.BadRequestException;
 import com.cedarpolicy.model.slice.Slice;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implementations of the AuthorizationEngine interface invoke Cedar to respond to an authorization
@@ -50,6 +53,45 @@ public interface AuthorizationEngine {
      */
     AuthorizationResponse isAuthorized(AuthorizationRequest q, Slice slice) throws AuthException;
 
+    /**
+     * Asks whether each of the given AuthorizationQueries is approved by the policies and entity
+     * hierarchy given in the <code>slice</code>. The default implementation calls {@link
+     * #isAuthorized(AuthorizationRequest, Slice)} once per query; implementations may evaluate the
+     * whole batch at once.
+     *
+     * @param queries The queries to evaluate. They must all have the same schema.
+     * @param slice The slice to evaluate against
+     * @return The results of the query evaluations, in the same order as <code>queries</code>
+     * @throws AuthException On failure to make any of the authorization queries.
+     */
+    default List<AuthorizationResponse> isAuthorizedBatch(
+            List<AuthorizationRequest> queries, Slice slice) throws AuthException {
+        final List<AuthorizationResponse> responses = new ArrayList<>(queries.size());
+        for (AuthorizationRequest q : queries) {
+            responses.add(isAuthorized(q, slice));
+        }
+        return responses;
+    }
+
+    /**
+     * Asks whether the given AuthorizationQuery <code>q</code> is approved by the policies and
+     * entity hierarchy given in the <code>slice</code>, without blocking the caller. The default
+     * implementation evaluates the query on the calling thread and returns a completed future.
+     *
+     * @param q The query to evaluate
+     * @param slice The slice to evaluate against
+     * @return A future result of the query evaluation. It completes exceptionally with an {@link
+     *     AuthException} on failure to make the authorization query.
+     */
+    default CompletableFuture<AuthorizationResponse> isAuthorizedAsync(
+            AuthorizationRequest q, Slice slice) {
+        try {
+            return CompletableFuture.completedFuture(isAuthorized(q, slice));
+        } catch (AuthException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Asks whether the policies in the given {@link ValidationQuery} <code>q</code> are correct
      * when validated against the schema it describes.
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of threads that make authorization calls for {@link
+ * WrapperAuthorizationEngine#isAuthorizedAsync(com.cedarpolicy.model.AuthorizationRequest,
+ * com.cedarpolicy.model.slice.Slice)}. Calls wait in a queue of fixed capacity; when it is full,
+ * further calls are rejected rather than queued without limit.
+ *
+ * <p>The threads are daemon threads, started on demand. Queue depth and rejections are exposed so
+ * they can be reported as metrics.
+ */
+public final class AuthorizationExecutor implements Executor, AutoCloseable {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Construct an executor with one thread per available processor and room for 1024 queued
+     * calls.
+     */
+    public AuthorizationExecutor() {
+        this(Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    /**
+     * Construct an executor.
+     *
+     * @param threads Number of threads making authorization calls.
+     * @param queueCapacity Number of calls that can wait for a thread before calls are rejected.
+     * @throws IllegalArgumentException if <code>threads</code> or <code>queueCapacity</code> is
+     *     not positive.
+     */
+    public AuthorizationExecutor(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        this.pool =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        new DaemonThreadFactory(),
+                        (task, executor) -> {
+                            rejected.incrementAndGet();
+                            if (executor.isShutdown()) {
+                                throw new RejectedExecutionException(
+                                        "Authorization executor is closed");
+                            }
+                            throw new RejectedExecutionException(
+                                    "Authorization queue is full (" + queueCapacity + " calls)");
+                        });
+    }
+
+    /**
+     * Run a task on one of the executor's threads.
+     *
+     * @param task The task.
+     * @throws RejectedExecutionException if the queue is full or the executor has been closed.
+     */
+    @Override
+    public void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+    /** @return Number of calls waiting for a thread. */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /** @return Number of calls that can wait for a thread before calls are rejected. */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** @return Approximate number of threads currently making a call. */
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /** @return Approximate number of calls that have finished. */
+    public long getCompletedCount() {
+        return pool.getCompletedTaskCount();
+    }
+
+    /** @return Number of calls rejected because the queue was full or the executor was closed. */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /** Stop accepting calls. Calls already queued still run. */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorizationExecutor(queued="
+                + getQueueDepth()
+                + "/"
+                + queueCapacity
+                + ", active="
+                + getActiveCount()
+                + ", rejected="
+                + getRejectedCount()
+                + ")";
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final int pool = POOL_COUNT.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            final Thread thread =
+                    new Thread(
+                            task,
+                            "cedar-authorization-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
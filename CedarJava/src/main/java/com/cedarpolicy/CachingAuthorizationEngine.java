@@ -0,0 +1,351 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationQuery;
+import com.cedarpolicy.model.ValidationResult;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.slice.Slice;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link AuthorizationEngine} that remembers the responses of another engine, so a request that
+ * exactly repeats an earlier one against the same slice is answered without calling Cedar.
+ *
+ * <p>Entries are keyed on the principal, action and resource of the request, SHA-256 fingerprints
+ * of its context and schema, and a fingerprint of the slice. The fingerprints of a slice and of a
+ * schema are computed from their contents the first time the object is seen, and then reused for
+ * as long as the object is reachable, so slices and schemas must not be modified after they are
+ * first passed to this engine. Callers
+ * that track the version of their policies and entities themselves can pass it to {@link
+ * #isAuthorized(AuthorizationRequest, Slice, long)} instead, which skips fingerprinting the slice.
+ *
+ * <p>The cache holds at most <code>maximumSize</code> entries and evicts the least recently used
+ * one when it is full. Entries expire <code>timeToLive</code> after they were added. Failed calls
+ * are not cached. Instances are thread-safe.
+ */
+public final class CachingAuthorizationEngine implements AuthorizationEngine {
+    private final AuthorizationEngine delegate;
+    private final long timeToLiveNanos;
+    private final LongSupplier clock;
+    private final LruMap<CacheKey, CacheEntry> entries;
+    private final Map<Slice, String> sliceFingerprints =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<Schema, String> schemaFingerprints =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    /** The schema fingerprinted last, found by identity without hashing the schema's JSON. */
+    private volatile SchemaFingerprint lastSchema = new SchemaFingerprint(null, "");
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Cache the responses of <code>delegate</code>.
+     *
+     * @param delegate The engine that answers requests missing from the cache.
+     * @param maximumSize The maximum number of responses to keep.
+     * @param timeToLive How long a response is kept after it was added.
+     */
+    public CachingAuthorizationEngine(
+            AuthorizationEngine delegate, int maximumSize, Duration timeToLive) {
+        this(delegate, maximumSize, timeToLive, System::nanoTime);
+    }
+
+    CachingAuthorizationEngine(
+            AuthorizationEngine delegate,
+            int maximumSize,
+            Duration timeToLive,
+            LongSupplier clock) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive: " + timeToLive);
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.clock = clock;
+        this.entries = new LruMap<>(maximumSize, evictions);
+    }
+
+    @Override
+    public AuthorizationResponse isAuthorized(AuthorizationRequest q, Slice slice)
+            throws AuthException {
+        final CacheKey key = new CacheKey(requestKey(q), sliceFingerprint(slice));
+        return isAuthorized(key, q, slice);
+    }
+
+    /**
+     * Asks whether the given AuthorizationQuery <code>q</code> is approved by the policies and
+     * entity hierarchy given in the <code>slice</code>, identifying the slice by a version chosen
+     * by the caller instead of by its contents. The caller must give a new version whenever the
+     * policies or entities change.
+     *
+     * @param q The query to evaluate
+     * @param slice The slice to evaluate against
+     * @param sliceVersion The version of the slice's policies and entities
+     * @return The result of the query evaluation
+     * @throws AuthException On failure to make the authorization query.
+     */
+    public AuthorizationResponse isAuthorized(
+            AuthorizationRequest q, Slice slice, long sliceVersion) throws AuthException {
+        return isAuthorized(new CacheKey(requestKey(q), sliceVersion), q, slice);
+    }
+
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(
+            AuthorizationRequest q, Slice slice) {
+        final CacheKey key;
+        try {
+            key = new CacheKey(requestKey(q), sliceFingerprint(slice));
+        } catch (AuthException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final AuthorizationResponse cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return delegate.isAuthorizedAsync(q, slice)
+                .thenApply(
+                        response -> {
+                            store(key, response);
+                            return response;
+                        });
+    }
+
+    @Override
+    public ValidationResult validate(ValidationQuery q) throws AuthException {
+        return delegate.validate(q);
+    }
+
+    /** Remove every cached response. */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the number of cached responses, including any that have expired but not been removed.
+     *
+     * @return The number of cached responses.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of requests answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of requests passed on to the wrapped engine.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of responses removed to keep the cache within its maximum size.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of responses removed because they outlived the time to live.
+     *
+     * @return The expiration count.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private AuthorizationResponse isAuthorized(
+            CacheKey key, AuthorizationRequest q, Slice slice) throws AuthException {
+        final AuthorizationResponse cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        final AuthorizationResponse response = delegate.isAuthorized(q, slice);
+        store(key, response);
+        return response;
+    }
+
+    private AuthorizationResponse lookup(CacheKey key) {
+        final long now = clock.getAsLong();
+        synchronized (entries) {
+            final CacheEntry entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt < 0) {
+                hits.increment();
+                return entry.response;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(CacheKey key, AuthorizationResponse response) {
+        final CacheEntry entry = new CacheEntry(response, clock.getAsLong() + timeToLiveNanos);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private RequestKey requestKey(AuthorizationRequest q) throws AuthException {
+        return new RequestKey(
+                q.principalEUID.orElse(null),
+                q.actionEUID,
+                q.resourceEUID.orElse(null),
+                q.context.isEmpty() ? "" : Fingerprint.of(q.context),
+                q.schema.isPresent() ? schemaFingerprint(q.schema.get()) : "");
+    }
+
+    private String schemaFingerprint(Schema schema) throws AuthException {
+        final SchemaFingerprint last = lastSchema;
+        if (last.schema.get() == schema) {
+            return last.fingerprint;
+        }
+        String fingerprint = schemaFingerprints.get(schema);
+        if (fingerprint == null) {
+            fingerprint = Fingerprint.of(schema);
+            schemaFingerprints.put(schema, fingerprint);
+        }
+        lastSchema = new SchemaFingerprint(schema, fingerprint);
+        return fingerprint;
+    }
+
+    private String sliceFingerprint(Slice slice) throws AuthException {
+        final String cached = sliceFingerprints.get(slice);
+        if (cached != null) {
+            return cached;
+        }
+        final String computed = Fingerprint.of(slice);
+        sliceFingerprints.put(slice, computed);
+        return computed;
+    }
+
+    private static final class SchemaFingerprint {
+        private final WeakReference<Schema> schema;
+        private final String fingerprint;
+
+        SchemaFingerprint(Schema schema, String fingerprint) {
+            this.schema = new WeakReference<>(schema);
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class RequestKey {
+        private final String principal;
+        private final String action;
+        private final String resource;
+        private final String context;
+        private final String schema;
+
+        RequestKey(
+                String principal, String action, String resource, String context, String schema) {
+            this.principal = principal;
+            this.action = action;
+            this.resource = resource;
+            this.context = context;
+            this.schema = schema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RequestKey)) {
+                return false;
+            }
+            final RequestKey other = (RequestKey) o;
+            return Objects.equals(principal, other.principal)
+                    && Objects.equals(action, other.action)
+                    && Objects.equals(resource, other.resource)
+                    && context.equals(other.context)
+                    && schema.equals(other.schema);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(principal, action, resource, context, schema);
+        }
+    }
+
+    private static final class CacheKey {
+        private final RequestKey request;
+        private final Object slice;
+
+        CacheKey(RequestKey request, Object slice) {
+            this.request = request;
+            this.slice = slice;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) o;
+            return request.equals(other.request) && slice.equals(other.slice);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * request.hashCode() + slice.hashCode();
+        }
+    }
+
+    private static final class CacheEntry {
+        private final AuthorizationResponse response;
+        private final long expiresAt;
+
+        CacheEntry(AuthorizationResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for one call into the native library, so slow authorizations can be
+ * lined up with GC pauses and allocation in the same recording. Enable or disable it in JFR
+ * settings by its name, <code>com.cedarpolicy.Call</code>; when it is disabled or nothing is
+ * recording, the JIT compiles it away.
+ */
+@Name("com.cedarpolicy.Call")
+@Label("Cedar Call")
+@Category("Cedar")
+@Description("A call into the Cedar native library")
+@StackTrace(false)
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields are read by JFR")
+final class CallEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Request Size")
+    @Description("Length of the request, in bytes of CBOR or characters of JSON")
+    long requestSize;
+
+    @Label("Response Size")
+    @Description("Length of the response, in bytes of CBOR or characters of JSON")
+    long responseSize;
+
+    @Label("Slice Policies")
+    @Description("Number of policies in the slice, or 0 if the call has no slice")
+    int slicePolicies;
+
+    @Label("Slice Entities")
+    @Description("Number of entities in the slice, or 0 if the call has no slice")
+    int sliceEntities;
+
+    @Label("Decision")
+    @Description("Decision of a single authorization request")
+    String decision;
+
+    @Label("Error")
+    @Description("Simple name of the exception the call failed with")
+    String error;
+
+    @Label("Serialize Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long serializeTime;
+
+    @Label("Native Time")
+    @Description("Time in the JNI call, including Cedar's evaluation")
+    @Timespan(Timespan.NANOSECONDS)
+    long nativeTime;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseTime;
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cedarpolicy;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.cbor.CBORConstants;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A CBOR factory whose generators can write a value that was encoded ahead of time, so a {@link
+ * PreparedSlice} can be copied into a request as bytes.
+ */
+final class CedarCborFactory extends CBORFactory {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public CBORGenerator createGenerator(OutputStream out, JsonEncoding enc) throws IOException {
+        return createGenerator(out);
+    }
+
+    @Override
+    public CBORGenerator createGenerator(OutputStream out) throws IOException {
+        final IOContext ctxt = _createContext(_createContentReference(out), false);
+        return _createUTF8Generator(_decorate(out, ctxt), ctxt);
+    }
+
+    @Override
+    protected CBORGenerator _createUTF8Generator(OutputStream out, IOContext ctxt)
+            throws IOException {
+        final Generator gen =
+                new Generator(
+                        ctxt, _generatorFeatures, _formatGeneratorFeatures, _objectCodec, out);
+        if (CBORGenerator.Feature.WRITE_TYPE_HEADER.enabledIn(_formatGeneratorFeatures)) {
+            gen.writeTag(CBORConstants.TAG_ID_SELF_DESCRIBE);
+        }
+        return gen;
+    }
+
+    /** A CBOR generator that can write pre-encoded values. */
+    static final class Generator extends CBORGenerator {
+        Generator(
+                IOContext ctxt,
+                int stdFeatures,
+                int formatFeatures,
+                ObjectCodec codec,
+                OutputStream out) {
+            super(ctxt, stdFeatures, formatFeatures, codec, out);
+        }
+
+        /**
+         * Write a complete CBOR data item as the next value, counting it as one value of the
+         * enclosing array or map.
+         *
+         * @param encoded A single CBOR data item, encoded with the same features as this generator.
+         * @throws IOException If the value cannot be written here, or cannot be written out.
+         */
+        void writeEncodedValue(byte[] encoded) throws IOException {
+            _verifyValueWrite("write encoded value");
+            writeBytes(encoded, 0, encoded.length);
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package com.cedarpolicy;
 
+import com.cedarpolicy.model.slice.Entity;
 import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.serializer.EntityJsonSerializer;
 import com.cedarpolicy.serializer.SliceJsonSerializer;
 import com.cedarpolicy.serializer.ValueCedarDeserializer;
 import com.cedarpolicy.serializer.ValueCedarSerializer;
@@ -25,10 +27,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 
 final class CedarJson {
-    private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = configure(new ObjectMapper());
+    private static final ObjectMapper CBOR_MAPPER = configure(new CBORMapper(new CedarCborFactory()));
 
     private CedarJson() {
         throw new IllegalStateException("Utility class");
@@ -46,11 +50,23 @@ final class CedarJson {
         return OBJECT_MAPPER.reader();
     }
 
-    private static ObjectMapper createObjectMapper() {
-        final ObjectMapper mapper = new ObjectMapper();
+    public static ObjectMapper cborMapper() {
+        return CBOR_MAPPER;
+    }
+
+    public static ObjectWriter cborWriter() {
+        return CBOR_MAPPER.writer();
+    }
+
+    public static ObjectReader cborReader() {
+        return CBOR_MAPPER.reader();
+    }
 
+    private static ObjectMapper configure(ObjectMapper mapper) {
         final SimpleModule module = new SimpleModule();
         module.addSerializer(Slice.class, new SliceJsonSerializer());
+        module.addSerializer(PreparedSlice.class, new PreparedSlice.Serializer());
+        module.addSerializer(Entity.class, new EntityJsonSerializer());
         module.addSerializer(Value.class, new ValueCedarSerializer());
         module.addDeserializer(Value.class, new ValueCedarDeserializer());
         mapper.registerModule(module);
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The direct buffers a thread passes requests and responses to the native library in. Requests are
+ * serialized straight into the input buffer and the native library reads them in place, and it
+ * writes its response straight into the output buffer, so neither is copied on the way across
+ * (except when a buffer has to grow).
+ *
+ * <p>The buffers are reused by every call the thread makes and grow to fit its requests and
+ * responses. A buffer that grew past {@value #MAX_RETAINED_CAPACITY} bytes is dropped by {@link
+ * #trim()} once the call is done, so one oversized call does not pin that much native memory to
+ * the thread for its lifetime. They are not thread-safe; use {@link #forCurrentThread()}.
+ */
+final class DirectBuffers {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<DirectBuffers> BUFFERS =
+            ThreadLocal.withInitial(DirectBuffers::new);
+
+    private ByteBuffer input = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    private ByteBuffer output = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+
+    private DirectBuffers() {}
+
+    /**
+     * Get the buffers of the current thread.
+     *
+     * @return The buffers.
+     */
+    static DirectBuffers forCurrentThread() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Serialize a request into the input buffer, growing it until the request fits.
+     *
+     * @param writer Writer to serialize the request with.
+     * @param request The request.
+     * @return The length of the serialized request.
+     * @throws IOException On failure to serialize the request.
+     */
+    int writeRequest(ObjectWriter writer, Object request) throws IOException {
+        input.clear();
+        writer.writeValue(new RequestStream(), request);
+        return input.position();
+    }
+
+    /** @return The input buffer. */
+    ByteBuffer input() {
+        return input;
+    }
+
+    /** @return The output buffer. */
+    ByteBuffer output() {
+        return output;
+    }
+
+    /**
+     * Replace the output buffer with one that holds at least <code>length</code> bytes.
+     *
+     * @param length The length of the response that did not fit.
+     * @return The new output buffer.
+     */
+    ByteBuffer growOutput(int length) {
+        output = ByteBuffer.allocateDirect(grow(output.capacity(), length));
+        return output;
+    }
+
+    /**
+     * Go back to buffers of the initial size if either grew past {@value #MAX_RETAINED_CAPACITY}
+     * bytes. Call once the response has been read.
+     */
+    void trim() {
+        if (input.capacity() > MAX_RETAINED_CAPACITY) {
+            input = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        }
+        if (output.capacity() > MAX_RETAINED_CAPACITY) {
+            output = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * Read the response the native library wrote into the output buffer.
+     *
+     * @param length The length of the response.
+     * @return A stream over the response.
+     */
+    InputStream response(int length) {
+        output.clear();
+        output.limit(length);
+        return new ByteBufferBackedInputStream(output);
+    }
+
+    // Writes into the input buffer, moving to a larger one when it is full.
+    private final class RequestStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            reserve(1);
+            input.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            reserve(len);
+            input.put(b, off, len);
+        }
+
+        private void reserve(int length) {
+            if (input.remaining() < length) {
+                final ByteBuffer grown =
+                        ByteBuffer.allocateDirect(grow(input.capacity(), input.position() + length));
+                input.flip();
+                grown.put(input);
+                input = grown;
+            }
+        }
+    }
+
+    private static int grow(int capacity, int needed) {
+        int grown = capacity;
+        while (grown < needed) {
+            grown = grown > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : grown * 2;
+        }
+        return grown;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.schema.Schema;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SHA-256 fingerprints of the values sent to Cedar, used as cache keys. Values are fingerprinted
+ * as JSON with map entries sorted by key, so equal maps have equal fingerprints however they were
+ * built. Jackson does not sort the fields of a JSON tree, so schemas, which are JSON trees, are
+ * fingerprinted with every object's fields sorted by {@link #of(Schema)}. Fingerprints are Base64
+ * strings of fixed length that never contain <code>':'</code>.
+ */
+final class Fingerprint {
+    private static final ObjectWriter WRITER =
+            CedarJson.objectWriter().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    private Fingerprint() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Fingerprint a value by its JSON serialization.
+     *
+     * @param value The value.
+     * @return The fingerprint.
+     * @throws AuthException If the value cannot be serialized.
+     */
+    static String of(Object value) throws AuthException {
+        try {
+            return of(WRITER.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new AuthException("JSON Serialization Error", e);
+        }
+    }
+
+    /**
+     * Fingerprint a schema by its JSON with the fields of every object sorted by name, so the same
+     * schema written with its keys in another order has the same fingerprint.
+     *
+     * @param schema The schema.
+     * @return The fingerprint.
+     * @throws AuthException If the schema cannot be serialized.
+     */
+    static String of(Schema schema) throws AuthException {
+        final JsonNode tree;
+        try {
+            tree = CedarJson.objectMapper().valueToTree(schema);
+        } catch (IllegalArgumentException e) {
+            throw new AuthException("JSON Serialization Error", e);
+        }
+        return of((Object) sorted(tree));
+    }
+
+    /**
+     * Fingerprint a string by its UTF-8 bytes.
+     *
+     * @param value The string.
+     * @return The fingerprint.
+     */
+    static String of(String value) {
+        return of(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonNode sorted(JsonNode node) {
+        if (node.isObject()) {
+            final List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            final ObjectNode sorted = JsonNodeFactory.instance.objectNode();
+            for (String name : names) {
+                sorted.set(name, sorted(node.get(name)));
+            }
+            return sorted;
+        }
+        if (node.isArray()) {
+            final ArrayNode sorted = JsonNodeFactory.instance.arrayNode(node.size());
+            for (JsonNode element : node) {
+                sorted.add(sorted(element));
+            }
+            return sorted;
+        }
+        return node;
+    }
+
+    private static String of(byte[] bytes) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
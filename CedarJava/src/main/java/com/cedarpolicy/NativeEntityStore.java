@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.slice.Entity;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived set of entities owned by the native Cedar library. The entities are sent once and
+ * then kept up to date with {@link #upsert(Entity)} and {@link #remove(String)} deltas. The native
+ * side parses the entities (including the transitive closure of the hierarchy) at most once per
+ * version, so authorizing against a stable hierarchy costs no entity re-ingestion.
+ *
+ * <p>Instances are thread-safe. Closing the store while other threads are still evaluating against
+ * it is safe. A store that is never closed is released after it becomes unreachable, but callers
+ * should close it explicitly.
+ */
+public final class NativeEntityStore extends NativeHandle {
+    private final AtomicLong version;
+
+    NativeEntityStore(long handle, long version) {
+        super(handle, "ReleaseEntityStoreOperation", "entity store");
+        this.version = new AtomicLong(version);
+    }
+
+    /**
+     * Get the version of the store. The version starts at 1 and increases with every update.
+     *
+     * @return The latest version this object has seen.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Insert an entity, or replace the entity with the same EUID.
+     *
+     * @param entity The entity.
+     * @return The new version of the store.
+     * @throws AuthException On failure to update the store. The store is left unchanged.
+     */
+    public long upsert(Entity entity) throws AuthException {
+        return update(Collections.singleton(entity), Collections.emptySet());
+    }
+
+    /**
+     * Insert entities, or replace the entities with the same EUIDs.
+     *
+     * @param entities The entities.
+     * @return The new version of the store.
+     * @throws AuthException On failure to update the store. The store is left unchanged.
+     */
+    public long upsert(Collection<Entity> entities) throws AuthException {
+        return update(entities, Collections.emptySet());
+    }
+
+    /**
+     * Remove an entity. Removing an entity that is not in the store is not an error.
+     *
+     * @param uid EUID of the entity.
+     * @return The new version of the store.
+     * @throws AuthException On failure to update the store. The store is left unchanged.
+     */
+    public long remove(String uid) throws AuthException {
+        return update(Collections.emptySet(), Collections.singleton(uid));
+    }
+
+    /**
+     * Apply upserts and removals as a single atomic update. Removals are applied first.
+     *
+     * @param upserts Entities to insert or replace.
+     * @param removals EUIDs of entities to remove.
+     * @return The new version of the store.
+     * @throws AuthException On failure to update the store. The store is left unchanged.
+     */
+    public long update(Collection<Entity> upserts, Collection<String> removals)
+            throws AuthException {
+        final long updated =
+                WrapperAuthorizationEngine.updateEntityStore(getHandle(), upserts, removals);
+        return version.accumulateAndGet(updated, Math::max);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.exception.AuthException;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An object owned by the native library that Java refers to through an opaque handle. The native
+ * side reference counts the object, so closing a handle while other threads are still using it is
+ * safe. A handle that is never closed is released after it becomes unreachable, but callers should
+ * close it explicitly.
+ */
+abstract class NativeHandle implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final String kind;
+    private final Release release;
+    private final Cleaner.Cleanable cleanable;
+
+    /**
+     * Take ownership of a native handle.
+     *
+     * @param handle The handle returned by the native library.
+     * @param releaseOperation The operation that releases the handle.
+     * @param kind What the handle refers to, for error messages.
+     */
+    NativeHandle(long handle, String releaseOperation, String kind) {
+        this.kind = kind;
+        this.release = new Release(handle, releaseOperation);
+        this.cleanable = CLEANER.register(this, release);
+    }
+
+    /**
+     * Get the native handle.
+     *
+     * @return The handle.
+     * @throws AuthException if the handle has been closed.
+     */
+    long getHandle() throws AuthException {
+        if (release.released.get()) {
+            throw new AuthException("The " + kind + " has been closed");
+        }
+        return release.handle;
+    }
+
+    /**
+     * Check whether the handle has been closed.
+     *
+     * @return true if {@link #close()} has been called.
+     */
+    public boolean isClosed() {
+        return release.released.get();
+    }
+
+    /** Release the native object. Closing more than once has no effect. */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+                + "("
+                + release.handle
+                + (isClosed() ? ", closed)" : ")");
+    }
+
+    // Must not refer to the NativeHandle, or the Cleaner could never run it.
+    private static final class Release implements Runnable {
+        private final long handle;
+        private final String operation;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        Release(long handle, String operation) {
+            this.handle = handle;
+            this.operation = operation;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                WrapperAuthorizationEngine.release(operation, handle);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+/**
+ * A policy set (policies, templates and template instantiations) that has been parsed once by the
+ * native Cedar library. Authorization queries made with {@link
+ * WrapperAuthorizationEngine#isAuthorized(com.cedarpolicy.model.AuthorizationRequest,
+ * NativePolicySet, java.util.Set)} refer to it through an opaque handle, so the policy text is not
+ * shipped across JNI or parsed again on every request.
+ *
+ * <p>Instances are thread-safe. The native policy set is reference counted: closing it while other
+ * threads are still evaluating against it is safe, and its memory is released once those calls
+ * return. A policy set that is never closed is released after it becomes unreachable, but callers
+ * should close it explicitly.
+ */
+public final class NativePolicySet extends NativeHandle {
+    NativePolicySet(long handle) {
+        super(handle, "ReleasePolicySetOperation", "policy set");
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable slice that is serialized once, when it is constructed. Each request made with it
+ * only serializes its principal, action, resource and context, and splices in the slice as it was
+ * serialized: as text in a JSON request, and as bytes in a CBOR request.
+ * Use it for a slice that is evaluated against many times, such as a policy set and entities that
+ * rarely change.
+ *
+ * <p>The policies, templates, template instantiations and entities are copied, so later changes to
+ * the collections they came from do not affect it. The entities themselves are not copied and must
+ * not be changed.
+ */
+@SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "The collections are unmodifiable")
+public final class PreparedSlice implements Slice {
+    private final Map<String, String> policies;
+    private final Set<Entity> entities;
+    private final Map<String, String> templates;
+    private final List<TemplateInstantiation> templateInstantiations;
+    private final Map<String, Map<String, Value>> attributes;
+    private final Map<String, List<String>> parents;
+
+    /** The slice serialized as JSON, with map entries sorted by key. */
+    private final String json;
+
+    /** The slice serialized as CBOR. */
+    private final byte[] cbor;
+
+    /**
+     * Serialize a slice.
+     *
+     * @param slice The slice.
+     * @throws AuthException If the slice cannot be serialized.
+     */
+    public PreparedSlice(Slice slice) throws AuthException {
+        this.policies = Map.copyOf(slice.getPolicies());
+        this.entities = Set.copyOf(slice.getEntities());
+        this.templates = Map.copyOf(slice.getTemplates());
+        this.templateInstantiations = List.copyOf(slice.getTemplateInstantiations());
+        final Map<String, Map<String, Value>> attributes = new HashMap<>();
+        final Map<String, List<String>> parents = new HashMap<>();
+        for (Entity entity : entities) {
+            attributes.put(entity.uid, Collections.unmodifiableMap(entity.attrs));
+            parents.put(entity.uid, List.copyOf(entity.parents));
+        }
+        this.attributes = Collections.unmodifiableMap(attributes);
+        this.parents = Collections.unmodifiableMap(parents);
+
+        final Slice view = new View(this);
+        try {
+            this.json =
+                    CedarJson.objectWriter()
+                            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                            .writeValueAsString(view);
+            this.cbor = CedarJson.cborWriter().writeValueAsBytes(view);
+        } catch (JsonProcessingException e) {
+            throw new AuthException("Slice Serialization Error", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getPolicies() {
+        return policies;
+    }
+
+    @Override
+    public Map<String, Map<String, Value>> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Map<String, List<String>> getParents() {
+        return parents;
+    }
+
+    @Override
+    public Set<Entity> getEntities() {
+        return entities;
+    }
+
+    @Override
+    public Map<String, String> getTemplates() {
+        return templates;
+    }
+
+    @Override
+    public List<TemplateInstantiation> getTemplateInstantiations() {
+        return templateInstantiations;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedSlice{" + json + '}';
+    }
+
+    /** Writes a prepared slice from its cached serialization. */
+    static final class Serializer extends JsonSerializer<PreparedSlice> {
+        @Override
+        public void serialize(
+                PreparedSlice slice,
+                JsonGenerator jsonGenerator,
+                SerializerProvider serializerProvider)
+                throws IOException {
+            if (jsonGenerator instanceof JsonGeneratorImpl) {
+                jsonGenerator.writeRawValue(slice.json);
+            } else if (jsonGenerator instanceof CedarCborFactory.Generator) {
+                ((CedarCborFactory.Generator) jsonGenerator).writeEncodedValue(slice.cbor);
+            } else {
+                serializerProvider.defaultSerializeValue(new View(slice), jsonGenerator);
+            }
+        }
+    }
+
+    /**
+     * The contents of a prepared slice as an ordinary slice, so that serializing it when it is
+     * constructed, or for a generator that cannot splice it in, goes through the slice serializer.
+     */
+    private static final class View implements Slice {
+        private final PreparedSlice slice;
+
+        View(PreparedSlice slice) {
+            this.slice = slice;
+        }
+
+        @Override
+        public Map<String, String> getPolicies() {
+            return slice.policies;
+        }
+
+        @Override
+        public Map<String, Map<String, Value>> getAttributes() {
+            return slice.attributes;
+        }
+
+        @Override
+        public Map<String, List<String>> getParents() {
+            return slice.parents;
+        }
+
+        @Override
+        public Set<Entity> getEntities() {
+            return slice.entities;
+        }
+
+        @Override
+        public Map<String, String> getTemplates() {
+            return slice.templates;
+        }
+
+        @Override
+        public List<TemplateInstantiation> getTemplateInstantiations() {
+            return slice.templateInstantiations;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import com.cedarpolicy.model.ValidationQuery;
+import com.cedarpolicy.model.ValidationResult;
+import com.cedarpolicy.model.exception.AuthException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the validation notes of each policy, so validating a policy set again only sends Cedar
+ * the policies that are new or have changed since it was last validated against the same schema.
+ *
+ * <p>Cedar validates each policy on its own against the schema, so the notes of a policy depend
+ * only on the schema, the policy's ID and its source. Those are what the cache is keyed on, by
+ * content: a schema or policy built again with the same text reuses the earlier notes. Queries
+ * that fail are not cached.
+ *
+ * <p>Cedar also checks the schema itself, even when there are no policies. A schema that has not
+ * been validated successfully before is therefore always sent, with just the uncached policies
+ * or with none, so a malformed schema is still reported. Instances are thread-safe.
+ */
+final class ValidationCache {
+    /** Validates the policies the cache has no notes for. */
+    interface Validator {
+        ValidationResult validate(ValidationQuery q) throws AuthException;
+    }
+
+    private final Map<String, List<ValidationResult.Note>> notes;
+    /** The fingerprints of the schemas Cedar has accepted. */
+    private final Map<String, Boolean> validSchemas;
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumSize The maximum number of policies to keep the notes of. When it is full, the
+     *     least recently used policy is dropped.
+     */
+    ValidationCache(int maximumSize) {
+        this.notes = new LruMap<>(maximumSize, new LongAdder());
+        this.validSchemas = new LruMap<>(maximumSize, new LongAdder());
+    }
+
+    /**
+     * Validate a query, calling <code>validator</code> only for the policies whose notes are not
+     * cached, or with no policies if they are all cached but the schema has not been accepted
+     * before.
+     *
+     * @param q The query.
+     * @param validator Validates a query containing just the uncached policies.
+     * @return The notes of every policy in the query.
+     * @throws AuthException If <code>validator</code> fails.
+     */
+    ValidationResult validate(ValidationQuery q, Validator validator) throws AuthException {
+        final String schema = Fingerprint.of(q.getSchema());
+        final List<ValidationResult.Note> result = new ArrayList<>();
+        final Map<String, String> missing = new HashMap<>();
+        final Map<String, String> missingKeys = new HashMap<>();
+        final boolean validSchema;
+        synchronized (notes) {
+            validSchema = validSchemas.containsKey(schema);
+            for (Map.Entry<String, String> policy : q.getPolicySet().entrySet()) {
+                final String key = key(schema, policy.getKey(), policy.getValue());
+                final List<ValidationResult.Note> cached = notes.get(key);
+                if (cached != null) {
+                    result.addAll(cached);
+                } else {
+                    missing.put(policy.getKey(), policy.getValue());
+                    missingKeys.put(policy.getKey(), key);
+                }
+            }
+        }
+        if (missing.isEmpty() && validSchema) {
+            return new ValidationResult(result);
+        }
+
+        final ValidationResult validated =
+                validator.validate(new ValidationQuery(q.getSchema(), missing));
+        final Map<String, List<ValidationResult.Note>> byPolicy = new HashMap<>();
+        for (String policyId : missing.keySet()) {
+            byPolicy.put(policyId, new ArrayList<>());
+        }
+        for (ValidationResult.Note note : validated.getNotes()) {
+            byPolicy.computeIfAbsent(note.getPolicyId(), id -> new ArrayList<>()).add(note);
+        }
+        synchronized (notes) {
+            validSchemas.put(schema, Boolean.TRUE);
+            for (Map.Entry<String, String> policy : missingKeys.entrySet()) {
+                notes.put(
+                        policy.getValue(),
+                        Collections.unmodifiableList(byPolicy.get(policy.getKey())));
+            }
+        }
+        result.addAll(validated.getNotes());
+        return new ValidationResult(result);
+    }
+
+    /** Forget the notes of every policy. */
+    void clear() {
+        synchronized (notes) {
+            notes.clear();
+            validSchemas.clear();
+        }
+    }
+
+    /**
+     * Get the number of policies whose notes are cached.
+     *
+     * @return The number of policies.
+     */
+    int size() {
+        synchronized (notes) {
+            return notes.size();
+        }
+    }
+
+    private static String key(String schema, String policyId, String policy) {
+        return schema + ':' + Fingerprint.of(policy) + ':' + policyId;
+    }
+}
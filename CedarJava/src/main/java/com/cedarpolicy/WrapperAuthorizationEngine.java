@@ -16,21 +16,47 @@
 
 package com.cedarpolicy;
 
+import static com.cedarpolicy.CedarJson.cborMapper;
+import static com.cedarpolicy.CedarJson.cborReader;
+import static com.cedarpolicy.CedarJson.cborWriter;
 import static com.cedarpolicy.CedarJson.objectReader;
 import static com.cedarpolicy.CedarJson.objectWriter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import com.cedarpolicy.metrics.MetricNames;
+import com.cedarpolicy.metrics.MetricsRegistry;
 import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
 import com.cedarpolicy.model.ValidationQuery;
 import com.cedarpolicy.model.ValidationResult;
 import com.cedarpolicy.model.exception.AuthException;
 import com.cedarpolicy.model.exception.BadRequestException;
 import com.cedarpolicy.model.exception.InternalException;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
 import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
+import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,61 +65,505 @@ import org.slf4j.LoggerFactory;
 public final class WrapperAuthorizationEngine implements AuthorizationEngine {
     private static final Logger LOG = LoggerFactory.getLogger(WrapperAuthorizationEngine.class);
 
+    /** The CBOR protocol version this class speaks. Must match the native library's. */
+    private static final int CBOR_PROTOCOL_VERSION = 2;
+
+    /** Why the native library cannot be used, or null if it can. Checked once, at load time. */
+    private static final String VERSION_MISMATCH;
+
+    /** Whether calls are encoded as CBOR rather than JSON. Negotiated once, at load time. */
+    private static final boolean USE_CBOR;
+
     static {
         System.load(System.getenv("CEDAR_JAVA_FFI_LIB"));
+        VERSION_MISMATCH = checkCedarJNIVersion();
+        USE_CBOR = negotiateCbor();
+    }
+
+    /** The number of policies whose validation notes an engine remembers by default. */
+    public static final int DEFAULT_VALIDATION_CACHE_SIZE = 16 * 1024;
+
+    private final AuthorizationExecutor executor;
+    private final MetricsRegistry metrics;
+    private final ValidationCache validationCache;
+
+    /**
+     * Construct a wrapper authorization engine. Asynchronous calls run on an {@link
+     * AuthorizationExecutor} shared by every engine constructed this way, and no metrics are
+     * reported.
+     */
+    public WrapperAuthorizationEngine() {
+        this.executor = null;
+        this.metrics = MetricsRegistry.noop();
+        this.validationCache = new ValidationCache(DEFAULT_VALIDATION_CACHE_SIZE);
     }
 
-    /** Construct a wrapper authorization engine. */
-    public WrapperAuthorizationEngine() {}
+    /**
+     * Construct a wrapper authorization engine whose asynchronous calls run on the given executor.
+     *
+     * @param executor Executor that makes the JNI calls for {@link
+     *     #isAuthorizedAsync(com.cedarpolicy.model.AuthorizationRequest, Slice)}.
+     */
+    public WrapperAuthorizationEngine(AuthorizationExecutor executor) {
+        this(executor, MetricsRegistry.noop());
+    }
+
+    /**
+     * Construct a wrapper authorization engine that reports metrics. Asynchronous calls run on an
+     * {@link AuthorizationExecutor} shared by every engine constructed without one.
+     *
+     * @param metrics Registry the metrics named in {@link MetricNames} are reported to.
+     */
+    public WrapperAuthorizationEngine(MetricsRegistry metrics) {
+        if (metrics == null) {
+            throw new NullPointerException("metrics");
+        }
+        this.executor = null;
+        this.metrics = metrics;
+        this.validationCache = new ValidationCache(DEFAULT_VALIDATION_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a wrapper authorization engine whose asynchronous calls run on the given executor,
+     * and that reports metrics.
+     *
+     * @param executor Executor that makes the JNI calls for {@link
+     *     #isAuthorizedAsync(com.cedarpolicy.model.AuthorizationRequest, Slice)}.
+     * @param metrics Registry the metrics named in {@link MetricNames} are reported to.
+     */
+    public WrapperAuthorizationEngine(AuthorizationExecutor executor, MetricsRegistry metrics) {
+        this(requireExecutor(executor), metrics, DEFAULT_VALIDATION_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a wrapper authorization engine whose asynchronous calls run on the given executor,
+     * that reports metrics, and that remembers the validation notes of a given number of policies.
+     *
+     * @param executor Executor that makes the JNI calls for {@link
+     *     #isAuthorizedAsync(com.cedarpolicy.model.AuthorizationRequest, Slice)}, or null to use
+     *     the {@link AuthorizationExecutor} shared by every engine constructed without one.
+     * @param metrics Registry the metrics named in {@link MetricNames} are reported to.
+     * @param validationCacheSize The number of policies whose validation notes are remembered.
+     * @throws IllegalArgumentException if <code>validationCacheSize</code> is not positive.
+     */
+    public WrapperAuthorizationEngine(
+            AuthorizationExecutor executor, MetricsRegistry metrics, int validationCacheSize) {
+        if (metrics == null) {
+            throw new NullPointerException("metrics");
+        }
+        this.executor = executor;
+        this.metrics = metrics;
+        this.validationCache = new ValidationCache(validationCacheSize);
+    }
+
+    private static AuthorizationExecutor requireExecutor(AuthorizationExecutor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return executor;
+    }
 
     @Override
     public AuthorizationResponse isAuthorized(com.cedarpolicy.model.AuthorizationRequest q, Slice slice)
             throws AuthException {
         LOG.trace("Making an isAuthorized query:\n{}\nwith slice\n{}", q, slice);
         final AuthorizationRequest request = new AuthorizationRequest(q, slice);
-        return call("AuthorizationOperation", AuthorizationResponse.class, request);
+        return call(metrics, "AuthorizationOperation", AuthorizationResponse.class, request, slice);
+    }
+
+    /**
+     * Partially evaluate the given AuthorizationQuery <code>q</code> against the policies and
+     * entity hierarchy given in the <code>slice</code>. A principal, action or resource left out of
+     * the query is treated as unknown rather than absent, so one call can answer questions such as
+     * which resources a principal can access.
+     *
+     * @param q The query to evaluate. Leave out the principal, action or resource to make it
+     *     unknown.
+     * @param slice The slice to evaluate against
+     * @return Either a decision, if the unknowns do not affect it, or the residual policies.
+     * @throws AuthException On failure to make the authorization query.
+     */
+    public PartialAuthorizationResponse isAuthorizedPartial(
+            com.cedarpolicy.model.AuthorizationRequest q, Slice slice) throws AuthException {
+        LOG.trace("Making a partial isAuthorized query:\n{}\nwith slice\n{}", q, slice);
+        final AuthorizationRequest request = new AuthorizationRequest(q, slice);
+        return call(
+                metrics,
+                "PartialAuthorizationOperation",
+                PartialAuthorizationResponse.class,
+                request,
+                slice);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The slice is sent and parsed once, and the whole batch is evaluated in a single call into
+     * the native library. Large batches are evaluated on several native threads.
+     */
+    @Override
+    public List<AuthorizationResponse> isAuthorizedBatch(
+            List<com.cedarpolicy.model.AuthorizationRequest> queries, Slice slice)
+            throws AuthException {
+        LOG.trace("Making {} isAuthorized queries with slice\n{}", queries.size(), slice);
+        if (queries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final BatchAuthorizationRequest request = new BatchAuthorizationRequest(queries, slice);
+        final AuthorizationResponse[] responses =
+                call(
+                        metrics,
+                        "BatchAuthorizationOperation",
+                        AuthorizationResponse[].class,
+                        request,
+                        slice);
+        if (responses.length != queries.size()) {
+            throw new InternalException(
+                    new String[] {
+                        "Expected " + queries.size() + " responses but got " + responses.length
+                    });
+        }
+        return Arrays.asList(responses);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The JNI call is made on this engine's {@link AuthorizationExecutor}. If its queue is full
+     * or it has been closed, the future completes exceptionally with a {@link
+     * java.util.concurrent.RejectedExecutionException}. Any other exception or error the call
+     * throws, such as an {@link OutOfMemoryError}, completes the future exceptionally as well.
+     */
+    @Override
+    public CompletableFuture<AuthorizationResponse> isAuthorizedAsync(
+            com.cedarpolicy.model.AuthorizationRequest q, Slice slice) {
+        final CompletableFuture<AuthorizationResponse> future = new CompletableFuture<>();
+        try {
+            getExecutor()
+                    .execute(
+                            () -> {
+                                try {
+                                    future.complete(isAuthorized(q, slice));
+                                } catch (Throwable e) {
+                                    future.completeExceptionally(e);
+                                }
+                            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Rejected an isAuthorized query: {}", e.getMessage());
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Get the executor this engine makes asynchronous calls on.
+     *
+     * @return The executor, for example to report its metrics.
+     */
+    public AuthorizationExecutor getExecutor() {
+        return executor != null ? executor : SharedExecutor.INSTANCE;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The notes of each policy are remembered by this engine, keyed on the content of the
+     * schema and the policy. Only policies that this engine has not validated against the same
+     * schema before are sent to the native library. See {@link #invalidateValidationCache()}.
+     */
     @Override
     public ValidationResult validate(ValidationQuery q) throws AuthException {
         LOG.trace("Making a validate query:\n{}", q);
-        return call("ValidateOperation", ValidationResult.class, q);
+        return validationCache.validate(
+                q,
+                uncached ->
+                        call(metrics, "ValidateOperation", ValidationResult.class, uncached));
+    }
+
+    /**
+     * Forget the validation notes this engine remembers, for example after upgrading the native
+     * library to a Cedar version that validates differently.
+     */
+    public void invalidateValidationCache() {
+        validationCache.clear();
+    }
+
+    /**
+     * Parse a set of policies once in the native library. See {@link
+     * #createPolicySet(Set, Set, List)}.
+     *
+     * @param policies Set of policies.
+     * @return The compiled policy set. The caller is responsible for closing it.
+     * @throws BadRequestException if any of the policies fail to parse.
+     * @throws AuthException On failure to communicate with the native library.
+     */
+    public NativePolicySet createPolicySet(Set<Policy> policies) throws AuthException {
+        return createPolicySet(policies, Collections.emptySet(), Collections.emptyList());
+    }
+
+    /**
+     * Parse policies and templates and link template instantiations once in the native library.
+     * The returned policy set can be evaluated against any number of times with {@link
+     * #isAuthorized(com.cedarpolicy.model.AuthorizationRequest, NativePolicySet, Set)} without
+     * the policy text being sent or parsed again.
+     *
+     * @param policies Set of policies.
+     * @param templates Set of policy templates.
+     * @param templateInstantiations List of TemplateInstantiations.
+     * @return The compiled policy set. The caller is responsible for closing it.
+     * @throws BadRequestException if any of the policies or templates fail to parse, or a template
+     *     instantiation cannot be linked.
+     * @throws AuthException On failure to communicate with the native library.
+     */
+    public NativePolicySet createPolicySet(
+            Set<Policy> policies,
+            Set<Policy> templates,
+            List<TemplateInstantiation> templateInstantiations)
+            throws AuthException {
+        final PolicySetRequest request =
+                new PolicySetRequest(policies, templates, templateInstantiations);
+        LOG.trace("Creating a native policy set:\n{}", request.policies);
+        final Handle created = call(metrics, "CreatePolicySetOperation", Handle.class, request);
+        return new NativePolicySet(created.handle);
+    }
+
+    /**
+     * Asks whether the given AuthorizationQuery <code>q</code> is approved by a policy set
+     * previously compiled with {@link #createPolicySet(Set, Set, List)} and the given entities.
+     *
+     * @param q The query to evaluate
+     * @param policySet The compiled policy set to evaluate against
+     * @param entities The entities to evaluate against
+     * @return The result of the query evaluation
+     * @throws AuthException On failure to make the authorization query, including when the policy
+     *     set has already been closed.
+     */
+    public AuthorizationResponse isAuthorized(
+            com.cedarpolicy.model.AuthorizationRequest q,
+            NativePolicySet policySet,
+            Set<Entity> entities)
+            throws AuthException {
+        LOG.trace("Making an isAuthorized query:\n{}\nwith {}", q, policySet);
+        final PreparedAuthorizationRequest request =
+                new PreparedAuthorizationRequest(q, policySet.getHandle(), entities);
+        return call(
+                metrics, "PreparedAuthorizationOperation", AuthorizationResponse.class, request);
+    }
+
+    /**
+     * Load entities once in the native library. See {@link #createEntityStore(Set, Optional)}.
+     *
+     * @param entities The initial entities.
+     * @return The entity store. The caller is responsible for closing it.
+     * @throws BadRequestException if any of the entities are invalid.
+     * @throws AuthException On failure to communicate with the native library.
+     */
+    public NativeEntityStore createEntityStore(Set<Entity> entities) throws AuthException {
+        return createEntityStore(entities, Optional.empty());
+    }
+
+    /**
+     * Load entities once in the native library. The returned store is kept up to date with
+     * {@link NativeEntityStore#upsert(Entity)} and {@link NativeEntityStore#remove(String)}, and
+     * can be evaluated against any number of times with {@link
+     * #isAuthorized(com.cedarpolicy.model.AuthorizationRequest, NativePolicySet,
+     * NativeEntityStore)} without the entities being sent or parsed again.
+     *
+     * @param entities The initial entities.
+     * @param schema Schema the entities and later updates are checked against, if any.
+     * @return The entity store. The caller is responsible for closing it.
+     * @throws BadRequestException if any of the entities are invalid.
+     * @throws AuthException On failure to communicate with the native library.
+     */
+    public NativeEntityStore createEntityStore(Set<Entity> entities, Optional<Schema> schema)
+            throws AuthException {
+        LOG.trace("Creating a native entity store with {} entities", entities.size());
+        final EntityStoreVersion created =
+                call(
+                        metrics,
+                        "CreateEntityStoreOperation",
+                        EntityStoreVersion.class,
+                        new EntityStoreRequest(entities, schema));
+        return new NativeEntityStore(created.handle, created.version);
+    }
+
+    /**
+     * Asks whether the given AuthorizationQuery <code>q</code> is approved by a policy set
+     * previously compiled with {@link #createPolicySet(Set, Set, List)} and the entities in an
+     * entity store created with {@link #createEntityStore(Set, Optional)}.
+     *
+     * @param q The query to evaluate
+     * @param policySet The compiled policy set to evaluate against
+     * @param entityStore The entity store to evaluate against
+     * @return The result of the query evaluation
+     * @throws AuthException On failure to make the authorization query, including when the policy
+     *     set or entity store has already been closed.
+     */
+    public AuthorizationResponse isAuthorized(
+            com.cedarpolicy.model.AuthorizationRequest q,
+            NativePolicySet policySet,
+            NativeEntityStore entityStore)
+            throws AuthException {
+        LOG.trace("Making an isAuthorized query:\n{}\nwith {} and {}", q, policySet, entityStore);
+        final PreparedAuthorizationRequest request =
+                new PreparedAuthorizationRequest(
+                        q, policySet.getHandle(), entityStore.getHandle());
+        return call(
+                metrics, "PreparedAuthorizationOperation", AuthorizationResponse.class, request);
+    }
+
+    static long updateEntityStore(
+            long handle, Collection<Entity> upserts, Collection<String> removals)
+            throws AuthException {
+        final EntityStoreUpdate update = new EntityStoreUpdate(handle, upserts, removals);
+        return call(
+                        MetricsRegistry.noop(),
+                        "UpdateEntityStoreOperation",
+                        EntityStoreVersion.class,
+                        update)
+                .version;
+    }
+
+    static void release(String operation, long handle) {
+        try {
+            call(MetricsRegistry.noop(), operation, Boolean.class, new Handle(handle));
+        } catch (AuthException e) {
+            LOG.warn("Failed to release native handle {} with {}", handle, operation, e);
+        }
+    }
+
+    private static String checkCedarJNIVersion() {
+        final String cedarJNIVersion = getCedarJNIVersion();
+        if (cedarJNIVersion.equals(AuthorizationEngine.getCedarLangVersion())) {
+            return null;
+        }
+        final String mismatch =
+                "Error, Java Cedar Language version is "
+                        + AuthorizationEngine.getCedarLangVersion()
+                        + " but JNI Cedar Language version is "
+                        + cedarJNIVersion;
+        LOG.error(mismatch);
+        return mismatch;
     }
 
-    private static <REQ, RESP> RESP call(String operation, Class<RESP> responseClass, REQ request)
+    private static boolean negotiateCbor() {
+        final int nativeVersion;
+        try {
+            nativeVersion = getCedarJNIProtocolVersion();
+        } catch (UnsatisfiedLinkError e) {
+            LOG.info("The native library only supports JSON calls");
+            return false;
+        }
+        if (nativeVersion != CBOR_PROTOCOL_VERSION) {
+            LOG.info(
+                    "Using JSON calls: CBOR protocol version is {} but the native library's is {}",
+                    CBOR_PROTOCOL_VERSION,
+                    nativeVersion);
+            return false;
+        }
+        return true;
+    }
+
+    private static <REQ, RESP> RESP call(
+            MetricsRegistry metrics, String operation, Class<RESP> responseClass, REQ request)
+            throws AuthException {
+        return call(metrics, operation, responseClass, request, null);
+    }
+
+    /**
+     * Make a call, reporting it to the metrics registry and as a {@link CallEvent}.
+     *
+     * @param slice The slice sent with the request, or null if there is none.
+     */
+    private static <REQ, RESP> RESP call(
+            MetricsRegistry metrics,
+            String operation,
+            Class<RESP> responseClass,
+            REQ request,
+            Slice slice)
             throws AuthException {
+        if (VERSION_MISMATCH != null) {
+            throw new AuthException(VERSION_MISMATCH);
+        }
+        final CallEvent event = new CallEvent();
+        event.begin();
+        metrics.counter(MetricNames.CALLS + operation).increment();
+        if (slice != null) {
+            event.slicePolicies = slice.getPolicies().size();
+            event.sliceEntities = slice.getEntities().size();
+            metrics.histogram(MetricNames.SLICE_POLICIES).record(event.slicePolicies);
+            metrics.histogram(MetricNames.SLICE_ENTITIES).record(event.sliceEntities);
+        }
         try {
-            final String cedarJNIVersion = getCedarJNIVersion();
-            if (!cedarJNIVersion.equals(AuthorizationEngine.getCedarLangVersion())) {
-                throw new AuthException(
-                        "Error, Java Cedar Language version is "
-                                + AuthorizationEngine.getCedarLangVersion()
-                                + " but JNI Cedar Language version is "
-                                + cedarJNIVersion);
+            final RESP response =
+                    USE_CBOR
+                            ? callCbor(metrics, event, operation, responseClass, request)
+                            : callJson(metrics, event, operation, responseClass, request);
+            if (response instanceof AuthorizationResponse) {
+                event.decision = recordDecision(metrics, (AuthorizationResponse) response);
+            } else if (response instanceof AuthorizationResponse[]) {
+                for (AuthorizationResponse each : (AuthorizationResponse[]) response) {
+                    recordDecision(metrics, each);
+                }
+            }
+            return response;
+        } catch (AuthException | RuntimeException e) {
+            event.error = e.getClass().getSimpleName();
+            metrics.counter(MetricNames.ERRORS + event.error).increment();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
             }
+        }
+    }
+
+    private static String recordDecision(MetricsRegistry metrics, AuthorizationResponse response) {
+        final AuthorizationResponse.Decision decision = response.getDecision();
+        if (decision == AuthorizationResponse.Decision.Allow) {
+            metrics.counter(MetricNames.ALLOWED).increment();
+        } else if (decision == AuthorizationResponse.Decision.Deny) {
+            metrics.counter(MetricNames.DENIED).increment();
+        }
+        return decision == null ? null : decision.name();
+    }
+
+    private static <REQ, RESP> RESP callJson(
+            MetricsRegistry metrics,
+            CallEvent event,
+            String operation,
+            Class<RESP> responseClass,
+            REQ request)
+            throws AuthException {
+        try {
+            final long start = System.nanoTime();
             final String fullRequest = objectWriter().writeValueAsString(request);
+            final long serialized = System.nanoTime();
+            event.serializeTime = serialized - start;
+            event.requestSize = fullRequest.length();
+            metrics.timer(MetricNames.SERIALIZE_TIME).recordNanos(event.serializeTime);
+            metrics.histogram(MetricNames.REQUEST_SIZE).record(event.requestSize);
 
             LOG.debug(
-                    "Making a request ({}, {}) of length {} through the JNI interface:",
+                    "Making a request ({}) of length {} through the JNI interface",
                     operation,
                     fullRequest.length());
             LOG.trace("The request:\n{}", fullRequest);
 
             final String response = callCedarJNI(operation, fullRequest);
+            final long returned = System.nanoTime();
+            event.nativeTime = returned - serialized;
+            event.responseSize = response.length();
+            metrics.timer(MetricNames.NATIVE_TIME).recordNanos(event.nativeTime);
+            metrics.histogram(MetricNames.RESPONSE_SIZE).record(event.responseSize);
             LOG.trace("Received response of length {}:\n{}", response.length(), response);
 
-            final JsonNode responseNode = objectReader().readTree(response);
-            boolean wasSuccessful = responseNode.path("success").asBoolean(false);
-            if (wasSuccessful) {
-                final String resultJson = responseNode.path("result").textValue();
-                return objectReader().readValue(resultJson, responseClass);
-            } else {
-                final ErrorResponse error = objectReader().forType(ErrorResponse.class).readValue(responseNode);
-                if (error.isInternal) {
-                    throw new InternalException(error.errors);
-                } else {
-                    throw new BadRequestException(error.errors);
-                }
+            try {
+                return readJsonResponse(response, responseClass);
+            } finally {
+                event.parseTime = System.nanoTime() - returned;
+                metrics.timer(MetricNames.PARSE_TIME).recordNanos(event.parseTime);
             }
         } catch (JsonProcessingException e) {
             throw new AuthException("JSON Serialization Error", e);
@@ -104,7 +574,97 @@ public final class WrapperAuthorizationEngine implements AuthorizationEngine {
         }
     }
 
-    private static final class AuthorizationRequest extends com.cedarpolicy.model.AuthorizationRequest {
+    /** Parse the JSON response to a call, throwing the errors it reports. */
+    static <RESP> RESP readJsonResponse(String response, Class<RESP> responseClass)
+            throws AuthException, IOException {
+        final JsonNode responseNode = objectReader().readTree(response);
+        boolean wasSuccessful = responseNode.path("success").asBoolean(false);
+        if (wasSuccessful) {
+            final String resultJson = responseNode.path("result").textValue();
+            return objectReader().readValue(resultJson, responseClass);
+        } else {
+            final ErrorResponse error = objectReader().forType(ErrorResponse.class).readValue(responseNode);
+            if (error.isInternal) {
+                throw new InternalException(error.errors);
+            } else {
+                throw new BadRequestException(error.errors);
+            }
+        }
+    }
+
+    private static <REQ, RESP> RESP callCbor(
+            MetricsRegistry metrics,
+            CallEvent event,
+            String operation,
+            Class<RESP> responseClass,
+            REQ request)
+            throws AuthException {
+        final DirectBuffers buffers = DirectBuffers.forCurrentThread();
+        try {
+            final long start = System.nanoTime();
+            final int requestLength = buffers.writeRequest(cborWriter(), request);
+            final long serialized = System.nanoTime();
+            event.serializeTime = serialized - start;
+            event.requestSize = requestLength;
+            metrics.timer(MetricNames.SERIALIZE_TIME).recordNanos(event.serializeTime);
+            metrics.histogram(MetricNames.REQUEST_SIZE).record(event.requestSize);
+            LOG.debug(
+                    "Making a CBOR request ({}) of length {} through the JNI interface",
+                    operation,
+                    requestLength);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("The request:\n{}", objectWriter().writeValueAsString(request));
+            }
+
+            int responseLength =
+                    callCedarJNIDirect(
+                            operation, buffers.input(), requestLength, buffers.output());
+            if (responseLength > buffers.output().capacity()) {
+                responseLength = takeCedarJNIResponse(buffers.growOutput(responseLength));
+            }
+            final long returned = System.nanoTime();
+            event.nativeTime = returned - serialized;
+            metrics.timer(MetricNames.NATIVE_TIME).recordNanos(event.nativeTime);
+            if (responseLength < 0) {
+                throw new InternalException(
+                        new String[] {"The native library could not return a response"});
+            }
+            event.responseSize = responseLength;
+            metrics.histogram(MetricNames.RESPONSE_SIZE).record(event.responseSize);
+            LOG.trace("Received response of length {}", responseLength);
+
+            final JavaType responseType =
+                    cborMapper()
+                            .getTypeFactory()
+                            .constructParametricType(CborResponse.class, responseClass);
+            final CborResponse<RESP> parsed =
+                    cborReader().forType(responseType).readValue(buffers.response(responseLength));
+            event.parseTime = System.nanoTime() - returned;
+            metrics.timer(MetricNames.PARSE_TIME).recordNanos(event.parseTime);
+            if (parsed.success) {
+                return parsed.result;
+            } else if (parsed.isInternal) {
+                throw new InternalException(parsed.errors);
+            } else {
+                throw new BadRequestException(parsed.errors);
+            }
+        } catch (JsonProcessingException e) {
+            throw new AuthException("CBOR Serialization Error", e);
+        } catch (IllegalArgumentException e) {
+            throw new AuthException("Authorization error caused by illegal argument exception.", e);
+        } catch (IOException e) {
+            throw new AuthException("CBOR Deserialization Error", e);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    // Created on first use, so engines that never make an asynchronous call start no threads.
+    private static final class SharedExecutor {
+        static final AuthorizationExecutor INSTANCE = new AuthorizationExecutor();
+    }
+
+    static final class AuthorizationRequest extends com.cedarpolicy.model.AuthorizationRequest {
         @JsonProperty public final Slice slice;
 
         AuthorizationRequest(com.cedarpolicy.model.AuthorizationRequest query, Slice slice) {
@@ -118,6 +678,155 @@ public final class WrapperAuthorizationEngine implements AuthorizationEngine {
         }
     }
 
+    private static final class BatchAuthorizationRequest {
+        @JsonProperty public final List<BatchEntry> requests;
+        @JsonProperty public final Slice slice;
+        @JsonProperty public final Optional<Schema> schema;
+
+        BatchAuthorizationRequest(
+                List<com.cedarpolicy.model.AuthorizationRequest> queries, Slice slice)
+                throws AuthException {
+            this.schema = queries.get(0).schema;
+            this.requests = new ArrayList<>(queries.size());
+            for (com.cedarpolicy.model.AuthorizationRequest q : queries) {
+                if (!Objects.equals(q.schema, schema)) {
+                    throw new AuthException("All queries in a batch must have the same schema");
+                }
+                this.requests.add(new BatchEntry(q));
+            }
+            this.slice = slice;
+        }
+    }
+
+    // The query without its schema, which is sent once for the whole batch.
+    private static final class BatchEntry {
+        @JsonProperty("principal")
+        public final Optional<String> principalEUID;
+
+        @JsonProperty("action")
+        public final String actionEUID;
+
+        @JsonProperty("resource")
+        public final Optional<String> resourceEUID;
+
+        @JsonProperty public final Map<String, Value> context;
+
+        BatchEntry(com.cedarpolicy.model.AuthorizationRequest query) {
+            this.principalEUID = query.principalEUID;
+            this.actionEUID = query.actionEUID;
+            this.resourceEUID = query.resourceEUID;
+            this.context = query.context;
+        }
+    }
+
+    private static final class PreparedAuthorizationRequest
+            extends com.cedarpolicy.model.AuthorizationRequest {
+        @JsonProperty("policy_set")
+        public final long policySet;
+
+        @JsonProperty("entity_store")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final Long entityStore;
+
+        @JsonProperty
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final Set<Entity> entities;
+
+        PreparedAuthorizationRequest(
+                com.cedarpolicy.model.AuthorizationRequest query,
+                long policySet,
+                Set<Entity> entities) {
+            this(query, policySet, null, entities);
+        }
+
+        PreparedAuthorizationRequest(
+                com.cedarpolicy.model.AuthorizationRequest query, long policySet, long entityStore) {
+            this(query, policySet, entityStore, null);
+        }
+
+        private PreparedAuthorizationRequest(
+                com.cedarpolicy.model.AuthorizationRequest query,
+                long policySet,
+                Long entityStore,
+                Set<Entity> entities) {
+            super(
+                    query.principalEUID,
+                    query.actionEUID,
+                    query.resourceEUID,
+                    query.context,
+                    query.schema);
+            this.policySet = policySet;
+            this.entityStore = entityStore;
+            this.entities = entities;
+        }
+    }
+
+    private static final class EntityStoreRequest {
+        @JsonProperty public final Set<Entity> entities;
+        @JsonProperty public final Optional<Schema> schema;
+
+        EntityStoreRequest(Set<Entity> entities, Optional<Schema> schema) {
+            this.entities = entities;
+            this.schema = schema;
+        }
+    }
+
+    private static final class EntityStoreUpdate {
+        @JsonProperty public final long handle;
+        @JsonProperty public final Collection<Entity> upsert;
+        @JsonProperty public final Collection<String> remove;
+
+        EntityStoreUpdate(long handle, Collection<Entity> upsert, Collection<String> remove) {
+            this.handle = handle;
+            this.upsert = upsert;
+            this.remove = remove;
+        }
+    }
+
+    private static final class EntityStoreVersion {
+        public final long handle;
+        public final long version;
+
+        @JsonCreator
+        EntityStoreVersion(
+                @JsonProperty("handle") long handle, @JsonProperty("version") long version) {
+            this.handle = handle;
+            this.version = version;
+        }
+    }
+
+    private static final class PolicySetRequest {
+        @JsonProperty public final Map<String, String> policies;
+        @JsonProperty public final Map<String, String> templates;
+
+        @JsonProperty("template_instantiations")
+        public final List<TemplateInstantiation> templateInstantiations;
+
+        PolicySetRequest(
+                Set<Policy> policies,
+                Set<Policy> templates,
+                List<TemplateInstantiation> templateInstantiations) {
+            this.policies = new HashMap<>();
+            for (Policy p : policies) {
+                this.policies.put(p.policyID, p.policySrc);
+            }
+            this.templates = new HashMap<>();
+            for (Policy t : templates) {
+                this.templates.put(t.policyID, t.policySrc);
+            }
+            this.templateInstantiations = templateInstantiations;
+        }
+    }
+
+    private static final class Handle {
+        public final long handle;
+
+        @JsonCreator
+        Handle(@JsonProperty("handle") long handle) {
+            this.handle = handle;
+        }
+    }
+
     private static final class ErrorResponse {
         public final boolean success, isInternal;
         public final String[] errors;
@@ -133,6 +842,25 @@ public final class WrapperAuthorizationEngine implements AuthorizationEngine {
         }
     }
 
+    // The result is embedded as a value rather than as a string of JSON, so it is parsed once.
+    private static final class CborResponse<T> {
+        public final boolean success, isInternal;
+        public final String[] errors;
+        public final T result;
+
+        @JsonCreator
+        CborResponse(
+                @JsonProperty("success") boolean success,
+                @JsonProperty("isInternal") boolean isInternal,
+                @JsonProperty("errors") String[] errors,
+                @JsonProperty("result") T result) {
+            this.success = success;
+            this.isInternal = isInternal;
+            this.errors = errors;
+            this.result = result;
+        }
+    }
+
     /**
      * Call out to the Rust implementation.
      *
@@ -140,7 +868,39 @@ public final class WrapperAuthorizationEngine implements AuthorizationEngine {
      * @param input Query input in JSON format as a String
      * @return The query result (permit / deny for authorization, valid / invalid for validation)
      */
-    private static native String callCedarJNI(String call, String input);
+    static native String callCedarJNI(String call, String input);
+
+    /**
+     * Call out to the Rust implementation with a CBOR encoded request, passed in direct buffers so
+     * that neither the request nor the response is copied across JNI.
+     *
+     * @param call Call type, as for {@link #callCedarJNI(String, String)}.
+     * @param input Direct buffer holding the CBOR encoded request
+     * @param inputLength Length of the request
+     * @param output Direct buffer the CBOR encoded response is written to
+     * @return The length of the response, or -1 if the native library could not return one. If
+     *     this is larger than <code>output</code>, collect the response with {@link
+     *     #takeCedarJNIResponse(ByteBuffer)} before making another call on this thread.
+     */
+    private static native int callCedarJNIDirect(
+            String call, ByteBuffer input, int inputLength, ByteBuffer output);
+
+    /**
+     * Collect the response of the last {@link #callCedarJNIDirect(String, ByteBuffer, int,
+     * ByteBuffer)} on this thread that did not fit in its output buffer.
+     *
+     * @param output Direct buffer the response is written to
+     * @return The length of the response, or -1 if there is none or it does not fit
+     */
+    private static native int takeCedarJNIResponse(ByteBuffer output);
+
+    /**
+     * Get the CBOR protocol version supported by the JNI. Libraries that only support JSON
+     * do not have this method.
+     *
+     * @return The CBOR protocol version supported by the JNI
+     */
+    private static native int getCedarJNIProtocolVersion();
 
     /**
      * Get the Cedar language major version supported by the JNI (e.g., "1.2")
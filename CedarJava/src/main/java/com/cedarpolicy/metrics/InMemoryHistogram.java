@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values kept in log-linear buckets, in the style of HdrHistogram.
+ * Values below 128 are counted exactly; larger values are counted in buckets whose width is less
+ * than 1/64 of their lower bound, so percentiles are accurate to within about 1.6%. The histogram
+ * takes a fixed 30 KB however many values it records.
+ *
+ * <p>Recording is lock-free. The statistics are read without stopping writers, so while values are
+ * being recorded they may not all reflect exactly the same set of values.
+ */
+public final class InMemoryHistogram implements Histogram, Timer {
+    /** Bits of each value kept exactly: values below 2^7 have their own bucket. */
+    private static final int EXACT_BITS = 7;
+
+    private static final int HALF = 1 << (EXACT_BITS - 1);
+    private static final int BUCKETS = (Long.SIZE - EXACT_BITS) * HALF + HALF * 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    @Override
+    public void record(long value) {
+        final long v = Math.max(value, 0);
+        counts.incrementAndGet(bucket(v));
+        count.increment();
+        sum.add(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    @Override
+    public void recordNanos(long nanos) {
+        record(nanos);
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the smallest value recorded.
+     *
+     * @return The smallest value, or 0 if none have been recorded.
+     */
+    public long getMin() {
+        final long m = min.get();
+        return m == Long.MAX_VALUE ? 0 : m;
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return The largest value, or 0 if none have been recorded.
+     */
+    public long getMax() {
+        final long m = max.get();
+        return m == Long.MIN_VALUE ? 0 : m;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return The mean, or 0 if none have been recorded.
+     */
+    public double getMean() {
+        final long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Get the value below which a given percentage of the recorded values fall, to within the
+     * precision of the buckets.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The largest value that falls in the same bucket as the value at the percentile, or 0
+     *     if none have been recorded.
+     * @throws IllegalArgumentException If the percentage is not between 0 and 100.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(
+                    "percentile must be between 0 and 100: " + percentile);
+        }
+        final long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = magnitude - EXACT_BITS + 1;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long highestInBucket(int bucket) {
+        if (bucket < 2 * HALF) {
+            return bucket;
+        }
+        final int shift = bucket / HALF - 1;
+        final long lowest = (long) (bucket % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
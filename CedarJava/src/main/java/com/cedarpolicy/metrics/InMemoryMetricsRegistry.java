@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry that keeps every metric in memory, for reading back or for reporting on a schedule.
+ * Counters are {@link LongAdder}s, and timers and histograms are {@link InMemoryHistogram}s. It has
+ * no dependencies, and is the default choice when no metrics library is in use.
+ */
+public final class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final ConcurrentMap<String, InMemoryCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, InMemoryHistogram> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, InMemoryHistogram> histograms = new ConcurrentHashMap<>();
+
+    /** A counter backed by a {@link LongAdder}. */
+    private static final class InMemoryCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment() {
+            count.increment();
+        }
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new InMemoryCounter());
+    }
+
+    @Override
+    public InMemoryHistogram timer(String name) {
+        return timers.computeIfAbsent(name, n -> new InMemoryHistogram());
+    }
+
+    @Override
+    public InMemoryHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new InMemoryHistogram());
+    }
+
+    /**
+     * Get the value of a counter.
+     *
+     * @param name The name of the counter.
+     * @return The number of events counted, or 0 if the counter has not been used.
+     */
+    public long getCount(String name) {
+        final InMemoryCounter counter = counters.get(name);
+        return counter == null ? 0 : counter.count.sum();
+    }
+
+    /**
+     * Get the value of every counter.
+     *
+     * @return The counters and their values, sorted by name.
+     */
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((name, counter) -> counts.put(name, counter.count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Get every timer. Durations are in nanoseconds.
+     *
+     * @return The timers, by name.
+     */
+    public Map<String, InMemoryHistogram> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    /**
+     * Get every histogram.
+     *
+     * @return The histograms, by name.
+     */
+    public Map<String, InMemoryHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+}
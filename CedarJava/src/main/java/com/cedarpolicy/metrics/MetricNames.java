@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy.metrics;
+
+/** The names of the metrics {@link com.cedarpolicy.WrapperAuthorizationEngine} reports. */
+public final class MetricNames {
+    /** Timer: serializing a request, to JSON or CBOR. */
+    public static final String SERIALIZE_TIME = "cedar.call.serialize";
+
+    /**
+     * Timer: the JNI call, including the native library parsing the request, evaluating it and
+     * serializing the response.
+     */
+    public static final String NATIVE_TIME = "cedar.call.native";
+
+    /** Timer: parsing a response. */
+    public static final String PARSE_TIME = "cedar.call.parse";
+
+    /** Histogram: the length of a request, in bytes of CBOR or characters of JSON. */
+    public static final String REQUEST_SIZE = "cedar.call.request.size";
+
+    /** Histogram: the length of a response, in bytes of CBOR or characters of JSON. */
+    public static final String RESPONSE_SIZE = "cedar.call.response.size";
+
+    /** Histogram: the number of policies in the slice of an authorization request. */
+    public static final String SLICE_POLICIES = "cedar.slice.policies";
+
+    /** Histogram: the number of entities in the slice of an authorization request. */
+    public static final String SLICE_ENTITIES = "cedar.slice.entities";
+
+    /** Counter prefix: calls into the native library, followed by the operation name. */
+    public static final String CALLS = "cedar.calls.";
+
+    /** Counter prefix: failed calls, followed by the simple name of the exception thrown. */
+    public static final String ERRORS = "cedar.errors.";
+
+    /** Counter: authorization requests that were allowed. */
+    public static final String ALLOWED = "cedar.decisions.allow";
+
+    /** Counter: authorization requests that were denied. */
+    public static final String DENIED = "cedar.decisions.deny";
+
+    private MetricNames() {
+        throw new IllegalStateException("Utility class");
+    }
+}
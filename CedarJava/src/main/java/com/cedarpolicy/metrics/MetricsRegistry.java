@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.cedarpolicy.metrics;
+
+/**
+ * Where metrics are reported. Metrics are looked up by name on every use, so implementations
+ * should make lookups cheap, for example by caching them in a concurrent map. Implementations must
+ * be thread-safe.
+ */
+public interface MetricsRegistry {
+    /**
+     * Get a counter.
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    Counter counter(String name);
+
+    /**
+     * Get a timer.
+     *
+     * @param name The name of the timer.
+     * @return The timer.
+     */
+    Timer timer(String name);
+
+    /**
+     * Get a histogram.
+     *
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Get a registry that discards every metric.
+     *
+     * @return The registry.
+     */
+    static MetricsRegistry noop() {
+        return NoopMetricsRegistry.INSTANCE;
+    }
+}
@@ -17,6 +17,7 @@
 package com.cedarpolicy.model;
 
 import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.value.PersistentMap;
 import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashMap;
@@ -45,7 +46,10 @@ public class AuthorizationRequest {
     @JsonProperty("resource")
     public final Optional<String> resourceEUID;
 
-    /** Key/Value map representing the context of the query. */
+    /**
+     * Key/Value map representing the context of the query. A {@link PersistentMap} passed to the
+     * constructor is kept as is, so it can be shared between requests; other maps are copied.
+     */
     public final Map<String, Value> context;
 
     /** JSON object representing the Schema. */
@@ -69,11 +73,7 @@ public class AuthorizationRequest {
         this.principalEUID = principalEUID;
         this.actionEUID = actionEUID;
         this.resourceEUID = resourceEUID;
-        if (context == null) {
-            this.context = new HashMap<>();
-        } else {
-            this.context = new HashMap<>(context);
-        }
+        this.context = copyContext(context);
         this.schema = schema;
     }
 
@@ -107,11 +107,7 @@ public class AuthorizationRequest {
         this.principalEUID = Optional.of(principalEUID);
         this.actionEUID = actionEUID;
         this.resourceEUID = Optional.of(resourceEUID);
-        if (context == null) {
-            this.context = new HashMap<>();
-        } else {
-            this.context = new HashMap<>(context);
-        }
+        this.context = copyContext(context);
         this.schema = schema;
     }
 
@@ -136,4 +132,11 @@ public class AuthorizationRequest {
     public String toString() {
         return "Query(" + principalEUID + ",\t" + actionEUID + ",\t" + resourceEUID + ")";
     }
+
+    private static Map<String, Value> copyContext(Map<String, Value> context) {
+        if (context == null) {
+            return new HashMap<>();
+        }
+        return context instanceof PersistentMap ? context : new HashMap<>(context);
+    }
 }
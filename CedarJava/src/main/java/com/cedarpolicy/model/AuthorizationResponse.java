@@ -70,6 +70,26 @@ public final class AuthorizationResponse {
             this.errors = errors;
             this.reason = reason;
         }
+
+        /**
+         * Get the policies that caused the decision.
+         *
+         * @return Set of policy IDs.
+         */
+        @SuppressFBWarnings
+        public Set<String> getReason() {
+            return reason;
+        }
+
+        /**
+         * Get the errors and warnings returned by Cedar.
+         *
+         * @return List of errors.
+         */
+        @SuppressFBWarnings
+        public List<String> getErrors() {
+            return errors;
+        }
     }
 
     /**
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The result of partially evaluating an AuthorizationQuery whose principal, action or resource was
+ * left out. Whatever is left out is treated as unknown. If the policies reach the same decision
+ * whatever the unknowns are, the response has that decision and no residuals. Otherwise it has no
+ * decision, and the residuals hold, for each policy that still depends on an unknown, the part of
+ * the policy that remains to be evaluated once the unknowns are known.
+ *
+ * <p>For example, asking which resources a principal may view leaves the resource unknown, and the
+ * residuals are the conditions a resource must meet. A list view can translate them into a filter
+ * instead of making one authorization query per item.
+ */
+public final class PartialAuthorizationResponse {
+    private final AuthorizationResponse.Decision decision;
+    private final Map<String, String> residuals;
+    private final AuthorizationResponse.Diagnostics diagnostics;
+
+    /**
+     * Construct a partial authorization result.
+     *
+     * @param decision The decision, or null if it depends on the unknowns.
+     * @param residuals Map from policy ID to residual policy source.
+     * @param diagnostics The reasons and errors from the evaluation.
+     */
+    @JsonCreator
+    @SuppressFBWarnings
+    public PartialAuthorizationResponse(
+            @JsonProperty("decision") AuthorizationResponse.Decision decision,
+            @JsonProperty("residuals") Map<String, String> residuals,
+            @JsonProperty("diagnostics") AuthorizationResponse.Diagnostics diagnostics) {
+        this.decision = decision;
+        this.residuals = residuals == null ? Collections.emptyMap() : residuals;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * The decision, if the policies reach the same one whatever the unknowns are.
+     *
+     * @return The decision, or empty if there are residuals.
+     */
+    public Optional<AuthorizationResponse.Decision> getDecision() {
+        return Optional.ofNullable(decision);
+    }
+
+    /**
+     * The residual policies.
+     *
+     * @return Map from policy ID to the part of the policy that remains to be evaluated. Empty if
+     *     there is a decision.
+     */
+    @SuppressFBWarnings
+    public Map<String, String> getResiduals() {
+        return residuals;
+    }
+
+    /**
+     * Set of policyID's that caused the decision, if there is one.
+     *
+     * @return list with the policy ids that contributed to the decision
+     */
+    public Set<String> getReasons() {
+        return diagnostics.getReason();
+    }
+
+    /**
+     * Set of errors and warnings returned by Cedar.
+     *
+     * @return list with errors that happened while evaluating the query
+     */
+    public List<String> getErrors() {
+        return diagnostics.getErrors();
+    }
+
+    /**
+     * Check whether the query was decided without knowing the unknowns.
+     *
+     * @return true if there is a decision and no residuals.
+     */
+    public boolean reachedDecision() {
+        return decision != null;
+    }
+}
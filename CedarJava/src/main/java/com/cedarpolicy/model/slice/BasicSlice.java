@@ -27,13 +27,14 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * A basic implementation of the Slice interface that holds the policies, attributes, and parents
- * maps in memory.
+ * A basic implementation of the Slice interface that holds the policies and entities in memory.
+ * The attributes and parents maps are built from the entities the first time they are asked for,
+ * since serializing the slice does not need them.
  */
 public class BasicSlice implements Slice {
     private final Map<String, String> policies;
-    private final Map<String, Map<String, Value>> attributes;
-    private final Map<String, List<String>> parents;
+    private volatile Map<String, Map<String, Value>> attributes;
+    private volatile Map<String, List<String>> parents;
 
     private final Set<Entity> entities;
 
@@ -55,17 +56,6 @@ public class BasicSlice implements Slice {
         for (Policy p : policies) {
             this.policies.put(p.policyID, p.policySrc);
         }
-        HashMap<String, Map<String, Value>> attributes = new HashMap<>();
-        HashMap<String, List<String>> parents = new HashMap<>();
-
-        for (Entity entity : entities) {
-            attributes.put(entity.uid, entity.attrs);
-            List<String> parentList = new ArrayList<>(entity.parents);
-            parents.put(entity.uid, parentList);
-        }
-
-        this.attributes = attributes;
-        this.parents = parents;
 
         this.entities = entities;
         this.templatePolicies = new HashMap<String, String>();
@@ -92,17 +82,6 @@ public class BasicSlice implements Slice {
         for (Policy p : policies) {
             this.policies.put(p.policyID, p.policySrc);
         }
-        HashMap<String, Map<String, Value>> attributes = new HashMap<>();
-        HashMap<String, List<String>> parents = new HashMap<>();
-
-        for (Entity entity : entities) {
-            attributes.put(entity.uid, entity.attrs);
-            List<String> parentList = new ArrayList<>(entity.parents);
-            parents.put(entity.uid, parentList);
-        }
-
-        this.attributes = attributes;
-        this.parents = parents;
         this.entities = entities;
 
         this.templatePolicies =
@@ -119,12 +98,28 @@ public class BasicSlice implements Slice {
     @Override
     @SuppressFBWarnings
     public Map<String, Map<String, Value>> getAttributes() {
+        Map<String, Map<String, Value>> attributes = this.attributes;
+        if (attributes == null) {
+            attributes = new HashMap<>();
+            for (Entity entity : entities) {
+                attributes.put(entity.uid, entity.attrs);
+            }
+            this.attributes = attributes;
+        }
         return attributes;
     }
 
     @Override
     @SuppressFBWarnings
     public Map<String, List<String>> getParents() {
+        Map<String, List<String>> parents = this.parents;
+        if (parents == null) {
+            parents = new HashMap<>();
+            for (Entity entity : entities) {
+                parents.put(entity.uid, new ArrayList<>(entity.parents));
+            }
+            this.parents = parents;
+        }
         return parents;
     }
 
@@ -152,9 +147,9 @@ public class BasicSlice implements Slice {
                 + "policies="
                 + policies
                 + ", attributes="
-                + attributes
+                + getAttributes()
                 + ", parents="
-                + parents
+                + getParents()
                 + '}';
     }
 }
@@ -16,6 +16,7 @@
 
 package com.cedarpolicy.model.slice;
 
+import com.cedarpolicy.value.PersistentMap;
 import com.cedarpolicy.value.Value;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,7 +34,10 @@ public class Entity {
     /** EUID of this entity object. */
     public final String uid;
 
-    /** Key/Value attribute map. */
+    /**
+     * Key/Value attribute map. A {@link PersistentMap} passed to the constructor is kept as is, so
+     * it can be shared between entities; other maps are copied.
+     */
     public final Map<String, Value> attrs;
 
     /** Set of entity EUIDs that are parents to this entity. */
@@ -48,7 +52,7 @@ public class Entity {
      */
     public Entity(String uid, Map<String, Value> attributes, Set<String> parents) {
         this.uid = uid;
-        this.attrs = new HashMap<>(attributes);
+        this.attrs = attributes instanceof PersistentMap ? attributes : new HashMap<>(attributes);
         this.parents = parents;
     }
 
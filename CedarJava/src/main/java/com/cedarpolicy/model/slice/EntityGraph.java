@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.slice;
+
+import com.cedarpolicy.value.Value;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An entity hierarchy that keeps the ancestors of every entity up to date as entities and parent
+ * edges are added and removed, so the transitive closure is never computed from scratch.
+ *
+ * <p>{@link #toEntities()} returns the entities with every ancestor listed as a parent. Cedar gives
+ * the same answers for a hierarchy and its transitive closure, and a closed hierarchy lets
+ * ancestor lookups such as <code>principal in Role::"admin"</code> be answered from one entity's
+ * parents, however deep the chain of roles is.
+ *
+ * <p>Entity UIDs are compared ignoring whitespace between the type and the ID. A parent does not
+ * have to be in the graph; it is an ancestor all the same, and its own parents are picked up if it
+ * is added later. The hierarchy must stay acyclic: an edit that would create a cycle is rejected
+ * with an {@link IllegalArgumentException}. Instances are thread-safe.
+ */
+public final class EntityGraph {
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    /** An entity, or a UID only known as the parent of one. */
+    private static final class Node {
+        final String uid;
+        Map<String, Value> attrs;
+        boolean present;
+        final Set<String> parents = new LinkedHashSet<>();
+        final Set<String> children = new HashSet<>();
+        Set<String> ancestors = new HashSet<>();
+
+        Node(String uid) {
+            this.uid = uid;
+        }
+    }
+
+    /** Create an empty graph. */
+    public EntityGraph() {}
+
+    /**
+     * Create a graph of the given entities.
+     *
+     * @param entities The entities.
+     */
+    public EntityGraph(Iterable<Entity> entities) {
+        for (Entity entity : entities) {
+            put(entity);
+        }
+    }
+
+    /**
+     * Add an entity, or replace the attributes and parents of an entity already in the graph.
+     *
+     * @param entity The entity.
+     */
+    public synchronized void put(Entity entity) {
+        final String uid = PolicyScope.canonical(entity.uid);
+        final Set<String> parents = new LinkedHashSet<>();
+        for (String parent : entity.parents) {
+            parents.add(PolicyScope.canonical(parent));
+        }
+        for (String parent : parents) {
+            checkAcyclic(uid, parent);
+        }
+        final Node node = node(uid);
+        for (String parent : new ArrayList<>(node.parents)) {
+            if (!parents.contains(parent)) {
+                unlink(node, parent);
+            }
+        }
+        for (String parent : parents) {
+            link(node, parent);
+        }
+        node.attrs = new HashMap<>(entity.attrs);
+        node.present = true;
+    }
+
+    /**
+     * Remove an entity. Its children keep it as a parent, but no longer inherit its ancestors.
+     *
+     * @param uid The UID of the entity.
+     * @return Whether the entity was in the graph.
+     */
+    public synchronized boolean remove(String uid) {
+        final Node node = nodes.get(PolicyScope.canonical(uid));
+        if (node == null || !node.present) {
+            return false;
+        }
+        for (String parent : new ArrayList<>(node.parents)) {
+            unlink(node, parent);
+        }
+        node.attrs = null;
+        node.present = false;
+        forgetIfUnused(node);
+        return true;
+    }
+
+    /**
+     * Make <code>parent</code> a parent of the entity <code>child</code>.
+     *
+     * @param child The UID of an entity in the graph.
+     * @param parent The UID of the new parent.
+     * @throws IllegalArgumentException If <code>child</code> is not in the graph, or the edge would
+     *     create a cycle.
+     */
+    public synchronized void addParent(String child, String parent) {
+        final Node node = presentNode(child);
+        final String parentKey = PolicyScope.canonical(parent);
+        if (!node.parents.contains(parentKey)) {
+            checkAcyclic(node.uid, parentKey);
+            link(node, parentKey);
+        }
+    }
+
+    /**
+     * Remove <code>parent</code> from the parents of the entity <code>child</code>.
+     *
+     * @param child The UID of an entity in the graph.
+     * @param parent The UID of the parent.
+     * @return Whether <code>parent</code> was a parent of <code>child</code>.
+     * @throws IllegalArgumentException If <code>child</code> is not in the graph.
+     */
+    public synchronized boolean removeParent(String child, String parent) {
+        final Node node = presentNode(child);
+        final String parentKey = PolicyScope.canonical(parent);
+        if (!node.parents.contains(parentKey)) {
+            return false;
+        }
+        unlink(node, parentKey);
+        return true;
+    }
+
+    /**
+     * Get the ancestors of an entity: its parents, their parents, and so on.
+     *
+     * @param uid The UID of the entity.
+     * @return The UIDs of its ancestors; empty if the entity is not in the graph.
+     */
+    public synchronized Set<String> ancestors(String uid) {
+        final Node node = nodes.get(PolicyScope.canonical(uid));
+        return node == null ? Collections.emptySet() : Set.copyOf(node.ancestors);
+    }
+
+    /**
+     * Check whether an entity is in the graph.
+     *
+     * @param uid The UID of the entity.
+     * @return Whether it is.
+     */
+    public synchronized boolean contains(String uid) {
+        final Node node = nodes.get(PolicyScope.canonical(uid));
+        return node != null && node.present;
+    }
+
+    /**
+     * Get the entities in the graph with every ancestor listed as a parent.
+     *
+     * @return The entities, with transitively closed parents.
+     */
+    public synchronized Set<Entity> toEntities() {
+        final Set<Entity> entities = new HashSet<>();
+        for (Node node : nodes.values()) {
+            if (node.present) {
+                entities.add(new Entity(node.uid, node.attrs, new HashSet<>(node.ancestors)));
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Get the number of entities in the graph.
+     *
+     * @return The number of entities.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Node node : nodes.values()) {
+            if (node.present) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private Node node(String uid) {
+        return nodes.computeIfAbsent(uid, Node::new);
+    }
+
+    private Node presentNode(String uid) {
+        final Node node = nodes.get(PolicyScope.canonical(uid));
+        if (node == null || !node.present) {
+            throw new IllegalArgumentException("No entity " + uid + " in the graph");
+        }
+        return node;
+    }
+
+    private void checkAcyclic(String child, String parent) {
+        final Node parentNode = nodes.get(parent);
+        if (parent.equals(child) || (parentNode != null && parentNode.ancestors.contains(child))) {
+            throw new IllegalArgumentException(
+                    "Making " + parent + " a parent of " + child + " would create a cycle");
+        }
+    }
+
+    /** Add an edge and the new ancestors it brings to the child and all its descendants. */
+    private void link(Node child, String parent) {
+        if (!child.parents.add(parent)) {
+            return;
+        }
+        final Node parentNode = node(parent);
+        parentNode.children.add(child.uid);
+        final Set<String> inherited = new HashSet<>(parentNode.ancestors);
+        inherited.add(parent);
+        for (Node node : selfAndDescendants(child)) {
+            node.ancestors.addAll(inherited);
+        }
+    }
+
+    /**
+     * Remove an edge, then recompute the ancestors of the child and all its descendants from their
+     * parents, parents before children.
+     */
+    private void unlink(Node child, String parent) {
+        child.parents.remove(parent);
+        final Node parentNode = nodes.get(parent);
+        parentNode.children.remove(child.uid);
+        forgetIfUnused(parentNode);
+        for (Node node : topologicalOrder(selfAndDescendants(child))) {
+            final Set<String> ancestors = new HashSet<>();
+            for (String p : node.parents) {
+                ancestors.add(p);
+                ancestors.addAll(nodes.get(p).ancestors);
+            }
+            node.ancestors = ancestors;
+        }
+    }
+
+    private List<Node> selfAndDescendants(Node root) {
+        final List<Node> found = new ArrayList<>();
+        final Set<String> seen = new HashSet<>();
+        final Deque<Node> pending = new ArrayDeque<>();
+        seen.add(root.uid);
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            final Node node = pending.remove();
+            found.add(node);
+            for (String child : node.children) {
+                if (seen.add(child)) {
+                    pending.add(nodes.get(child));
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Order nodes so that each comes after all of its parents among them. */
+    private List<Node> topologicalOrder(List<Node> affected) {
+        final Map<String, Integer> waitingOn = new HashMap<>();
+        for (Node node : affected) {
+            waitingOn.put(node.uid, 0);
+        }
+        for (Node node : affected) {
+            for (String parent : node.parents) {
+                if (waitingOn.containsKey(parent)) {
+                    waitingOn.merge(node.uid, 1, Integer::sum);
+                }
+            }
+        }
+        final List<Node> order = new ArrayList<>(affected.size());
+        final Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : affected) {
+            if (waitingOn.get(node.uid) == 0) {
+                ready.add(node);
+            }
+        }
+        while (!ready.isEmpty()) {
+            final Node node = ready.remove();
+            order.add(node);
+            for (String child : node.children) {
+                if (waitingOn.containsKey(child) && waitingOn.merge(child, -1, Integer::sum) == 0) {
+                    ready.add(nodes.get(child));
+                }
+            }
+        }
+        return order;
+    }
+
+    private void forgetIfUnused(Node node) {
+        if (!node.present && node.children.isEmpty() && node.parents.isEmpty()) {
+            nodes.remove(node.uid);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.slice;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An index of the policies in a slice by their scope, used to send Cedar only the policies that
+ * could apply to a request. A policy whose head is <code>permit(principal == User::"alice",
+ * action, resource)</code> cannot apply to a request from <code>User::"bob"</code>, so leaving it
+ * out of the slice cannot change the decision, but saves Cedar parsing and evaluating it.
+ *
+ * <p>Policies are indexed by the entities their principal, action and resource constraints name.
+ * For an <code>==</code> constraint a request must name that entity; for an <code>in</code>
+ * constraint it must name that entity or one of its descendants in the slice's entity hierarchy.
+ * Selection is conservative: a part of the request that cannot be compared as text, such as a
+ * missing principal or an ID with escape sequences, does not prune anything, and neither do action
+ * constraints when the request has a schema, since the schema may define action groups of its own.
+ * Templates and template instantiations are always kept.
+ *
+ * <p>The decision is unchanged only if every policy in the slice parses; a policy with a syntax
+ * error makes Cedar fail the whole request, and leaving it out would hide that error.
+ *
+ * <p>The index is built once per slice and is immutable, so it can be shared between threads. The
+ * slice must not change after the index is built.
+ */
+public final class PolicyIndex {
+    private final Slice slice;
+    /** The parents of each entity in normalized form, or null if they cannot all be compared. */
+    private final Map<String, List<String>> parents;
+    private final DimensionIndex principals = new DimensionIndex();
+    private final DimensionIndex actions = new DimensionIndex();
+    private final DimensionIndex resources = new DimensionIndex();
+
+    /**
+     * Index the policies of a slice.
+     *
+     * @param slice The slice.
+     */
+    public PolicyIndex(Slice slice) {
+        this.slice = slice;
+        this.parents = normalizedParents(slice);
+        for (Map.Entry<String, String> policy : slice.getPolicies().entrySet()) {
+            final PolicyScope scope = PolicyScope.parse(policy.getValue());
+            principals.add(policy.getKey(), scope.principal);
+            actions.add(policy.getKey(), scope.action);
+            resources.add(policy.getKey(), scope.resource);
+        }
+    }
+
+    /**
+     * Select the IDs of the policies whose scope could match a request.
+     *
+     * @param q The request.
+     * @return The IDs of the policies that could apply to the request.
+     */
+    public Set<String> candidatePolicies(AuthorizationRequest q) {
+        Set<String> candidates = null;
+        candidates = intersect(candidates, principals.matching(q.principalEUID));
+        if (q.schema.isEmpty()) {
+            candidates = intersect(candidates, actions.matching(Optional.of(q.actionEUID)));
+        }
+        candidates = intersect(candidates, resources.matching(q.resourceEUID));
+        return candidates == null ? new HashSet<>(slice.getPolicies().keySet()) : candidates;
+    }
+
+    /**
+     * Build a slice with only the policies whose scope could match a request. Cedar reaches the
+     * same decision for the request against it as against the whole slice.
+     *
+     * @param q The request.
+     * @return A slice with the same entities, templates and template instantiations, and the
+     *     policies that could apply to the request.
+     */
+    public Slice sliceFor(AuthorizationRequest q) {
+        final Set<String> candidates = candidatePolicies(q);
+        if (candidates.size() == slice.getPolicies().size()) {
+            return slice;
+        }
+        final Map<String, String> policies = new HashMap<>();
+        for (String id : candidates) {
+            policies.put(id, slice.getPolicies().get(id));
+        }
+        return new PrunedSlice(slice, policies);
+    }
+
+    private static Set<String> intersect(Set<String> candidates, Set<String> matching) {
+        if (matching == null) {
+            return candidates;
+        }
+        if (candidates == null) {
+            return matching;
+        }
+        candidates.retainAll(matching);
+        return candidates;
+    }
+
+    /** The entities one of the principal, action or resource of each policy is constrained to. */
+    private final class DimensionIndex {
+        private final List<String> unconstrained = new ArrayList<>();
+        private final Map<String, List<String>> equal = new HashMap<>();
+        private final Map<String, List<String>> in = new HashMap<>();
+
+        void add(String policyId, PolicyScope.Constraint constraint) {
+            switch (constraint.op) {
+                case EQ:
+                    for (String entity : constraint.entities) {
+                        equal.computeIfAbsent(entity, e -> new ArrayList<>()).add(policyId);
+                    }
+                    break;
+                case IN:
+                    for (String entity : constraint.entities) {
+                        in.computeIfAbsent(entity, e -> new ArrayList<>()).add(policyId);
+                    }
+                    break;
+                default:
+                    unconstrained.add(policyId);
+            }
+        }
+
+        /**
+         * The policies that could match an entity, or null if the entity cannot be compared and
+         * every policy could.
+         */
+        Set<String> matching(Optional<String> euid) {
+            if (equal.isEmpty() && in.isEmpty()) {
+                return null;
+            }
+            final String entity = euid.map(PolicyScope::normalize).orElse(null);
+            if (entity == null) {
+                return null;
+            }
+            final Set<String> matching = new HashSet<>(unconstrained);
+            addAll(matching, equal.get(entity));
+            if (!in.isEmpty()) {
+                final Set<String> ancestors = selfAndAncestors(entity);
+                if (ancestors == null) {
+                    return null;
+                }
+                for (String ancestor : ancestors) {
+                    addAll(matching, in.get(ancestor));
+                }
+            }
+            return matching;
+        }
+
+        private void addAll(Set<String> matching, Collection<String> policies) {
+            if (policies != null) {
+                matching.addAll(policies);
+            }
+        }
+    }
+
+    /**
+     * The entity and its ancestors in the slice, or null if one of them cannot be compared as
+     * text.
+     */
+    private Set<String> selfAndAncestors(String entity) {
+        if (parents == null) {
+            return null;
+        }
+        final Set<String> seen = new HashSet<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        seen.add(entity);
+        pending.add(entity);
+        while (!pending.isEmpty()) {
+            for (String parent : parents.getOrDefault(pending.remove(), List.of())) {
+                if (seen.add(parent)) {
+                    pending.add(parent);
+                }
+            }
+        }
+        return seen;
+    }
+
+    /** The parents of each entity, keyed and listed in normalized form; null if any fail. */
+    private static Map<String, List<String>> normalizedParents(Slice slice) {
+        final Map<String, List<String>> parents = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : slice.getParents().entrySet()) {
+            final String child = PolicyScope.normalize(entry.getKey());
+            if (child == null) {
+                return null;
+            }
+            final List<String> normalized = new ArrayList<>(entry.getValue().size());
+            for (String parent : entry.getValue()) {
+                final String p = PolicyScope.normalize(parent);
+                if (p == null) {
+                    return null;
+                }
+                normalized.add(p);
+            }
+            parents.computeIfAbsent(child, c -> new ArrayList<>()).addAll(normalized);
+        }
+        return parents;
+    }
+}
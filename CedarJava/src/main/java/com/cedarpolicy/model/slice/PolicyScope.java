@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.slice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The scope of a policy: the constraints on the principal, action and resource in the head of the
+ * policy, such as <code>principal == User::"alice"</code> or <code>action in [Action::"view",
+ * Action::"edit"]</code>. Read from the policy source without parsing the rest of the policy.
+ *
+ * <p>Reading a scope never fails. A policy whose head cannot be read, or that names an entity
+ * whose ID has escape sequences, gets an unconstrained scope for that part, so it is never left
+ * out of a slice it could apply to.
+ */
+final class PolicyScope {
+    /** How one part of the scope is constrained. */
+    enum Op {
+        /** No constraint, such as a bare <code>principal</code>. */
+        ANY,
+        /** <code>==</code> an entity. */
+        EQ,
+        /** <code>in</code> an entity, or any of a list of entities. */
+        IN
+    }
+
+    /** The constraint on one of the principal, action and resource. */
+    static final class Constraint {
+        static final Constraint ANY = new Constraint(Op.ANY, Collections.emptyList());
+
+        final Op op;
+        final List<String> entities;
+
+        Constraint(Op op, List<String> entities) {
+            this.op = op;
+            this.entities = entities;
+        }
+    }
+
+    static final PolicyScope UNCONSTRAINED =
+            new PolicyScope(Constraint.ANY, Constraint.ANY, Constraint.ANY);
+
+    final Constraint principal;
+    final Constraint action;
+    final Constraint resource;
+
+    private PolicyScope(Constraint principal, Constraint action, Constraint resource) {
+        this.principal = principal;
+        this.action = action;
+        this.resource = resource;
+    }
+
+    /**
+     * Read the scope of a policy.
+     *
+     * @param policySrc Source of a single static policy.
+     * @return The scope, or {@link #UNCONSTRAINED} if the head of the policy cannot be read.
+     */
+    static PolicyScope parse(String policySrc) {
+        try {
+            return new Parser(policySrc).scope();
+        } catch (IllegalArgumentException e) {
+            return UNCONSTRAINED;
+        }
+    }
+
+    /**
+     * Put an entity UID in the form the scope uses, <code>Type::"id"</code> with no whitespace.
+     *
+     * @param euid The entity UID.
+     * @return The entity UID, or null if it cannot be read or its ID has escape sequences, in which
+     *     case it cannot be compared as text.
+     */
+    static String normalize(String euid) {
+        try {
+            Parser parser = new Parser(euid);
+            String normalized = parser.entity();
+            parser.skipSpace();
+            return parser.atEnd() ? normalized : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Put an entity UID in the form used to compare it: normalized if possible, and otherwise as
+     * written.
+     *
+     * @param euid The entity UID.
+     * @return The entity UID to compare.
+     */
+    static String canonical(String euid) {
+        final String normalized = normalize(euid);
+        return normalized != null ? normalized : euid.trim();
+    }
+
+    /** Reads just enough of the Cedar grammar to get through a policy head. */
+    private static final class Parser {
+        private final String src;
+        private int pos;
+
+        Parser(String src) {
+            this.src = src;
+        }
+
+        PolicyScope scope() {
+            skipAnnotations();
+            String effect = identifier();
+            if (!effect.equals("permit") && !effect.equals("forbid")) {
+                throw new IllegalArgumentException(effect);
+            }
+            expect('(');
+            Constraint principal = constraint("principal", false);
+            expect(',');
+            Constraint action = constraint("action", true);
+            expect(',');
+            Constraint resource = constraint("resource", false);
+            expect(')');
+            return new PolicyScope(principal, action, resource);
+        }
+
+        private void skipAnnotations() {
+            skipSpace();
+            while (peek() == '@') {
+                pos++;
+                identifier();
+                expect('(');
+                string();
+                expect(')');
+                skipSpace();
+            }
+        }
+
+        private Constraint constraint(String variable, boolean allowList) {
+            if (!identifier().equals(variable)) {
+                throw new IllegalArgumentException(variable);
+            }
+            skipSpace();
+            if (peek() == '=' && peekAt(1) == '=') {
+                pos += 2;
+                return escapable(Op.EQ, Collections.singletonList(entity()));
+            }
+            if (peek() == ',' || peek() == ')') {
+                return Constraint.ANY;
+            }
+            if (!identifier().equals("in")) {
+                throw new IllegalArgumentException(variable);
+            }
+            skipSpace();
+            if (!allowList || peek() != '[') {
+                return escapable(Op.IN, Collections.singletonList(entity()));
+            }
+            pos++;
+            List<String> entities = new ArrayList<>();
+            skipSpace();
+            while (peek() != ']') {
+                entities.add(entity());
+                skipSpace();
+                if (peek() == ',') {
+                    pos++;
+                    skipSpace();
+                }
+            }
+            pos++;
+            return escapable(Op.IN, entities);
+        }
+
+        /** A constraint naming an entity that cannot be compared as text matches everything. */
+        private static Constraint escapable(Op op, List<String> entities) {
+            return entities.contains(null) ? Constraint.ANY : new Constraint(op, entities);
+        }
+
+        /** Read <code>Path::"id"</code>; null if the ID has escape sequences. */
+        String entity() {
+            StringBuilder path = new StringBuilder(identifier());
+            while (true) {
+                expect(':');
+                if (peek() != ':') {
+                    throw new IllegalArgumentException("expected ::");
+                }
+                pos++;
+                skipSpace();
+                if (peek() == '"') {
+                    String id = string();
+                    return id.indexOf('\\') >= 0 ? null : path + "::\"" + id + "\"";
+                }
+                path.append("::").append(identifier());
+            }
+        }
+
+        private String identifier() {
+            skipSpace();
+            int start = pos;
+            while (pos < src.length()
+                    && (Character.isLetterOrDigit(src.charAt(pos)) || src.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos || Character.isDigit(src.charAt(start))) {
+                throw new IllegalArgumentException("expected an identifier at " + start);
+            }
+            return src.substring(start, pos);
+        }
+
+        /** Read a string literal, returning its contents with escape sequences left as written. */
+        private String string() {
+            expect('"');
+            int start = pos;
+            while (peek() != '"') {
+                if (peek() == '\\') {
+                    pos++;
+                }
+                pos++;
+            }
+            return src.substring(start, pos++);
+        }
+
+        private void expect(char c) {
+            skipSpace();
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected " + c + " at " + pos);
+            }
+            pos++;
+        }
+
+        void skipSpace() {
+            while (pos < src.length()) {
+                if (Character.isWhitespace(src.charAt(pos))) {
+                    pos++;
+                } else if (src.startsWith("//", pos)) {
+                    int end = src.indexOf('\n', pos);
+                    pos = end < 0 ? src.length() : end + 1;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        boolean atEnd() {
+            return pos >= src.length();
+        }
+
+        private char peek() {
+            return peekAt(0);
+        }
+
+        private char peekAt(int offset) {
+            if (pos + offset >= src.length()) {
+                throw new IllegalArgumentException("unexpected end of policy");
+            }
+            return src.charAt(pos + offset);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.slice;
+
+import com.cedarpolicy.value.Value;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** A slice with some of the policies of another, sharing everything else with it. */
+final class PrunedSlice implements Slice {
+    private final Slice slice;
+    private final Map<String, String> policies;
+
+    PrunedSlice(Slice slice, Map<String, String> policies) {
+        this.slice = slice;
+        this.policies = Collections.unmodifiableMap(policies);
+    }
+
+    @Override
+    public Map<String, String> getPolicies() {
+        return policies;
+    }
+
+    @Override
+    public Map<String, Map<String, Value>> getAttributes() {
+        return slice.getAttributes();
+    }
+
+    @Override
+    public Map<String, List<String>> getParents() {
+        return slice.getParents();
+    }
+
+    @Override
+    @SuppressFBWarnings
+    public Set<Entity> getEntities() {
+        return slice.getEntities();
+    }
+
+    @Override
+    public Map<String, String> getTemplates() {
+        return slice.getTemplates();
+    }
+
+    @Override
+    public List<TemplateInstantiation> getTemplateInstantiations() {
+        return slice.getTemplateInstantiations();
+    }
+
+    @Override
+    public String toString() {
+        return "PrunedSlice{policies=" + policies.keySet() + ", slice=" + slice + '}';
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.model.slice;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.Value;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds slices with only the entities a request can reach, out of an entity graph too large to
+ * send with every request.
+ *
+ * <p>Cedar can only read an entity that the request or the policies lead it to. The reachable
+ * entities start from the principal, action and resource of the request, the entity UIDs in its
+ * context, and the entity UIDs written in the policies, templates and template instantiations.
+ * From each reachable entity, its parents and the entity UIDs in its attributes (including inside
+ * sets and records) are reachable too. Entities outside this closure cannot affect the decision.
+ *
+ * <p>Entity UIDs are matched as written, ignoring whitespace between the type and the ID, so an
+ * entity must be referred to the same way everywhere. The builder is immutable and can be shared
+ * between threads; build a new one when the entities change.
+ */
+public final class ReachableSliceBuilder {
+    /** An entity UID literal: a type path, <code>::</code> and a quoted ID. */
+    private static final Pattern ENTITY_LITERAL =
+            Pattern.compile(
+                    "[A-Za-z_][A-Za-z0-9_]*(?:\\s*::\\s*[A-Za-z_][A-Za-z0-9_]*)*\\s*::\\s*"
+                            + "\"(?:[^\"\\\\]|\\\\.)*\"");
+
+    private final Map<String, Entity> entities;
+
+    /**
+     * Index an entity graph.
+     *
+     * @param entities Every entity requests may need.
+     */
+    public ReachableSliceBuilder(Collection<Entity> entities) {
+        final Map<String, Entity> index = new HashMap<>();
+        for (Entity entity : entities) {
+            index.put(PolicyScope.canonical(entity.uid), entity);
+        }
+        this.entities = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Build a slice with the given policies and the entities a request can reach from them.
+     *
+     * @param q The request.
+     * @param policies The policies.
+     * @return A slice with the policies and the reachable entities.
+     */
+    public Slice sliceFor(AuthorizationRequest q, Set<Policy> policies) {
+        return sliceFor(q, policies, Collections.emptySet(), Collections.emptyList());
+    }
+
+    /**
+     * Build a slice with the given policies, templates and template instantiations, and the
+     * entities a request can reach from them.
+     *
+     * @param q The request.
+     * @param policies The policies.
+     * @param templates The policy templates.
+     * @param templateInstantiations The template instantiations.
+     * @return A slice with the policies, templates, instantiations and the reachable entities.
+     */
+    public Slice sliceFor(
+            AuthorizationRequest q,
+            Set<Policy> policies,
+            Set<Policy> templates,
+            List<TemplateInstantiation> templateInstantiations) {
+        final Traversal traversal = new Traversal();
+        q.principalEUID.ifPresent(traversal::visit);
+        traversal.visit(q.actionEUID);
+        q.resourceEUID.ifPresent(traversal::visit);
+        for (Value value : q.context.values()) {
+            traversal.visit(value);
+        }
+        for (Policy policy : policies) {
+            traversal.visitLiterals(policy.policySrc);
+        }
+        for (Policy template : templates) {
+            traversal.visitLiterals(template.policySrc);
+        }
+        for (TemplateInstantiation link : templateInstantiations) {
+            for (Instantiation slot : link.instantiations) {
+                traversal.visit(slot.value.ty + "::\"" + slot.value.eid + "\"");
+            }
+        }
+        return new BasicSlice(policies, traversal.run(), templates, templateInstantiations);
+    }
+
+    /**
+     * The number of entities in the graph.
+     *
+     * @return The number of entities.
+     */
+    public int size() {
+        return entities.size();
+    }
+
+    /** A breadth-first walk of the entity graph from the roots of one request. */
+    private final class Traversal {
+        private final Set<String> seen = new HashSet<>();
+        private final Deque<Entity> pending = new ArrayDeque<>();
+        private final Set<Entity> reached = new HashSet<>();
+
+        void visit(String euid) {
+            final String key = PolicyScope.canonical(euid);
+            if (seen.add(key)) {
+                final Entity entity = entities.get(key);
+                if (entity != null) {
+                    reached.add(entity);
+                    pending.add(entity);
+                }
+            }
+        }
+
+        void visit(Value value) {
+            if (value instanceof EntityUID) {
+                visit(value.toString());
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    visit((Value) element);
+                }
+            } else if (value instanceof Map) {
+                for (Object element : ((Map<?, ?>) value).values()) {
+                    visit((Value) element);
+                }
+            }
+        }
+
+        void visitLiterals(String policySrc) {
+            final Matcher matcher = ENTITY_LITERAL.matcher(policySrc);
+            while (matcher.find()) {
+                visit(matcher.group());
+            }
+        }
+
+        Set<Entity> run() {
+            while (!pending.isEmpty()) {
+                final Entity entity = pending.remove();
+                for (String parent : entity.parents) {
+                    visit(parent);
+                }
+                for (Value value : entity.attrs.values()) {
+                    visit(value);
+                }
+            }
+            return reached;
+        }
+    }
+}
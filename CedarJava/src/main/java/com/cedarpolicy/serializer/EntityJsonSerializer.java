@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.serializer;
+
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.util.Map;
+
+/** Serialize an entity in the JSON format Cedar reads entities from. */
+public class EntityJsonSerializer extends JsonSerializer<Entity> {
+    private static final String ESCAPE_SEQ = "__expr";
+
+    /** Serialize an entity. */
+    @Override
+    public void serialize(
+            Entity entity, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+            throws IOException {
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeFieldName("uid");
+        writeEUID(entity.uid, jsonGenerator);
+        jsonGenerator.writeObjectFieldStart("attrs");
+        for (Map.Entry<String, Value> attr : entity.attrs.entrySet()) {
+            jsonGenerator.writeObjectField(attr.getKey(), attr.getValue());
+        }
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeArrayFieldStart("parents");
+        for (String parent : entity.parents) {
+            writeEUID(parent, jsonGenerator);
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.writeEndObject();
+    }
+
+    private static void writeEUID(String euid, JsonGenerator jsonGenerator) throws IOException {
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField(ESCAPE_SEQ, euid);
+        jsonGenerator.writeEndObject();
+    }
+}
@@ -18,18 +18,20 @@ package com.cedarpolicy.serializer;
 
 import com.cedarpolicy.model.slice.Entity;
 import com.cedarpolicy.model.slice.Slice;
-import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 
-/** Serialize a slice. */
+/**
+ * Serialize a slice. Policies, templates and entities are written straight to the generator as
+ * they are read from the slice, without building intermediate objects for Jackson to reflect over.
+ */
 public class SliceJsonSerializer extends JsonSerializer<Slice> {
+    private static final EntityJsonSerializer ENTITY_SERIALIZER = new EntityJsonSerializer();
 
     /** Serialize a slice. */
     @Override
@@ -37,40 +39,32 @@ public class SliceJsonSerializer extends JsonSerializer<Slice> {
             Slice slice, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
             throws IOException {
         jsonGenerator.writeStartObject();
-        jsonGenerator.writeObjectField("policies", slice.getPolicies());
-        jsonGenerator.writeObjectField(
-                "entities", convertEntitiesToJsonEntities(slice.getEntities()));
-        jsonGenerator.writeObjectField("templates", slice.getTemplates());
+        writePolicies("policies", slice.getPolicies(), jsonGenerator, serializerProvider);
+        jsonGenerator.writeArrayFieldStart("entities");
+        for (Entity entity : slice.getEntities()) {
+            ENTITY_SERIALIZER.serialize(entity, jsonGenerator, serializerProvider);
+        }
+        jsonGenerator.writeEndArray();
+        writePolicies("templates", slice.getTemplates(), jsonGenerator, serializerProvider);
         jsonGenerator.writeObjectField(
                 "template_instantiations", slice.getTemplateInstantiations());
         jsonGenerator.writeEndObject();
     }
 
-    private static class JsonEntity {
-        /** Entity uid for the entity. */
-        @SuppressFBWarnings public final JsonEUID uid;
-
-        /** Entity attributes, where the value string is a Cedar literal value. */
-        @SuppressFBWarnings public final Map<String, Value> attrs;
-
-        /** Set of direct parent entities of this entity. */
-        public final Set<JsonEUID> parents;
-
-        JsonEntity(Entity e) {
-            this.uid = new JsonEUID(e.uid);
-            this.attrs = e.attrs;
-            this.parents = new HashSet<JsonEUID>();
-            for (String parent : e.parents) {
-                this.parents.add(new JsonEUID(parent));
-            }
-        }
-    }
-
-    Set<JsonEntity> convertEntitiesToJsonEntities(Set<Entity> entities) {
-        Set<JsonEntity> ret = new HashSet<JsonEntity>();
-        for (Entity entity : entities) {
-            ret.add(new JsonEntity(entity));
+    private static void writePolicies(
+            String fieldName,
+            Map<String, String> policies,
+            JsonGenerator jsonGenerator,
+            SerializerProvider serializerProvider)
+            throws IOException {
+        final Map<String, String> ordered =
+                serializerProvider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                        ? new TreeMap<>(policies)
+                        : policies;
+        jsonGenerator.writeObjectFieldStart(fieldName);
+        for (Map.Entry<String, String> policy : ordered.entrySet()) {
+            jsonGenerator.writeStringField(policy.getKey(), policy.getValue());
         }
-        return ret;
+        jsonGenerator.writeEndObject();
     }
 }
@@ -27,111 +27,156 @@ import com.cedarpolicy.value.PrimLong;
 import com.cedarpolicy.value.PrimString;
 import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
 
-/** Deserialize Json to Value. */
+/**
+ * Deserialize Json to Value. Values are built as their tokens are read, in one pass, without
+ * reading them into a tree first.
+ */
 public class ValueCedarDeserializer extends JsonDeserializer<Value> {
     private static final String ESCAPE_SEQ =
             "__expr"; // Not depricated yet but should never be passed from Cedar
     private static final String ENTITY_ESCAPE_SEQ = "__entity";
     private static final String EXTENSION_ESCAPE_SEQ = "__extn";
 
-    private enum EscapeType {
-        ENTITY,
-        EXTENSION,
-        UNRECOGNIZED
-    }
-
     /** Deserialize Json to Value. */
     @Override
     public Value deserialize(JsonParser parser, DeserializationContext context) throws IOException {
-        final JsonNode node = parser.getCodec().readTree(parser);
-        final ObjectMapper mapper = (ObjectMapper) parser.getCodec();
-        if (node.canConvertToLong()) {
-            return new PrimLong(node.asLong());
-        } else if (node.isBoolean()) {
-            return new PrimBool(node.asBoolean());
-        } else if (node.isTextual()) {
-            return new PrimString(node.asText());
-        } else if (node.isArray()) {
-            CedarList myNode = new CedarList();
-            Iterator<JsonNode> iter = node.elements();
-            while (iter.hasNext()) {
-                myNode.add(mapper.treeToValue(iter.next(), Value.class));
-            }
-            return myNode;
-        } else if (node.isObject()) {
-            Iterator<Map.Entry<String, JsonNode>> iter = node.fields();
-            // Do two passes, one to check if it is an escaped entity or extension and a second to
-            // write into a
-            // map
-            EscapeType escapeType = EscapeType.UNRECOGNIZED;
-            int count = 0;
-            while (iter.hasNext()) {
-                count++;
-                Map.Entry<String, JsonNode> entry = iter.next();
-                if (entry.getKey().equals(ENTITY_ESCAPE_SEQ)) {
-                    escapeType = EscapeType.ENTITY;
-                } else if (entry.getKey().equals(EXTENSION_ESCAPE_SEQ)) {
-                    escapeType = EscapeType.EXTENSION;
-                } else if (!entry.getKey()
-                        .equals(ESCAPE_SEQ)) { // Not depricated yet, but we don't use this
-                    // internally anymore. Will just be treated as a map.
-                    throw new InvalidValueDeserializationException(
-                            "Use __entity or __extn: " + node.toString());
-                }
-            }
-            if (escapeType != EscapeType.UNRECOGNIZED) {
-                if (count == 1) {
-                    if (escapeType == EscapeType.ENTITY) {
-                        JsonNode val = node.get(ENTITY_ESCAPE_SEQ);
-                        if (!val.isTextual()) {
-                            throw new InvalidValueDeserializationException(
-                                    "Not textual node: " + node.toString());
-                        }
-                        return new EntityUID(val.textValue());
-                    } else {
-                        JsonNode val = node.get(EXTENSION_ESCAPE_SEQ);
-                        JsonNode fn = val.get("fn");
-                        if (!fn.isTextual()) {
-                            throw new InvalidValueDeserializationException(
-                                    "Not textual node: " + fn.toString());
-                        }
-                        JsonNode arg = val.get("arg");
-                        if (!arg.isTextual()) {
-                            throw new InvalidValueDeserializationException(
-                                    "Not textual node: " + arg.toString());
-                        }
+        if (parser.currentToken() == JsonToken.FIELD_NAME) {
+            return readObject(parser);
+        }
+        return read(parser);
+    }
 
-                        if (fn.textValue().equals("ip")) {
-                            return new IpAddress(arg.textValue());
-                        } else if (fn.textValue().equals("decimal")) {
-                            return new Decimal(arg.textValue());
-                        } else {
-                            throw new InvalidValueDeserializationException(
-                                    "Invalid function type: " + fn.toString());
-                        }
-                    }
-                } else {
-                    throw new InvalidValueDeserializationException(
-                            "More than one K,V pair with {__entity, __extn}: " + node.toString());
+    /** Read the value starting at the current token; null for a JSON null. */
+    private static Value read(JsonParser parser) throws IOException {
+        final JsonToken token = parser.currentToken();
+        switch (token) {
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    throw new InvalidValueDeserializationException(parser.getText());
                 }
+                return new PrimLong(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT:
+                final double d = parser.getDoubleValue();
+                if (!(d >= Long.MIN_VALUE && d <= Long.MAX_VALUE)) {
+                    throw new InvalidValueDeserializationException(parser.getText());
+                }
+                return new PrimLong((long) d);
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return new PrimBool(token == JsonToken.VALUE_TRUE);
+            case VALUE_STRING:
+                return new PrimString(parser.getText());
+            case VALUE_NULL:
+                return null;
+            case START_ARRAY:
+                final CedarList list = new CedarList();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(read(parser));
+                }
+                return list;
+            case START_OBJECT:
+                parser.nextToken();
+                return readObject(parser);
+            default:
+                throw new InvalidValueDeserializationException(String.valueOf(parser.getText()));
+        }
+    }
+
+    /**
+     * Read an object, starting at its first field name or its end. An object with one
+     * <code>__entity</code> or <code>__extn</code> field is an escaped entity UID or extension
+     * value; any other object may only have <code>__expr</code> fields, and is read as a map.
+     */
+    private static Value readObject(JsonParser parser) throws IOException {
+        final CedarMap map = new CedarMap();
+        if (parser.currentToken() == JsonToken.END_OBJECT) {
+            return map;
+        }
+        final String first = parser.currentName();
+        if (first.equals(ENTITY_ESCAPE_SEQ) || first.equals(EXTENSION_ESCAPE_SEQ)) {
+            parser.nextToken();
+            final Value value =
+                    first.equals(ENTITY_ESCAPE_SEQ) ? readEntity(parser) : readExtension(parser);
+            if (parser.nextToken() != JsonToken.END_OBJECT) {
+                throw unexpectedField(parser.currentName());
+            }
+            return value;
+        }
+        do {
+            final String name = parser.currentName();
+            if (!name.equals(ESCAPE_SEQ)) {
+                throw unexpectedField(name);
             }
-            CedarMap myMap = new CedarMap();
-            iter = node.fields();
-            while (iter.hasNext()) {
-                Map.Entry<String, JsonNode> entry = iter.next();
-                myMap.put(entry.getKey(), mapper.treeToValue(entry.getValue(), Value.class));
+            parser.nextToken();
+            map.put(name, read(parser));
+        } while (parser.nextToken() != JsonToken.END_OBJECT);
+        return map;
+    }
+
+    /** The error for a field that cannot be in an object read so far. */
+    private static InvalidValueDeserializationException unexpectedField(String name) {
+        if (name.equals(ENTITY_ESCAPE_SEQ)
+                || name.equals(EXTENSION_ESCAPE_SEQ)
+                || name.equals(ESCAPE_SEQ)) {
+            return new InvalidValueDeserializationException(
+                    "More than one K,V pair with {__entity, __extn}: " + name);
+        }
+        return new InvalidValueDeserializationException("Use __entity or __extn: " + name);
+    }
+
+    private static EntityUID readEntity(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw notTextual(parser);
+        }
+        return EntityUID.valueOf(parser.getText());
+    }
+
+    /** Read the <code>{"fn": ..., "arg": ...}</code> object of an escaped extension value. */
+    private static Value readExtension(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new InvalidValueDeserializationException(
+                    "Not an extension value: " + parser.getText());
+        }
+        String fn = null;
+        String arg = null;
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if (name.equals("fn")) {
+                fn = textual(parser);
+            } else if (name.equals("arg")) {
+                arg = textual(parser);
+            } else {
+                parser.skipChildren();
             }
-            return myMap;
+        }
+        if (fn == null || arg == null) {
+            throw new InvalidValueDeserializationException(
+                    "Extension value needs fn and arg: " + fn + ", " + arg);
+        }
+        if (fn.equals("ip")) {
+            return new IpAddress(arg);
+        } else if (fn.equals("decimal")) {
+            return new Decimal(arg);
         } else {
-            throw new InvalidValueDeserializationException(node.toString());
+            throw new InvalidValueDeserializationException("Invalid function type: \"" + fn + '"');
+        }
+    }
+
+    private static String textual(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw notTextual(parser);
         }
+        return parser.getText();
+    }
+
+    private static InvalidValueDeserializationException notTextual(JsonParser parser)
+            throws IOException {
+        return new InvalidValueDeserializationException("Not textual node: " + parser.getText());
     }
 }
@@ -30,12 +30,13 @@ public final class CedarList extends Value implements List<Value> {
     public final java.util.List<Value> list;
 
     /**
-     * Create a Cedar list by copy.
+     * Create a Cedar list by copy. A {@link PersistentList} is immutable, so it is kept instead of
+     * copied, and the Cedar list is immutable too.
      *
      * @param source list to copy from
      */
     public CedarList(java.util.List<Value> source) {
-        this.list = new ArrayList<>(source);
+        this.list = source instanceof PersistentList ? source : new ArrayList<>(source);
     }
 
     /** Create an empty Cedar list. */
@@ -211,4 +212,10 @@ public final class CedarList extends Value implements List<Value> {
     public <T> T[] toArray(T[] a) {
         return list.toArray(a);
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
 }
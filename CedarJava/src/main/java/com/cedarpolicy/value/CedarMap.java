@@ -29,12 +29,13 @@ public final class CedarMap extends Value implements Map<String, Value> {
     public final java.util.Map<String, Value> map;
 
     /**
-     * Create a Cedar map by copy.
+     * Create a Cedar map by copy. A {@link PersistentMap} is immutable, so it is kept instead of
+     * copied, and the Cedar map is immutable too.
      *
      * @param source map to copy from
      */
     public CedarMap(java.util.Map<String, Value> source) {
-        this.map = new HashMap<>(source);
+        this.map = source instanceof PersistentMap ? source : new HashMap<>(source);
     }
 
     /** Create an empty Cedar map. */
@@ -141,4 +142,10 @@ public final class CedarMap extends Value implements Map<String, Value> {
     public Collection<Value> values() {
         return map.values();
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
 }
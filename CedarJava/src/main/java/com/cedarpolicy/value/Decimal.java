@@ -16,56 +16,101 @@
 
 package com.cedarpolicy.value;
 
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
-
 /**
  * Represents a Cedar fixed-point decimal extension value. Decimals are encoded as strings in
  * dot-decimal notation with 4 decimals after the dot (e.g., <code>"1.0000"</code>).
+ *
+ * <p>Like Cedar, the value is held as a <code>long</code> counting ten-thousandths, parsed once
+ * when the decimal is constructed, so decimals compare without reading the string again. Up to 4
+ * digits may follow the dot, and the value must be between <code>-922337203685477.5808</code> and
+ * <code>922337203685477.5807</code>. Decimals are equal if they have the same value, so
+ * <code>"1.5"</code> equals <code>"1.5000"</code>.
  */
-public class Decimal extends Value {
-
-    private static class DecimalValidator {
-        private static final Pattern decimalPattern = Pattern.compile("^([0-9])*(\\.)([0-9]{0,4})$");
-
-        public static boolean validDecimal(String d) {
-            if (d == null || d.isEmpty()) return false;
-            d = d.trim();
-            if (d.length() > 21) return false; // 19digits, decimal point and - sign
-            try {
-                Matcher matcher = decimalPattern.matcher(d);
-                return matcher.matches();
-            } catch (PatternSyntaxException ex) {
-                return false;
-            }
-        }
-    }
+public final class Decimal extends TextValue implements Comparable<Decimal> {
+    /** The number of digits after the dot. */
+    public static final int SCALE = 4;
 
     /** decimal as a string. */
     public final String decimal;
 
+    /** The value in ten-thousandths. */
+    private final long unscaled;
+
     /**
      * Construct Decimal.
      *
      * @param decimal Decimal as a String.
      */
     public Decimal(String decimal) throws NullPointerException, IllegalArgumentException {
-        if (!DecimalValidator.validDecimal(decimal)) {
-            throw new IllegalArgumentException(
-                    "Input string is not a valid decimal. E.g., \"1.0000\") \n " + decimal);
-        }
+        this.unscaled = parse(decimal);
         this.decimal = decimal;
     }
 
+    /**
+     * Get the value in ten-thousandths, the way Cedar holds it: <code>1.5</code> is <code>15000
+     * </code>.
+     *
+     * @return The value scaled by 10<sup>4</sup>.
+     */
+    public long getUnscaledValue() {
+        return unscaled;
+    }
+
+    /**
+     * Check whether this decimal is less than another, like Cedar's <code>lessThan</code>.
+     *
+     * @param other The other decimal.
+     * @return Whether it is.
+     */
+    public boolean lessThan(Decimal other) {
+        return unscaled < other.unscaled;
+    }
+
+    /**
+     * Check whether this decimal is less than or equal to another, like Cedar's <code>
+     * lessThanOrEqual</code>.
+     *
+     * @param other The other decimal.
+     * @return Whether it is.
+     */
+    public boolean lessThanOrEqual(Decimal other) {
+        return unscaled <= other.unscaled;
+    }
+
+    /**
+     * Check whether this decimal is greater than another, like Cedar's <code>greaterThan</code>.
+     *
+     * @param other The other decimal.
+     * @return Whether it is.
+     */
+    public boolean greaterThan(Decimal other) {
+        return unscaled > other.unscaled;
+    }
+
+    /**
+     * Check whether this decimal is greater than or equal to another, like Cedar's <code>
+     * greaterThanOrEqual</code>.
+     *
+     * @param other The other decimal.
+     * @return Whether it is.
+     */
+    public boolean greaterThanOrEqual(Decimal other) {
+        return unscaled >= other.unscaled;
+    }
+
+    /** Compare by value. */
+    @Override
+    public int compareTo(Decimal other) {
+        return Long.compare(unscaled, other.unscaled);
+    }
+
     /** Convert Decimal to cedar expr. */
     @Override
     String toCedarExpr() {
         return "decimal(\"" + decimal + "\")";
     }
 
-    /** Equals. */
+    /** Equals. Decimals are equal if they have the same value. */
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -75,13 +120,13 @@ public class Decimal extends Value {
             return false;
         }
         Decimal decimal1 = (Decimal) o;
-        return decimal.equals(decimal1.decimal);
+        return unscaled == decimal1.unscaled;
     }
 
     /** Hash. */
     @Override
     public int hashCode() {
-        return Objects.hash(decimal);
+        return Long.hashCode(unscaled);
     }
 
     /** As a string. */
@@ -89,4 +134,71 @@ public class Decimal extends Value {
     public String toString() {
         return decimal;
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
+
+    @Override
+    String text() {
+        return decimal;
+    }
+
+    /**
+     * Read <code>-?digits.digits</code> with up to 4 digits after the dot, ignoring surrounding
+     * whitespace, without allocating. The digits are accumulated as a negative number, which has
+     * room for the most negative value.
+     *
+     * @return The value in ten-thousandths.
+     * @throws IllegalArgumentException If the string is not a decimal in range.
+     */
+    private static long parse(String s) {
+        int pos = 0;
+        int end = s == null ? 0 : s.length();
+        while (pos < end && s.charAt(pos) <= ' ') {
+            pos++;
+        }
+        while (end > pos && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        final boolean negative = pos < end && s.charAt(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        int fraction = -1;
+        try {
+            for (; pos < end; pos++) {
+                final char c = s.charAt(pos);
+                if (c == '.' && fraction < 0) {
+                    fraction = 0;
+                } else if (c >= '0' && c <= '9' && fraction < SCALE) {
+                    value = Math.subtractExact(Math.multiplyExact(value, 10), c - '0');
+                    digits++;
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else {
+                    throw invalid(s);
+                }
+            }
+            if (fraction < 0 || digits == 0) {
+                throw invalid(s);
+            }
+            for (; fraction < SCALE; fraction++) {
+                value = Math.multiplyExact(value, 10);
+            }
+            return negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            throw invalid(s);
+        }
+    }
+
+    private static IllegalArgumentException invalid(String decimal) {
+        return new IllegalArgumentException(
+                "Input string is not a valid decimal. E.g., \"1.0000\") \n " + decimal);
+    }
 }
@@ -16,52 +16,45 @@
 
 package com.cedarpolicy.value;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Represents a Cedar Entity UID. An entity UID contains both the entity type and a unique
  * identifier for the entity formatted as <code>TYPE::"ID"</code>.
+ *
+ * <p>The type is a path of identifiers separated by <code>::</code>, such as <code>
+ * Notion::User</code>: a namespace, possibly empty, and a type name. In the ID, a backslash may
+ * only escape a backslash or a double quote, or start a <code>&#92;u</code> escape of four to six
+ * hex digits. Two entity UIDs are equal if they are written the same way, ignoring whitespace
+ * around them.
+ *
+ * <p>{@link #of(String, String)} and {@link #valueOf(String)} return shared instances for UIDs
+ * that are used often, so that equal UIDs are usually the same object and compare by reference.
  */
-public class EntityUID extends Value {
-
-    private static class EUIDValidator {
-        // Any char except {'\','"'} or escaped slash `\\` or escaped quote `\"` or unicode `\u0000`
-        // We need to escape twice, once for Java and once for the Regex
-        private static final String anyCharExceptSlashOrQuote = "[^\\\"\\\\]";
-        private static final String escapedSlash = "\\\\\\\\";
-        private static final String escapedQuote = "\\\\\\\"";
-        private static final String unicodeEscapedPattern = "\\\\u[A-Fa-f0-9]{4,6}";
-        private static final Pattern entityUIDPattern =
-                Pattern.compile(
-                        "^([A-Za-z_]([A-Za-z0-9_])*::)+\"("
-                                + anyCharExceptSlashOrQuote
-                                + "|"
-                                + escapedSlash
-                                + "|"
-                                + escapedQuote
-                                + "|"
-                                + unicodeEscapedPattern
-                                + ")*\"$");
-        private static final long MAXLENGTH = 1024;
-
-        public static boolean validEntityUID(String id) {
-            if (id == null || id.isEmpty()) return false;
-            id = id.trim();
-            if (id.length() > MAXLENGTH) return false;
-            try {
-                Matcher matcher = entityUIDPattern.matcher(id);
-                return matcher.matches();
-            } catch (PatternSyntaxException ex) {
-                return false;
-            }
-        }
-    }
+public final class EntityUID extends TextValue {
+    private static final int MAX_LENGTH = 1024;
+
+    /** Recently created entity UIDs, indexed by a hash of their text. */
+    private static final AtomicReferenceArray<EntityUID> POOL = new AtomicReferenceArray<>(4096);
 
     /** Entity uid. */
     public final String euid;
 
+    /** Where the text starts and ends in {@link #euid}, without surrounding whitespace. */
+    private final int start;
+
+    private final int end;
+
+    /** Where the <code>::</code> before the quoted ID starts in {@link #euid}. */
+    private final int typeEnd;
+
+    /** The ID with escape sequences replaced, created when it is first needed. */
+    private String id;
+
     /**
      * Build EntityUID.
      *
@@ -69,11 +62,161 @@ public class EntityUID extends Value {
      *     <p>Note, we limit euids to 1024 chars.
      */
     public EntityUID(String euid) throws IllegalArgumentException {
-        if (!EUIDValidator.validEntityUID(euid)) {
-            throw new IllegalArgumentException("Input string is not a valid EntityUID " + euid);
+        if (euid == null) {
+            throw invalid(null);
+        }
+        int start = 0;
+        int end = euid.length();
+        while (start < end && euid.charAt(start) <= ' ') {
+            start++;
         }
+        while (end > start && euid.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start > MAX_LENGTH) {
+            throw invalid(euid);
+        }
+        final int typeEnd = typeEnd(euid, start, end);
+        if (typeEnd < 0 || !validId(euid, typeEnd + 2, end)) {
+            throw invalid(euid);
+        }
+        this.euid = euid;
+        this.start = start;
+        this.end = end;
+        this.typeEnd = typeEnd;
+    }
 
+    private EntityUID(String euid, int typeEnd, String id) {
         this.euid = euid;
+        this.start = 0;
+        this.end = euid.length();
+        this.typeEnd = typeEnd;
+        this.id = id;
+    }
+
+    /**
+     * Get the entity UID with a type and ID, without parsing it.
+     *
+     * @param type Entity type, such as <code>Notion::User</code>.
+     * @param id Entity ID, without escape sequences.
+     * @return The entity UID, shared with other callers if it was created recently.
+     * @throws IllegalArgumentException If the type is not a valid entity type, or the entity UID
+     *     would be longer than 1024 chars.
+     */
+    public static EntityUID of(String type, String id) throws IllegalArgumentException {
+        Objects.requireNonNull(id);
+        if (type == null || !validType(type)) {
+            throw new IllegalArgumentException("Input string is not a valid entity type " + type);
+        }
+        final String euid = type + "::\"" + escape(id) + '"';
+        final int slot = slot(euid);
+        final EntityUID pooled = POOL.get(slot);
+        if (pooled != null && pooled.euid.equals(euid)) {
+            return pooled;
+        }
+        if (euid.length() > MAX_LENGTH) {
+            throw invalid(euid);
+        }
+        final EntityUID created = new EntityUID(euid, type.length(), id);
+        POOL.set(slot, created);
+        return created;
+    }
+
+    /**
+     * Get the entity UID written as a string, parsing it only if it was not created recently.
+     *
+     * @param euid Entity Unique ID as a string.
+     * @return The entity UID, shared with other callers if it was created recently.
+     * @throws IllegalArgumentException If the string is not a valid entity UID.
+     */
+    public static EntityUID valueOf(String euid) throws IllegalArgumentException {
+        if (euid == null) {
+            throw invalid(null);
+        }
+        final int slot = slot(euid);
+        final EntityUID pooled = POOL.get(slot);
+        if (pooled != null && pooled.euid.equals(euid)) {
+            return pooled;
+        }
+        final EntityUID created = new EntityUID(euid);
+        POOL.set(slot, created);
+        return created;
+    }
+
+    /**
+     * Get the entity type.
+     *
+     * @return The type, such as <code>Notion::User</code>.
+     */
+    public String getType() {
+        return euid.substring(start, typeEnd);
+    }
+
+    /**
+     * Get the namespace of the entity type.
+     *
+     * @return The identifiers of the namespace, such as <code>[Notion]</code>; empty if the type
+     *     has no namespace.
+     */
+    public List<String> getNamespace() {
+        final List<String> namespace = new ArrayList<>();
+        int from = start;
+        for (int sep = euid.indexOf("::", from); sep < typeEnd; sep = euid.indexOf("::", from)) {
+            namespace.add(euid.substring(from, sep));
+            from = sep + 2;
+        }
+        return Collections.unmodifiableList(namespace);
+    }
+
+    /**
+     * Get the name of the entity type, without its namespace.
+     *
+     * @return The type name, such as <code>User</code>.
+     */
+    public String getTypeName() {
+        final int sep = euid.lastIndexOf("::", typeEnd - 1);
+        return euid.substring(sep < start ? start : sep + 2, typeEnd);
+    }
+
+    /**
+     * Get the entity ID.
+     *
+     * @return The ID, with escape sequences replaced by the characters they stand for.
+     */
+    public String getId() {
+        String id = this.id;
+        if (id == null) {
+            id = unescape(euid, typeEnd + 3, end - 1);
+            this.id = id;
+        }
+        return id;
+    }
+
+    /** Equals. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final EntityUID that = (EntityUID) o;
+        return end - start == that.end - that.start
+                && euid.regionMatches(start, that.euid, that.start, end - start);
+    }
+
+    /** Hash. */
+    @Override
+    public int hashCode() {
+        if (start == 0 && end == euid.length()) {
+            return euid.hashCode();
+        }
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + euid.charAt(i);
+        }
+        return h;
     }
 
     /** As String. */
@@ -87,4 +230,162 @@ public class EntityUID extends Value {
     String toCedarExpr() {
         return euid;
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
+
+    @Override
+    String text() {
+        return euid;
+    }
+
+    private static IllegalArgumentException invalid(String euid) {
+        return new IllegalArgumentException("Input string is not a valid EntityUID " + euid);
+    }
+
+    private static int slot(String euid) {
+        final int h = euid.hashCode();
+        return (h ^ (h >>> 16)) & (POOL.length() - 1);
+    }
+
+    /**
+     * Read the type path at the start of <code>s</code>: one or more identifiers, each followed by
+     * <code>::</code>, up to an opening quote.
+     *
+     * @return Where the last <code>::</code> starts, or -1 if the type is not valid.
+     */
+    private static int typeEnd(String s, int pos, int end) {
+        while (true) {
+            if (pos >= end || !identifierStart(s.charAt(pos))) {
+                return -1;
+            }
+            pos++;
+            while (pos < end && identifierPart(s.charAt(pos))) {
+                pos++;
+            }
+            if (pos + 2 >= end || s.charAt(pos) != ':' || s.charAt(pos + 1) != ':') {
+                return -1;
+            }
+            if (s.charAt(pos + 2) == '"') {
+                return pos;
+            }
+            pos += 2;
+        }
+    }
+
+    /** Check that a whole string is a type path, such as <code>Notion::User</code>. */
+    private static boolean validType(String type) {
+        int pos = 0;
+        while (true) {
+            if (pos >= type.length() || !identifierStart(type.charAt(pos))) {
+                return false;
+            }
+            pos++;
+            while (pos < type.length() && identifierPart(type.charAt(pos))) {
+                pos++;
+            }
+            if (pos == type.length()) {
+                return true;
+            }
+            if (!type.startsWith("::", pos)) {
+                return false;
+            }
+            pos += 2;
+        }
+    }
+
+    /** Check the quoted ID that starts at <code>pos</code> and ends at <code>end</code>. */
+    private static boolean validId(String s, int pos, int end) {
+        pos++;
+        while (pos < end - 1) {
+            final char c = s.charAt(pos);
+            if (c == '"') {
+                return false;
+            } else if (c != '\\') {
+                pos++;
+            } else if (pos + 1 < end - 1 && escapable(s.charAt(pos + 1))) {
+                pos += 2;
+            } else if (pos + 5 < end - 1 && s.charAt(pos + 1) == 'u' && hex(s, pos + 2, 4)) {
+                pos += 6;
+            } else {
+                return false;
+            }
+        }
+        return pos == end - 1 && s.charAt(pos) == '"';
+    }
+
+    /** Replace the escape sequences in a valid ID. */
+    private static String unescape(String s, int from, int to) {
+        final int backslash = s.indexOf('\\', from);
+        if (backslash < 0 || backslash >= to) {
+            return s.substring(from, to);
+        }
+        final StringBuilder id = new StringBuilder(to - from);
+        int pos = from;
+        while (pos < to) {
+            final char c = s.charAt(pos);
+            if (c != '\\') {
+                id.append(c);
+                pos++;
+            } else if (s.charAt(pos + 1) != 'u') {
+                id.append(s.charAt(pos + 1));
+                pos += 2;
+            } else {
+                int digits = 4;
+                while (digits < 6 && pos + 2 + digits < to && hex(s, pos + 2 + digits, 1)) {
+                    digits++;
+                }
+                int codePoint = Integer.parseInt(s.substring(pos + 2, pos + 2 + digits), 16);
+                if (codePoint > Character.MAX_CODE_POINT) {
+                    digits = 5;
+                    codePoint >>>= 4;
+                }
+                id.appendCodePoint(codePoint);
+                pos += 2 + digits;
+            }
+        }
+        return id.toString();
+    }
+
+    /** Escape the backslashes and double quotes in an ID. */
+    private static String escape(String id) {
+        if (id.indexOf('"') < 0 && id.indexOf('\\') < 0) {
+            return id;
+        }
+        final StringBuilder escaped = new StringBuilder(id.length() + 8);
+        for (int i = 0; i < id.length(); i++) {
+            final char c = id.charAt(i);
+            if (escapable(c)) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean escapable(char c) {
+        return c == '\\' || c == '"';
+    }
+
+    /** Check that <code>count</code> chars from <code>pos</code> are hex digits. */
+    private static boolean hex(String s, int pos, int count) {
+        for (int i = pos; i < pos + count; i++) {
+            final char c = s.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean identifierStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    private static boolean identifierPart(char c) {
+        return identifierStart(c) || (c >= '0' && c <= '9');
+    }
 }
@@ -16,76 +16,162 @@
 
 package com.cedarpolicy.value;
 
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
-
 /**
  * Represents a Cedar ip address extension value. Ip address are encoded as strings in dot-decimal
  * notation (e.g., <code>"192.168.1.0"</code>). Values for CIDR ranges may also be constructed by
  * providing strings in CIDR notation.
+ *
+ * <p>The address is parsed once, when the value is constructed, into its bits and prefix length,
+ * so range checks such as {@link #isInRange(IpAddress)} do not read the string again. An address
+ * without a prefix length is a range of one address. IPv6 addresses are written as eight groups of
+ * hex digits, with <code>::</code> in place of one or more groups of zeros; embedded IPv4 addresses
+ * are not supported.
  */
-public class IpAddress extends Value {
-
-    private static class IpAddressValidator {
-        private static final Pattern ipv4Pattern =
-                Pattern.compile(
-                        "^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.)"
-                                + "{3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
-
-        public static boolean validIPv4(String ip) {
-            if (ip == null || ip.isEmpty()) return false;
-            ip = ip.trim();
-            if ((ip.length() < 6) || (ip.length() > 15)) return false;
-            try {
-                Matcher matcher = ipv4Pattern.matcher(ip);
-                return matcher.matches();
-            } catch (PatternSyntaxException ex) {
-                return false;
-            }
-        }
-
-        private static final Pattern ipv6Pattern =
-                Pattern.compile(
-                        "^(([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|:))|"
-                                + "(([0-9A-Fa-f]{1,4}:)(((:[0-9A-Fa-f]{1,4}){1,6})|:))|"
-                                + "((:)(((:[0-9A-Fa-f]{1,4}){1,7})|:))|$");
-
-        public static boolean validIPv6(String ip) {
-            if (ip == null || ip.isEmpty()) return false;
-            ip = ip.trim();
-            if ((ip.length() < 3) || (ip.length() > 39)) return false;
-            try {
-                Matcher matcher = ipv6Pattern.matcher(ip);
-                return matcher.matches();
-            } catch (PatternSyntaxException ex) {
-                return false;
-            }
-        }
-    }
+public final class IpAddress extends TextValue {
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
 
     /** ip address as a string. */
     public final String ipAddress;
 
+    /** The top 64 bits of an IPv6 address; 0 for IPv4. */
+    private final long high;
+
+    /** The low 64 bits of an IPv6 address, or the 32 bits of an IPv4 address. */
+    private final long low;
+
+    /** The prefix length; the number of bits in the address if none was given. */
+    private final int prefix;
+
+    private final boolean ipv4;
+
     /**
      * Construct IPAddress.
      *
      * @param ipAddress IP address as a String.
      */
     public IpAddress(String ipAddress) throws NullPointerException, IllegalArgumentException {
-        if (!IpAddressValidator.validIPv4(ipAddress) && !IpAddressValidator.validIPv6(ipAddress)) {
+        final Parser parser = new Parser(ipAddress);
+        if (!parser.parse()) {
             throw new IllegalArgumentException(
                     "Input string is not a valid IPv4 or IPv6 address\n"
                             + "(Note we do not allow mixing IPv4 and IPv6 syntax. E.g., \"::ffff:127.0.0.1\") \n "
                             + ipAddress);
         }
         this.ipAddress = ipAddress;
+        this.high = parser.high;
+        this.low = parser.low;
+        this.prefix = parser.prefix;
+        this.ipv4 = parser.ipv4;
+    }
+
+    /**
+     * Check whether this is an IPv4 address or range.
+     *
+     * @return Whether it is.
+     */
+    public boolean isIpv4() {
+        return ipv4;
+    }
+
+    /**
+     * Check whether this is an IPv6 address or range.
+     *
+     * @return Whether it is.
+     */
+    public boolean isIpv6() {
+        return !ipv4;
+    }
+
+    /**
+     * Get the prefix length: the number of leading bits of the address that are fixed in the range.
+     *
+     * @return The prefix length; 32 or 128 for a single address.
+     */
+    public int getPrefixLength() {
+        return prefix;
+    }
+
+    /**
+     * Check whether every address in this range is a loopback address, in <code>127.0.0.0/8
+     * </code> or equal to <code>::1</code>.
+     *
+     * @return Whether it is.
+     */
+    public boolean isLoopback() {
+        if (ipv4) {
+            return prefix >= 8 && bits(0, 8) == 127;
+        }
+        return prefix == IPV6_BITS && high == 0 && low == 1;
+    }
+
+    /**
+     * Check whether every address in this range is a multicast address, in <code>224.0.0.0/4
+     * </code> or <code>ff00::/8</code>.
+     *
+     * @return Whether it is.
+     */
+    public boolean isMulticast() {
+        if (ipv4) {
+            return prefix >= 4 && bits(0, 4) == 0xe;
+        }
+        return prefix >= 8 && bits(0, 8) == 0xff;
+    }
+
+    /**
+     * Check whether this address or range is within another range of the same IP version.
+     *
+     * @param range The range.
+     * @return Whether every address in this range is in <code>range</code>.
+     */
+    public boolean isInRange(IpAddress range) {
+        if (ipv4 != range.ipv4 || prefix < range.prefix) {
+            return false;
+        }
+        final int shared = range.prefix;
+        if (ipv4) {
+            return bits(0, shared) == range.bits(0, shared);
+        }
+        if (shared <= 64) {
+            return bits(0, shared) == range.bits(0, shared);
+        }
+        return high == range.high && bits(64, shared - 64) == range.bits(64, shared - 64);
+    }
+
+    /**
+     * Get a bit of the address.
+     *
+     * @param index The index of the bit, from 0 for the most significant bit.
+     * @return The bit, 0 or 1.
+     */
+    int bit(int index) {
+        if (ipv4) {
+            return (int) (low >>> (IPV4_BITS - 1 - index)) & 1;
+        }
+        return (int) ((index < 64 ? high >>> (63 - index) : low >>> (127 - index)) & 1);
+    }
+
+    /**
+     * Get <code>count</code> bits of the address starting at <code>from</code>, within one half of
+     * an IPv6 address.
+     */
+    private long bits(int from, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        final long word;
+        final int offset;
+        if (ipv4) {
+            word = low << IPV4_BITS;
+            offset = from;
+        } else if (from < 64) {
+            word = high;
+            offset = from;
+        } else {
+            word = low;
+            offset = from - 64;
+        }
+        return (word << offset) >>> (64 - count);
     }
 
     /** Convert IPAddress to cedar expr. */
@@ -94,7 +180,7 @@ public class IpAddress extends Value {
         return "ip(\"" + ipAddress + "\")";
     }
 
-    /** Equals. */
+    /** Equals. Addresses are equal if they have the same bits and prefix length. */
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -104,13 +190,16 @@ public class IpAddress extends Value {
             return false;
         }
         IpAddress ipAddress1 = (IpAddress) o;
-        return ipAddress.equals(ipAddress1.ipAddress);
+        return ipv4 == ipAddress1.ipv4
+                && high == ipAddress1.high
+                && low == ipAddress1.low
+                && prefix == ipAddress1.prefix;
     }
 
     /** Hash. */
     @Override
     public int hashCode() {
-        return Objects.hash(ipAddress);
+        return 31 * (31 * Long.hashCode(high) + Long.hashCode(low)) + prefix + (ipv4 ? 0 : 256);
     }
 
     /** As a string. */
@@ -118,4 +207,154 @@ public class IpAddress extends Value {
     public String toString() {
         return ipAddress;
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
+
+    @Override
+    String text() {
+        return ipAddress;
+    }
+
+    /** Reads an address in one pass, ignoring surrounding whitespace. */
+    private static final class Parser {
+        private final String src;
+        private int pos;
+        private int end;
+        long high;
+        long low;
+        int prefix;
+        boolean ipv4;
+
+        Parser(String src) {
+            this.src = src;
+        }
+
+        boolean parse() {
+            if (src == null) {
+                return false;
+            }
+            end = src.length();
+            while (pos < end && src.charAt(pos) <= ' ') {
+                pos++;
+            }
+            while (end > pos && src.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            final int slash = src.lastIndexOf('/', end - 1);
+            final int addressEnd = slash >= pos ? slash : end;
+            ipv4 = src.indexOf(':', pos) < 0 || src.indexOf(':', pos) >= addressEnd;
+            if (!(ipv4 ? ipv4(addressEnd) : ipv6(addressEnd))) {
+                return false;
+            }
+            final int bits = ipv4 ? IPV4_BITS : IPV6_BITS;
+            if (slash < pos) {
+                prefix = bits;
+                return true;
+            }
+            pos = slash + 1;
+            final int length = number(end, 10, 3);
+            if (length < 0 || length > bits || pos != end) {
+                return false;
+            }
+            prefix = length;
+            return true;
+        }
+
+        private boolean ipv4(int to) {
+            for (int i = 0; i < 4; i++) {
+                if (i > 0) {
+                    if (pos >= to || src.charAt(pos) != '.') {
+                        return false;
+                    }
+                    pos++;
+                }
+                final int octet = number(to, 10, 3);
+                if (octet < 0 || octet > 255) {
+                    return false;
+                }
+                low = (low << 8) | octet;
+            }
+            return pos == to;
+        }
+
+        /** Read up to eight groups, with at most one <code>::</code> standing for the rest. */
+        private boolean ipv6(int to) {
+            final int[] groups = new int[8];
+            int count = 0;
+            int gap = -1;
+            if (src.startsWith("::", pos)) {
+                gap = 0;
+                pos += 2;
+            }
+            while (pos < to) {
+                if (count == 8) {
+                    return false;
+                }
+                final int group = number(to, 16, 4);
+                if (group < 0) {
+                    return false;
+                }
+                groups[count++] = group;
+                if (pos == to) {
+                    break;
+                }
+                if (src.charAt(pos) != ':') {
+                    return false;
+                }
+                pos++;
+                if (pos < to && src.charAt(pos) == ':') {
+                    if (gap >= 0) {
+                        return false;
+                    }
+                    gap = count;
+                    pos++;
+                } else if (pos == to) {
+                    return false;
+                }
+            }
+            if (gap < 0 ? count != 8 : count > 7) {
+                return false;
+            }
+            final int zeros = 8 - count;
+            for (int i = 0, g = 0; i < 8; i++) {
+                final long group = gap >= 0 && i >= gap && i < gap + zeros ? 0 : groups[g++];
+                if (i < 4) {
+                    high = (high << 16) | group;
+                } else {
+                    low = (low << 16) | group;
+                }
+            }
+            return true;
+        }
+
+        /** Read 1 to <code>maxDigits</code> digits; -1 if there are none, or more. */
+        private int number(int to, int radix, int maxDigits) {
+            int value = 0;
+            int digits = 0;
+            while (pos < to && digit(src.charAt(pos), radix) >= 0) {
+                if (++digits > maxDigits) {
+                    return -1;
+                }
+                value = value * radix + digit(src.charAt(pos++), radix);
+            }
+            return digits == 0 ? -1 : value;
+        }
+
+        private static int digit(char c, int radix) {
+            if (c >= '0' && c <= '9') {
+                return c - '0';
+            }
+            if (radix == 16 && c >= 'a' && c <= 'f') {
+                return c - 'a' + 10;
+            }
+            if (radix == 16 && c >= 'A' && c <= 'F') {
+                return c - 'A' + 10;
+            }
+            return -1;
+        }
+    }
 }
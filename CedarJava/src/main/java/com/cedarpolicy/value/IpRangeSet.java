@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * A set of IP address ranges, such as the networks a context policy trusts, indexed so that
+ * finding the ranges an address is in takes at most one step per bit of the address, however many
+ * ranges there are.
+ *
+ * <p>The ranges are kept in two binary tries, one per IP version, keyed on the bits of each range
+ * up to its prefix length. An address is in a range exactly when {@link
+ * IpAddress#isInRange(IpAddress)} says so; an IPv4 address is never in an IPv6 range. The set is
+ * immutable and can be shared between threads.
+ */
+public final class IpRangeSet {
+    private final Trie ipv4 = new Trie();
+    private final Trie ipv6 = new Trie();
+    private final int size;
+
+    /**
+     * Index a set of ranges.
+     *
+     * @param ranges The ranges. Ranges with the same prefix length and bits up to it are the same
+     *     range, and only the first is kept.
+     */
+    public IpRangeSet(Collection<IpAddress> ranges) {
+        int size = 0;
+        for (IpAddress range : ranges) {
+            if ((range.isIpv4() ? ipv4 : ipv6).add(range)) {
+                size++;
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Check whether an address, or every address in a range, is in one of the ranges.
+     *
+     * @param ip The address or range.
+     * @return Whether it is in a range of the set.
+     */
+    public boolean contains(IpAddress ip) {
+        return (ip.isIpv4() ? ipv4 : ipv6).match(ip, false) != null;
+    }
+
+    /**
+     * Find the most specific range an address, or every address in a range, is in.
+     *
+     * @param ip The address or range.
+     * @return The range of the set with the longest prefix that contains it, if any.
+     */
+    public Optional<IpAddress> longestMatch(IpAddress ip) {
+        return Optional.ofNullable((ip.isIpv4() ? ipv4 : ipv6).match(ip, true));
+    }
+
+    /**
+     * The number of distinct ranges in the set.
+     *
+     * @return The number of ranges.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** A binary trie of numbered nodes in arrays; node 0 is the root. */
+    private static final class Trie {
+        /** The children of node <code>n</code> at <code>2n</code> and <code>2n+1</code>, or 0. */
+        private int[] children = new int[2 * 16];
+        /** The range that ends at each node, if any. */
+        private IpAddress[] ranges = new IpAddress[16];
+        private int nodes = 1;
+
+        boolean add(IpAddress range) {
+            int node = 0;
+            for (int i = 0; i < range.getPrefixLength(); i++) {
+                final int slot = 2 * node + range.bit(i);
+                if (children[slot] == 0) {
+                    final int child = newNode();
+                    children[slot] = child;
+                }
+                node = children[slot];
+            }
+            if (ranges[node] != null) {
+                return false;
+            }
+            ranges[node] = range;
+            return true;
+        }
+
+        private int newNode() {
+            if (nodes == ranges.length) {
+                ranges = Arrays.copyOf(ranges, nodes * 2);
+                children = Arrays.copyOf(children, nodes * 4);
+            }
+            return nodes++;
+        }
+
+        /** The first or the last range on the path of <code>ip</code>, down to its prefix. */
+        IpAddress match(IpAddress ip, boolean longest) {
+            IpAddress found = null;
+            int node = 0;
+            for (int i = 0; ; i++) {
+                if (ranges[node] != null) {
+                    found = ranges[node];
+                    if (!longest) {
+                        return found;
+                    }
+                }
+                if (i == ip.getPrefixLength()) {
+                    return found;
+                }
+                node = children[2 * node + ip.bit(i)];
+                if (node == 0) {
+                    return found;
+                }
+            }
+        }
+    }
+}
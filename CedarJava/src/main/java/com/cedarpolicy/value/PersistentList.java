@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that shares structure with the lists it was made from, for sets and lists
+ * that are reused across many requests.
+ *
+ * <p>The elements are kept in a tree of arrays of up to 32 elements or subtrees, so {@link
+ * #plus(Object)} and {@link #with(int, Object)} copy one array per level, and {@link #get(int)}
+ * reads one per level: two levels hold a thousand elements and four a million. The hash code is
+ * kept up to date by every change instead of being computed from the elements, so it is only
+ * right as long as the elements are not modified. {@link CedarList} keeps a persistent list it is
+ * given instead of copying it.
+ *
+ * <p>Elements cannot be null. The mutating methods of {@link java.util.List} throw {@link
+ * UnsupportedOperationException}. Instances are thread-safe.
+ *
+ * @param <E> The type of elements.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentList<?> EMPTY = new PersistentList<>(new Object[0], 0, 0, 1);
+
+    /** The root of the tree; leaves are <code>shift</code> levels below it. */
+    private final Object[] root;
+    /** The number of bits of an index below the root's. */
+    private final int shift;
+    private final int size;
+    private final int hash;
+
+    private PersistentList(Object[] root, int shift, int size, int hash) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * Get the empty list.
+     *
+     * @param <E> The type of elements.
+     * @return The empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * Get a persistent list with the elements of a collection, in its iteration order.
+     *
+     * @param collection The collection.
+     * @param <E> The type of elements.
+     * @return The collection itself if it is a persistent list, and otherwise a persistent copy of
+     *     it.
+     * @throws NullPointerException If an element is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> copyOf(Collection<? extends E> collection) {
+        if (collection instanceof PersistentList) {
+            return (PersistentList<E>) collection;
+        }
+        final Object[] elements = collection.toArray();
+        if (elements.length == 0) {
+            return empty();
+        }
+        int hash = 1;
+        for (Object element : elements) {
+            hash = 31 * hash + requireElement(element).hashCode();
+        }
+        Object[] level = chunk(elements);
+        int shift = 0;
+        while (level.length > 1) {
+            level = chunk(level);
+            shift += BITS;
+        }
+        return new PersistentList<>((Object[]) level[0], shift, elements.length, hash);
+    }
+
+    /**
+     * Get a list with an element added at the end.
+     *
+     * @param element The element.
+     * @return A list with the elements of this list followed by <code>element</code>.
+     * @throws NullPointerException If the element is null.
+     */
+    public PersistentList<E> plus(E element) {
+        requireElement(element);
+        final int newHash = 31 * hash + element.hashCode();
+        if (size == 1 << (shift + BITS)) {
+            final Object[] newRoot = {root, path(shift, element)};
+            return new PersistentList<>(newRoot, shift + BITS, size + 1, newHash);
+        }
+        return new PersistentList<>(append(root, shift, size, element), shift, size + 1, newHash);
+    }
+
+    /**
+     * Get a list with an element replaced.
+     *
+     * @param index The index of the element.
+     * @param element The new element.
+     * @return A list with the elements of this list, but <code>element</code> at <code>index
+     *     </code>.
+     * @throws IndexOutOfBoundsException If there is no element at <code>index</code>.
+     * @throws NullPointerException If the element is null.
+     */
+    public PersistentList<E> with(int index, E element) {
+        Objects.checkIndex(index, size);
+        requireElement(element);
+        final Object old = get(index);
+        if (old.equals(element)) {
+            return this;
+        }
+        final int newHash =
+                hash + (element.hashCode() - old.hashCode()) * power31(size - 1 - index);
+        return new PersistentList<>(replace(root, shift, index, element), shift, size, newHash);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Equals. Lists with different hash codes are unequal without comparing their elements. */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PersistentList
+                && (((PersistentList<?>) o).hash != hash || ((PersistentList<?>) o).size != size)) {
+            return false;
+        }
+        return super.equals(o);
+    }
+
+    /** Hash, as specified by {@link java.util.List#hashCode()}, kept up to date by every change. */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static Object requireElement(Object element) {
+        return Objects.requireNonNull(element, "Attempt to put null element in PersistentList");
+    }
+
+    /** Split an array into arrays of up to 32 elements. */
+    private static Object[] chunk(Object[] items) {
+        final Object[] chunks = new Object[(items.length + MASK) / WIDTH];
+        for (int i = 0; i < chunks.length; i++) {
+            final int from = i * WIDTH;
+            chunks[i] = Arrays.copyOfRange(items, from, Math.min(items.length, from + WIDTH));
+        }
+        return chunks;
+    }
+
+    /** A subtree <code>level</code> bits high holding only <code>element</code>. */
+    private static Object[] path(int level, Object element) {
+        return new Object[] {level == 0 ? element : path(level - BITS, element)};
+    }
+
+    private static Object[] append(Object[] node, int level, int index, Object element) {
+        if (level == 0) {
+            final Object[] copy = Arrays.copyOf(node, node.length + 1);
+            copy[node.length] = element;
+            return copy;
+        }
+        final int i = (index >>> level) & MASK;
+        if (i < node.length) {
+            final Object[] copy = node.clone();
+            copy[i] = append((Object[]) node[i], level - BITS, index, element);
+            return copy;
+        }
+        final Object[] copy = Arrays.copyOf(node, node.length + 1);
+        copy[i] = path(level - BITS, element);
+        return copy;
+    }
+
+    private static Object[] replace(Object[] node, int level, int index, Object element) {
+        final Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            final int i = (index >>> level) & MASK;
+            copy[i] = replace((Object[]) node[i], level - BITS, index, element);
+        }
+        return copy;
+    }
+
+    /** 31 to the power <code>n</code>, overflowing as the hash code does. */
+    private static int power31(int n) {
+        int result = 1;
+        int base = 31;
+        for (int e = n; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable map that shares structure with the maps it was made from, for contexts and
+ * attribute maps that are reused across many requests with a few entries changed.
+ *
+ * <p>{@link #plus(Object, Object)} and {@link #minus(Object)} return a new map and leave this one
+ * unchanged; the two share every part of the hash trie the change did not touch, so a change
+ * copies a handful of small arrays however large the map is. The hash code is kept up to date by
+ * every change instead of being computed from the entries, so it is only right as long as the keys
+ * and values are not modified. {@link com.cedarpolicy.model.slice.Entity}, {@link
+ * com.cedarpolicy.model.AuthorizationRequest} and {@link CedarMap} keep a persistent map they are
+ * given instead of copying it.
+ *
+ * <p>Keys and values cannot be null. The mutating methods of {@link Map} throw {@link
+ * UnsupportedOperationException}. Instances are thread-safe.
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY =
+            new PersistentMap<>(new BitmapNode(0, 0, new Object[0]), 0, 0);
+
+    private final Node root;
+    private final int size;
+    private final int hash;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    private PersistentMap(Node root, int size, int hash) {
+        this.root = root;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * Get the empty map.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Get a persistent map with the entries of another map.
+     *
+     * @param map The map.
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return The map itself if it is a persistent map, and otherwise a persistent copy of it.
+     * @throws NullPointerException If a key or value is null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        }
+        return PersistentMap.<K, V>empty().plusAll(map);
+    }
+
+    /**
+     * Get a map with an entry added or replaced.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return A map with <code>key</code> mapped to <code>value</code>, or this map if it already
+     *     was.
+     * @throws NullPointerException If the key or value is null.
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "Attempt to put null key in PersistentMap");
+        Objects.requireNonNull(value, "Attempt to put null value in PersistentMap");
+        final Change change = new Change();
+        final Node newRoot = root.put(key, value, spread(key.hashCode()), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        int newHash = hash + entryHash(key, value);
+        if (change.old != null) {
+            return new PersistentMap<>(newRoot, size, newHash - entryHash(key, change.old));
+        }
+        return new PersistentMap<>(newRoot, size + 1, newHash);
+    }
+
+    /**
+     * Get a map with the entries of another map added or replaced.
+     *
+     * @param map The entries.
+     * @return A map with the entries of this map and <code>map</code>, preferring <code>map</code>.
+     * @throws NullPointerException If a key or value is null.
+     */
+    public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        PersistentMap<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Get a map without an entry.
+     *
+     * @param key The key.
+     * @return A map without <code>key</code>, or this map if it has none.
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        final Change change = new Change();
+        final Node newRoot = root.remove(key, spread(key.hashCode()), 0, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, size - 1, hash - entryHash(key, change.old));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return key == null ? null : (V) root.get(key, spread(key.hashCode()), 0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new EntrySet();
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    /** Equals. Maps with different hash codes are unequal without comparing their entries. */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PersistentMap
+                && (((PersistentMap<?, ?>) o).hash != hash
+                        || ((PersistentMap<?, ?>) o).size != size)) {
+            return false;
+        }
+        return super.equals(o);
+    }
+
+    /** Hash, as specified by {@link Map#hashCode()}, kept up to date by every change. */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static int entryHash(Object key, Object value) {
+        return key.hashCode() ^ value.hashCode();
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static Object[] with(Object[] array, int index, Object value) {
+        final Object[] copy = array.clone();
+        copy[index] = value;
+        return copy;
+    }
+
+    /** The value a change replaced or removed, if any. */
+    private static final class Change {
+        Object old;
+    }
+
+    /** A node of the trie, holding entries inline and the nodes below it. */
+    private abstract static class Node {
+        abstract Object get(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        abstract int entryCount();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract int nodeCount();
+
+        abstract Node nodeAt(int index);
+    }
+
+    /**
+     * A node that picks entries and nodes by 5 bits of the hash. The array holds the entries, as
+     * key and value, and then the nodes, each in the order of their bits.
+     */
+    private static final class BitmapNode extends Node {
+        final int entryMap;
+        final int nodeMap;
+        final Object[] array;
+
+        BitmapNode(int entryMap, int nodeMap, Object[] array) {
+            this.entryMap = entryMap;
+            this.nodeMap = nodeMap;
+            this.array = array;
+        }
+
+        private int entryIndex(int bit) {
+            return 2 * Integer.bitCount(entryMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return 2 * Integer.bitCount(entryMap) + Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((entryMap & bit) != 0) {
+                final int i = entryIndex(bit);
+                return key.equals(array[i]) ? array[i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node) array[nodeIndex(bit)]).get(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((entryMap & bit) != 0) {
+                final int i = entryIndex(bit);
+                final Object existing = array[i];
+                if (key.equals(existing)) {
+                    if (value.equals(array[i + 1])) {
+                        return this;
+                    }
+                    change.old = array[i + 1];
+                    return new BitmapNode(entryMap, nodeMap, with(array, i + 1, value));
+                }
+                final Node node =
+                        merge(
+                                existing,
+                                array[i + 1],
+                                spread(existing.hashCode()),
+                                key,
+                                value,
+                                hash,
+                                shift + BITS);
+                return entryToNode(bit, node);
+            }
+            if ((nodeMap & bit) != 0) {
+                final int i = nodeIndex(bit);
+                final Node node = (Node) array[i];
+                final Node newNode = node.put(key, value, hash, shift + BITS, change);
+                if (newNode == node) {
+                    return this;
+                }
+                return new BitmapNode(entryMap, nodeMap, with(array, i, newNode));
+            }
+            final int i = entryIndex(bit);
+            final Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(array, i, copy, i + 2, array.length - i);
+            return new BitmapNode(entryMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((entryMap & bit) != 0) {
+                final int i = entryIndex(bit);
+                if (!key.equals(array[i])) {
+                    return this;
+                }
+                change.old = array[i + 1];
+                final Object[] copy = new Object[array.length - 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+                return new BitmapNode(entryMap & ~bit, nodeMap, copy);
+            }
+            if ((nodeMap & bit) != 0) {
+                final int i = nodeIndex(bit);
+                final Node node = (Node) array[i];
+                final Node newNode = node.remove(key, hash, shift + BITS, change);
+                if (newNode == node) {
+                    return this;
+                }
+                if (newNode.nodeCount() == 0 && newNode.entryCount() == 1) {
+                    return nodeToEntry(bit, newNode.keyAt(0), newNode.valueAt(0));
+                }
+                return new BitmapNode(entryMap, nodeMap, with(array, i, newNode));
+            }
+            return this;
+        }
+
+        /** Replace the entry at <code>bit</code> with a node holding it and a new entry. */
+        private Node entryToNode(int bit, Node node) {
+            final int from = entryIndex(bit);
+            final int to = nodeIndex(bit) - 2;
+            final Object[] copy = new Object[array.length - 1];
+            System.arraycopy(array, 0, copy, 0, from);
+            System.arraycopy(array, from + 2, copy, from, to - from);
+            copy[to] = node;
+            System.arraycopy(array, to + 2, copy, to + 1, array.length - to - 2);
+            return new BitmapNode(entryMap & ~bit, nodeMap | bit, copy);
+        }
+
+        /** Replace the node at <code>bit</code>, left with one entry, with that entry. */
+        private Node nodeToEntry(int bit, Object key, Object value) {
+            final int from = nodeIndex(bit);
+            final int to = entryIndex(bit);
+            final Object[] copy = new Object[array.length + 1];
+            System.arraycopy(array, 0, copy, 0, to);
+            copy[to] = key;
+            copy[to + 1] = value;
+            System.arraycopy(array, to, copy, to + 2, from - to);
+            System.arraycopy(array, from + 1, copy, from + 2, array.length - from - 1);
+            return new BitmapNode(entryMap | bit, nodeMap & ~bit, copy);
+        }
+
+        @Override
+        int entryCount() {
+            return Integer.bitCount(entryMap);
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return array[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return array[2 * index + 1];
+        }
+
+        @Override
+        int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            return (Node) array[2 * Integer.bitCount(entryMap) + index];
+        }
+    }
+
+    /** A node for keys whose hashes are the same in every bit. */
+    private static final class CollisionNode extends Node {
+        final Object[] array;
+
+        CollisionNode(Object[] array) {
+            this.array = array;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            final int i = find(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            final int i = find(key);
+            if (i >= 0) {
+                if (value.equals(array[i + 1])) {
+                    return this;
+                }
+                change.old = array[i + 1];
+                return new CollisionNode(with(array, i + 1, value));
+            }
+            final Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(copy);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift, Change change) {
+            final int i = find(key);
+            if (i < 0) {
+                return this;
+            }
+            change.old = array[i + 1];
+            final Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(copy);
+        }
+
+        @Override
+        int entryCount() {
+            return array.length / 2;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return array[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return array[2 * index + 1];
+        }
+
+        @Override
+        int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /** A node holding two entries whose hashes agree below <code>shift</code>. */
+    private static Node merge(
+            Object key1,
+            Object value1,
+            int hash1,
+            Object key2,
+            Object value2,
+            int hash2,
+            int shift) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode(new Object[] {key1, value1, key2, value2});
+        }
+        final int bit1 = (hash1 >>> shift) & MASK;
+        final int bit2 = (hash2 >>> shift) & MASK;
+        if (bit1 == bit2) {
+            return new BitmapNode(
+                    0,
+                    1 << bit1,
+                    new Object[] {merge(key1, value1, hash1, key2, value2, hash2, shift + BITS)});
+        }
+        final Object[] array =
+                bit1 < bit2
+                        ? new Object[] {key1, value1, key2, value2}
+                        : new Object[] {key2, value2, key1, value1};
+        return new BitmapNode((1 << bit1) | (1 << bit2), 0, array);
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Walks the trie depth first, the entries of each node before the nodes below it. */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        /** The nodes on the path from the root, and the next entry or node to visit in each. */
+        private final Node[] nodes = new Node[Integer.SIZE / BITS + 2];
+        private final int[] positions = new int[nodes.length];
+        private int depth;
+        private int remaining = size;
+
+        EntryIterator() {
+            nodes[0] = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                final Node node = nodes[depth];
+                final int position = positions[depth]++;
+                final int entries = node.entryCount();
+                if (position < entries) {
+                    remaining--;
+                    return new SimpleImmutableEntry<>(
+                            (K) node.keyAt(position), (V) node.valueAt(position));
+                }
+                if (position < entries + node.nodeCount()) {
+                    depth++;
+                    nodes[depth] = node.nodeAt(position - entries);
+                    positions[depth] = 0;
+                } else {
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -65,4 +65,10 @@ public final class PrimBool extends Value {
     String toCedarExpr() {
         return value.toString();
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
 }
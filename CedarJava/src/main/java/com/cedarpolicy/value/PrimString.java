@@ -19,7 +19,7 @@ package com.cedarpolicy.value;
 import java.util.Objects;
 
 /** Represents a primitive Cedar string value. */
-public final class PrimString extends Value {
+public final class PrimString extends TextValue {
     /** Value. */
     public final String value;
 
@@ -62,4 +62,15 @@ public final class PrimString extends Value {
     String toCedarExpr() {
         return "\"" + value + "\"";
     }
+
+    /** Visit. */
+    @Override
+    public <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X {
+        return visitor.visit(this);
+    }
+
+    @Override
+    String text() {
+        return value;
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * A value that is serialized as a single JSON string: an entity UID, a string, or the argument of
+ * an extension value. The JSON and UTF-8 encodings of the string are cached after first use, so a
+ * value sent in many requests is only encoded once.
+ */
+abstract sealed class TextValue extends Value permits EntityUID, PrimString, IpAddress, Decimal {
+    /** The serialized form of this value, created when it is first serialized. */
+    private SerializedString serialized;
+
+    /** @return The string this value is serialized as. */
+    abstract String text();
+
+    /** @return The serialized string, with its encodings cached after first use. */
+    final SerializableString serializedString() {
+        SerializedString serialized = this.serialized;
+        if (serialized == null) {
+            serialized = new SerializedString(text());
+            this.serialized = serialized;
+        }
+        return serialized;
+    }
+}
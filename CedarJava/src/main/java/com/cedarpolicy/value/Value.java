@@ -19,9 +19,25 @@ package com.cedarpolicy.value;
 import com.cedarpolicy.serializer.ValueCedarDeserializer;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-/** A value in the Cedar language model. */
+/**
+ * A value in the Cedar language model. The kinds of value are fixed: a {@link ValueVisitor} handles
+ * each of them, so code that acts on values can dispatch with {@link #accept} instead of testing
+ * the class of the value.
+ */
 @JsonDeserialize(using = ValueCedarDeserializer.class)
-public abstract class Value {
+public abstract sealed class Value
+        permits TextValue, PrimBool, PrimLong, CedarList, CedarMap {
+    /**
+     * Call the method of a visitor for the kind of this value.
+     *
+     * @param visitor The visitor.
+     * @param <R> The type the visitor returns.
+     * @param <X> The type of exception the visitor throws.
+     * @return What the visitor returns.
+     * @throws X If the visitor throws.
+     */
+    public abstract <R, X extends Exception> R accept(ValueVisitor<R, X> visitor) throws X;
+
     /**
      * Convert the Value instance into a string containing the Cedar source code for the equivalent
      * Cedar value.
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy.value;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Serialize Value to Json. This is the implementation of {@link
+ * com.cedarpolicy.serializer.ValueCedarSerializer}, kept in this package so it can write entity
+ * UIDs, strings and the arguments of extension values from their cached serialized form.
+ */
+public class ValueJsonSerializer extends JsonSerializer<Value> {
+    private static final SerializableString ESCAPE_SEQ = new SerializedString("__expr");
+    private static final SerializableString EXTENSION_ESCAPE_SEQ = new SerializedString("__extn");
+    private static final SerializableString FN = new SerializedString("fn");
+    private static final SerializableString ARG = new SerializedString("arg");
+    private static final SerializableString IP = new SerializedString("ip");
+    private static final SerializableString DECIMAL = new SerializedString("decimal");
+
+    /** Serialize Value to Json. */
+    @Override
+    public void serialize(
+            Value value, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+            throws IOException {
+        value.accept(new Writer(jsonGenerator));
+    }
+
+    /**
+     * Writes a value and everything in it. Lists and records are written element by element,
+     * without looking up a serializer for each element.
+     */
+    private static final class Writer implements ValueVisitor<Void, IOException> {
+        private final JsonGenerator jsonGenerator;
+
+        Writer(JsonGenerator jsonGenerator) {
+            this.jsonGenerator = jsonGenerator;
+        }
+
+        @Override
+        public Void visit(EntityUID value) throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName(ESCAPE_SEQ);
+            jsonGenerator.writeString(value.serializedString());
+            jsonGenerator.writeEndObject();
+            return null;
+        }
+
+        @Override
+        public Void visit(PrimString value) throws IOException {
+            if (value.value == null) {
+                jsonGenerator.writeNull();
+            } else {
+                jsonGenerator.writeString(value.serializedString());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(PrimBool value) throws IOException {
+            jsonGenerator.writeBoolean(value.value);
+            return null;
+        }
+
+        @Override
+        public Void visit(PrimLong value) throws IOException {
+            jsonGenerator.writeNumber(value.value);
+            return null;
+        }
+
+        @Override
+        public Void visit(CedarList value) throws IOException {
+            jsonGenerator.writeStartArray();
+            for (Value v : value.list) {
+                write(v);
+            }
+            jsonGenerator.writeEndArray();
+            return null;
+        }
+
+        @Override
+        public Void visit(CedarMap value) throws IOException {
+            jsonGenerator.writeStartObject();
+            for (Map.Entry<String, Value> entry : value.map.entrySet()) {
+                jsonGenerator.writeFieldName(entry.getKey());
+                write(entry.getValue());
+            }
+            jsonGenerator.writeEndObject();
+            return null;
+        }
+
+        @Override
+        public Void visit(IpAddress value) throws IOException {
+            writeExtension(IP, value.serializedString());
+            return null;
+        }
+
+        @Override
+        public Void visit(Decimal value) throws IOException {
+            writeExtension(DECIMAL, value.serializedString());
+            return null;
+        }
+
+        private void write(Value value) throws IOException {
+            if (value == null) {
+                jsonGenerator.writeNull();
+            } else {
+                value.accept(this);
+            }
+        }
+
+        private void writeExtension(SerializableString fn, SerializableString arg)
+                throws IOException {
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName(EXTENSION_ESCAPE_SEQ);
+            jsonGenerator.writeStartObject();
+            jsonGenerator.writeFieldName(FN);
+            jsonGenerator.writeString(fn);
+            jsonGenerator.writeFieldName(ARG);
+            jsonGenerator.writeString(arg);
+            jsonGenerator.writeEndObject();
+            jsonGenerator.writeEndObject();
+        }
+    }
+}
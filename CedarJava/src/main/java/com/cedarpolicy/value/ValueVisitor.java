@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cedarpolicy.value;
+
+/**
+ * An operation on Cedar values, with a method for each kind of value.
+ *
+ * @param <R> The type the operation returns.
+ * @param <X> The type of exception the operation throws.
+ */
+public interface ValueVisitor<R, X extends Exception> {
+    /**
+     * Visit an entity UID.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(EntityUID value) throws X;
+
+    /**
+     * Visit a string.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(PrimString value) throws X;
+
+    /**
+     * Visit a boolean.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(PrimBool value) throws X;
+
+    /**
+     * Visit an integer.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(PrimLong value) throws X;
+
+    /**
+     * Visit a list.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(CedarList value) throws X;
+
+    /**
+     * Visit a record.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(CedarMap value) throws X;
+
+    /**
+     * Visit an IP address.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(IpAddress value) throws X;
+
+    /**
+     * Visit a decimal.
+     *
+     * @param value The value.
+     * @return The result.
+     * @throws X If the operation fails.
+     */
+    R visit(Decimal value) throws X;
+}
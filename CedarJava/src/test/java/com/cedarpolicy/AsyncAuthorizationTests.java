@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** Tests for authorization calls made on an engine's executor. */
+public class AsyncAuthorizationTests {
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(
+                            new Policy(
+                                    "permit(principal == User::\"alice\", action, resource);",
+                                    "p0")),
+                    Set.of(new Entity("User::\"alice\"")));
+
+    private static AuthorizationRequest request(String principal) {
+        return new AuthorizationRequest(
+                principal,
+                "Action::\"view\"",
+                "Photo::\"door\"",
+                new HashMap<>(),
+                Optional.empty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenQueryFutureHasSameDecisionAsSyncCall() throws Exception {
+        try (AuthorizationExecutor executor = new AuthorizationExecutor(2, 16)) {
+            WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine(executor);
+            for (String principal : new String[] {"User::\"alice\"", "User::\"bob\""}) {
+                AuthorizationRequest q = request(principal);
+                AuthorizationResponse sync = engine.isAuthorized(q, SLICE);
+                AuthorizationResponse async =
+                        engine.isAuthorizedAsync(q, SLICE).get(10, TimeUnit.SECONDS);
+                assertEquals(sync.getDecision(), async.getDecision(), principal);
+                assertEquals(sync.getReasons(), async.getReasons(), principal);
+            }
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenBadPolicyFutureFailsWithBadRequest() {
+        Slice bad = new BasicSlice(Set.of(new Policy("permit(", "p0")), Set.of());
+        try (AuthorizationExecutor executor = new AuthorizationExecutor(1, 16)) {
+            WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine(executor);
+            CompletableFuture<AuthorizationResponse> future =
+                    engine.isAuthorizedAsync(request("User::\"alice\""), bad);
+            ExecutionException e =
+                    assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(BadRequestException.class, e.getCause());
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenClosedExecutorFutureFailsWithRejection() {
+        AuthorizationExecutor executor = new AuthorizationExecutor(1, 16);
+        WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine(executor);
+        executor.close();
+        AuthorizationRequest q = request("User::\"alice\"");
+        CompletableFuture<AuthorizationResponse> future =
+                assertDoesNotThrow(() -> engine.isAuthorizedAsync(q, SLICE));
+        ExecutionException e =
+                assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the bounded executor asynchronous authorization calls run on. */
+public class AuthorizationExecutorTests {
+    /** Test. */
+    @Test
+    public void givenFullQueueCallsAreRejectedAndCounted() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (AuthorizationExecutor executor = new AuthorizationExecutor(1, 2)) {
+            executor.execute(
+                    () -> {
+                        started.countDown();
+                        assertDoesNotThrow(() -> release.await());
+                    });
+            started.await();
+            executor.execute(() -> {});
+            executor.execute(() -> {});
+            assertEquals(2, executor.getQueueDepth());
+            assertEquals(1, executor.getActiveCount());
+
+            RejectedExecutionException e =
+                    assertThrows(
+                            RejectedExecutionException.class, () -> executor.execute(() -> {}));
+            assertTrue(e.getMessage().contains("full"), e.getMessage());
+            assertEquals(1, executor.getRejectedCount());
+            release.countDown();
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenClosedExecutorCallsAreRejected() throws InterruptedException {
+        AuthorizationExecutor executor = new AuthorizationExecutor(1, 1);
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+        ran.await(10, TimeUnit.SECONDS);
+        executor.close();
+        RejectedExecutionException e =
+                assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertTrue(e.getMessage().contains("closed"), e.getMessage());
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    /** Test. */
+    @Test
+    public void givenInvalidSizesThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new AuthorizationExecutor(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AuthorizationExecutor(1, 0));
+    }
+}
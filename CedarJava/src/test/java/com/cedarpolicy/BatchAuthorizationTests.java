@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for evaluating many queries against one slice in a single call. */
+public class BatchAuthorizationTests {
+    private static WrapperAuthorizationEngine engine;
+
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(
+                            new Policy(
+                                    "permit(principal in Group::\"admins\", action, resource);",
+                                    "p0"),
+                            new Policy(
+                                    "forbid(principal, action == Action::\"delete\", resource);",
+                                    "p1")),
+                    Set.of(
+                            new Entity(
+                                    "User::\"alice\"", new HashMap<>(), Set.of("Group::\"admins\"")),
+                            new Entity("User::\"bob\""),
+                            new Entity("Group::\"admins\"")));
+
+    /** Test. */
+    @Test
+    public void givenBatchDecisionsMatchSingleQueries() {
+        List<AuthorizationRequest> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            for (String principal : List.of("User::\"alice\"", "User::\"bob\"")) {
+                for (String action : List.of("Action::\"view\"", "Action::\"delete\"")) {
+                    queries.add(
+                            new AuthorizationRequest(
+                                    principal,
+                                    action,
+                                    "Photo::\"" + i + "\"",
+                                    new HashMap<>(),
+                                    Optional.empty()));
+                }
+            }
+        }
+        List<AuthorizationResponse> batch =
+                assertDoesNotThrow(() -> engine.isAuthorizedBatch(queries, SLICE));
+        assertEquals(queries.size(), batch.size());
+        for (int i = 0; i < queries.size(); i++) {
+            AuthorizationRequest q = queries.get(i);
+            AuthorizationResponse single = assertDoesNotThrow(() -> engine.isAuthorized(q, SLICE));
+            assertEquals(single.getDecision(), batch.get(i).getDecision(), q.toString());
+            assertEquals(single.getReasons(), batch.get(i).getReasons(), q.toString());
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenEmptyBatchReturnsEmptyList() {
+        assertTrue(assertDoesNotThrow(() -> engine.isAuthorizedBatch(List.of(), SLICE)).isEmpty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenMixedSchemasThrows() {
+        Schema schema = assertDoesNotThrow(() -> new Schema("{}"));
+        List<AuthorizationRequest> queries =
+                List.of(
+                        new AuthorizationRequest(
+                                "User::\"alice\"",
+                                "Action::\"view\"",
+                                "Photo::\"door\"",
+                                new HashMap<>(),
+                                Optional.empty()),
+                        new AuthorizationRequest(
+                                "User::\"alice\"",
+                                "Action::\"view\"",
+                                "Photo::\"door\"",
+                                new HashMap<>(),
+                                Optional.of(schema)));
+        assertThrows(AuthException.class, () -> engine.isAuthorizedBatch(queries, SLICE));
+    }
+
+    @BeforeAll
+    private static void setUp() {
+        engine = new WrapperAuthorizationEngine();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.ValidationQuery;
+import com.cedarpolicy.model.ValidationResult;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.Value;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the decision cache in front of an authorization engine. */
+public class CachingAuthorizationEngineTests {
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(new Policy("permit(principal, action, resource);", "p0")),
+                    new HashSet<Entity>());
+
+    /** Engine that allows everything and counts its calls. */
+    private static final class CountingEngine implements AuthorizationEngine {
+        private int calls;
+
+        @Override
+        public AuthorizationResponse isAuthorized(AuthorizationRequest q, Slice slice) {
+            calls++;
+            return new AuthorizationResponse(
+                    AuthorizationResponse.Decision.Allow,
+                    new AuthorizationResponse.Diagnostics(Set.of("p0"), List.of()));
+        }
+
+        @Override
+        public ValidationResult validate(ValidationQuery q) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static AuthorizationRequest request(String principal, long level) {
+        Map<String, Value> context = Map.of("level", new PrimLong(level));
+        return new AuthorizationRequest(
+                Optional.of("User::\"" + principal + "\""),
+                "Action::\"view\"",
+                Optional.of("Photo::\"pic01\""),
+                context,
+                Optional.empty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenRepeatedRequestAnsweredFromCache() throws Exception {
+        CountingEngine engine = new CountingEngine();
+        CachingAuthorizationEngine cache =
+                new CachingAuthorizationEngine(engine, 10, Duration.ofMinutes(1));
+
+        AuthorizationResponse first = cache.isAuthorized(request("alice", 1), SLICE);
+        assertSame(first, cache.isAuthorized(request("alice", 1), SLICE));
+        assertEquals(1, engine.calls);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.isAuthorized(request("alice", 2), SLICE);
+        cache.isAuthorized(request("bob", 1), SLICE);
+        assertEquals(3, engine.calls);
+    }
+
+    /** Test. */
+    @Test
+    public void givenChangedSliceNotAnsweredFromCache() throws Exception {
+        CountingEngine engine = new CountingEngine();
+        CachingAuthorizationEngine cache =
+                new CachingAuthorizationEngine(engine, 10, Duration.ofMinutes(1));
+        Slice other =
+                new BasicSlice(
+                        Set.of(new Policy("forbid(principal, action, resource);", "p0")),
+                        new HashSet<Entity>());
+
+        cache.isAuthorized(request("alice", 1), SLICE);
+        cache.isAuthorized(request("alice", 1), other);
+        assertEquals(2, engine.calls);
+
+        cache.isAuthorized(request("alice", 1), SLICE, 7);
+        cache.isAuthorized(request("alice", 1), other, 7);
+        cache.isAuthorized(request("alice", 1), SLICE, 8);
+        assertEquals(4, engine.calls);
+    }
+
+    /** Test. */
+    @Test
+    public void givenSchemaKeyedOnItsContent() throws Exception {
+        CountingEngine engine = new CountingEngine();
+        CachingAuthorizationEngine cache =
+                new CachingAuthorizationEngine(engine, 10, Duration.ofMinutes(1));
+        String photos = "{\"\": {\"entityTypes\": {\"Photo\": {}}, \"actions\": {}}}";
+        String users = "{\"\": {\"entityTypes\": {\"User\": {}}, \"actions\": {}}}";
+
+        cache.isAuthorized(withSchema(new Schema(photos)), SLICE);
+        cache.isAuthorized(withSchema(new Schema(photos)), SLICE);
+        assertEquals(1, engine.calls);
+
+        cache.isAuthorized(withSchema(new Schema(users)), SLICE);
+        cache.isAuthorized(request("alice", 1), SLICE);
+        assertEquals(3, engine.calls);
+    }
+
+    private static AuthorizationRequest withSchema(Schema schema) {
+        return new AuthorizationRequest(
+                Optional.of("User::\"alice\""),
+                "Action::\"view\"",
+                Optional.of("Photo::\"pic01\""),
+                Map.of("level", new PrimLong(1L)),
+                Optional.of(schema));
+    }
+
+    /** Test. */
+    @Test
+    public void givenFullCacheLeastRecentlyUsedIsEvicted() throws Exception {
+        CountingEngine engine = new CountingEngine();
+        CachingAuthorizationEngine cache =
+                new CachingAuthorizationEngine(engine, 2, Duration.ofMinutes(1));
+
+        cache.isAuthorized(request("alice", 1), SLICE);
+        cache.isAuthorized(request("bob", 1), SLICE);
+        cache.isAuthorized(request("alice", 1), SLICE);
+        cache.isAuthorized(request("carol", 1), SLICE);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+
+        cache.isAuthorized(request("alice", 1), SLICE);
+        assertEquals(3, engine.calls);
+        cache.isAuthorized(request("bob", 1), SLICE);
+        assertEquals(4, engine.calls);
+    }
+
+    /** Test. */
+    @Test
+    public void givenExpiredEntryEngineIsCalledAgain() throws Exception {
+        CountingEngine engine = new CountingEngine();
+        AtomicLong now = new AtomicLong();
+        CachingAuthorizationEngine cache =
+                new CachingAuthorizationEngine(engine, 10, Duration.ofNanos(100), now::get);
+
+        cache.isAuthorized(request("alice", 1), SLICE);
+        now.set(99);
+        cache.isAuthorized(request("alice", 1), SLICE);
+        assertEquals(1, engine.calls);
+
+        now.set(100);
+        cache.isAuthorized(request("alice", 1), SLICE);
+        assertEquals(2, engine.calls);
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    /** Test. */
+    @Test
+    public void givenInvalidSettingsThrows() {
+        CountingEngine engine = new CountingEngine();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new CachingAuthorizationEngine(engine, 0, Duration.ofMinutes(1)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new CachingAuthorizationEngine(engine, 1, Duration.ZERO));
+    }
+}
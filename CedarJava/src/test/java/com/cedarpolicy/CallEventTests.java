@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.metrics.Counter;
+import com.cedarpolicy.metrics.Histogram;
+import com.cedarpolicy.metrics.InMemoryMetricsRegistry;
+import com.cedarpolicy.metrics.MetricNames;
+import com.cedarpolicy.metrics.MetricsRegistry;
+import com.cedarpolicy.metrics.Timer;
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the metrics and JFR events reported for calls into the native library. */
+public class CallEventTests {
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(
+                            new Policy(
+                                    "permit(principal == User::\"alice\", action, resource);",
+                                    "p0")),
+                    Set.of(new Entity("User::\"alice\""), new Entity("User::\"bob\"")));
+
+    private static AuthorizationRequest request(String principal) {
+        return new AuthorizationRequest(
+                principal, "Action::\"view\"", "Photo::\"pic\"", new HashMap<>(), Optional.empty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenRecordingCallEventsAreCommitted() throws Exception {
+        WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine();
+        Path file = Files.createTempFile("cedar", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.cedarpolicy.Call");
+            recording.start();
+            assertDoesNotThrow(() -> engine.isAuthorized(request("User::\"alice\""), SLICE));
+            assertDoesNotThrow(() -> engine.isAuthorized(request("User::\"bob\""), SLICE));
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events =
+                    RecordingFile.readAllEvents(file).stream()
+                            .filter(e -> e.getEventType().getName().equals("com.cedarpolicy.Call"))
+                            .collect(Collectors.toList());
+            assertEquals(2, events.size());
+            assertEquals(
+                    List.of("Allow", "Deny"),
+                    events.stream().map(e -> e.getString("decision")).collect(Collectors.toList()));
+            for (RecordedEvent event : events) {
+                assertEquals("AuthorizationOperation", event.getString("operation"));
+                assertEquals(1, event.getInt("slicePolicies"));
+                assertEquals(2, event.getInt("sliceEntities"));
+                assertTrue(event.getLong("requestSize") > 0);
+                assertTrue(event.getLong("nativeTime") > 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenMetricsRegistryCallsAreReported() {
+        InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+        WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine(metrics);
+        assertDoesNotThrow(() -> engine.isAuthorized(request("User::\"alice\""), SLICE));
+        assertDoesNotThrow(() -> engine.isAuthorized(request("User::\"bob\""), SLICE));
+
+        assertEquals(2, metrics.getCount(MetricNames.CALLS + "AuthorizationOperation"));
+        assertEquals(1, metrics.getCount(MetricNames.ALLOWED));
+        assertEquals(1, metrics.getCount(MetricNames.DENIED));
+        assertEquals(2, metrics.getTimers().get(MetricNames.NATIVE_TIME).getCount());
+        assertEquals(2, metrics.getHistograms().get(MetricNames.SLICE_ENTITIES).getMax());
+    }
+
+    /** Test. */
+    @Test
+    public void givenRuntimeExceptionErrorIsCountedAndRethrown() {
+        InMemoryMetricsRegistry recorded = new InMemoryMetricsRegistry();
+        IllegalStateException failure = new IllegalStateException("timer failed");
+        MetricsRegistry metrics =
+                new MetricsRegistry() {
+                    @Override
+                    public Counter counter(String name) {
+                        return recorded.counter(name);
+                    }
+
+                    @Override
+                    public Timer timer(String name) {
+                        if (name.equals(MetricNames.SERIALIZE_TIME)) {
+                            return nanos -> {
+                                throw failure;
+                            };
+                        }
+                        return recorded.timer(name);
+                    }
+
+                    @Override
+                    public Histogram histogram(String name) {
+                        return recorded.histogram(name);
+                    }
+                };
+        WrapperAuthorizationEngine engine = new WrapperAuthorizationEngine(metrics);
+
+        IllegalStateException thrown =
+                assertThrows(
+                        IllegalStateException.class,
+                        () -> engine.isAuthorized(request("User::\"alice\""), SLICE));
+        assertSame(failure, thrown);
+        assertEquals(1, recorded.getCount(MetricNames.ERRORS + "IllegalStateException"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.value.Decimal;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/** Tests for parsing and comparing decimals. */
+public class DecimalTests {
+    private static final Pattern SYNTAX = Pattern.compile("-?[0-9]*\\.[0-9]{0,4}");
+
+    /** The value of a decimal in ten-thousandths by BigDecimal, or null if it is not valid. */
+    private static Long expected(String s) {
+        String trimmed = s.trim();
+        if (!SYNTAX.matcher(trimmed).matches() || !trimmed.matches(".*[0-9].*")) {
+            return null;
+        }
+        BigInteger value = new BigDecimal(trimmed + "0").movePointRight(4).toBigIntegerExact();
+        return value.bitLength() < 64 ? value.longValue() : null;
+    }
+
+    private static Long parsed(String s) {
+        try {
+            return new Decimal(s).getUnscaledValue();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomStringsParserAgreesWithBigDecimal() {
+        String[] pieces = {"0", "1", "5", "9", "12", "922337203685477", "-", ".", " ", "e", "+"};
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder decimal = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                decimal.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String s = decimal.toString();
+            assertEquals(expected(s), parsed(s), s);
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenDecimalsValuesAreParsed() {
+        assertEquals(15000L, new Decimal("1.5").getUnscaledValue());
+        assertEquals(-12345L, new Decimal(" -1.2345 ").getUnscaledValue());
+        assertEquals(10000L, new Decimal("1.").getUnscaledValue());
+        assertEquals(5000L, new Decimal(".5").getUnscaledValue());
+        assertEquals(Long.MAX_VALUE, new Decimal("922337203685477.5807").getUnscaledValue());
+        assertEquals(Long.MIN_VALUE, new Decimal("-922337203685477.5808").getUnscaledValue());
+        assertEquals(" -1.2345 ", new Decimal(" -1.2345 ").toString());
+
+        for (String invalid :
+                new String[] {
+                    "", ".", "-.", "1", "1.23456", "1.2.3", "+1.0", "1e3", "922337203685477.5808",
+                    "-922337203685477.5809", "99999999999999999999."
+                }) {
+            assertThrows(IllegalArgumentException.class, () -> new Decimal(invalid), invalid);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Decimal(null));
+    }
+
+    /** Test. */
+    @Test
+    public void givenDecimalsTheyCompareByValue() {
+        Decimal one = new Decimal("1.0");
+        Decimal oneAndHalf = new Decimal("1.5");
+        assertEquals(new Decimal("1.5000"), oneAndHalf);
+        assertEquals(new Decimal("1.5000").hashCode(), oneAndHalf.hashCode());
+        assertEquals(new Decimal("0.0"), new Decimal("-0.0"));
+        assertNotEquals(one, oneAndHalf);
+
+        assertTrue(one.lessThan(oneAndHalf));
+        assertFalse(one.lessThan(one));
+        assertTrue(one.lessThanOrEqual(new Decimal("1.0000")));
+        assertTrue(oneAndHalf.greaterThan(one));
+        assertFalse(oneAndHalf.greaterThan(oneAndHalf));
+        assertTrue(oneAndHalf.greaterThanOrEqual(oneAndHalf));
+        assertTrue(new Decimal("-2.0").lessThan(new Decimal("-1.9999")));
+
+        List<Decimal> sorted = new ArrayList<>();
+        for (String d : new String[] {"3.1", "-0.5", "10.0", "0.25", "-12.0"}) {
+            sorted.add(new Decimal(d));
+        }
+        Collections.sort(sorted);
+        assertEquals("[-12.0, -0.5, 0.25, 3.1, 10.0]", sorted.toString());
+    }
+}
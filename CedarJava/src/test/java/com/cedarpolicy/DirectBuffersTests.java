@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static com.cedarpolicy.CedarJson.cborReader;
+import static com.cedarpolicy.CedarJson.cborWriter;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.slice.Entity;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the direct buffers requests and responses cross JNI in. */
+public class DirectBuffersTests {
+    /** Test. */
+    @Test
+    public void givenLargeRequestInputBufferGrows() {
+        DirectBuffers buffers = DirectBuffers.forCurrentThread();
+        Set<Entity> entities = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            entities.add(new Entity("User::\"" + i + "\""));
+        }
+        int length = assertDoesNotThrow(() -> buffers.writeRequest(cborWriter(), entities));
+        assertTrue(length > 64 * 1024);
+        assertTrue(buffers.input().isDirect());
+
+        ByteBuffer request = buffers.input().duplicate();
+        request.flip();
+        byte[] bytes = new byte[length];
+        request.get(bytes);
+        JsonNode decoded = assertDoesNotThrow(() -> cborReader().readTree(bytes));
+        assertEquals(entities.size(), decoded.size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenSameThreadBuffersAreReused() {
+        DirectBuffers buffers = DirectBuffers.forCurrentThread();
+        assertSame(buffers, DirectBuffers.forCurrentThread());
+        ByteBuffer output = buffers.growOutput(buffers.output().capacity() + 1);
+        assertSame(output, buffers.output());
+        assertTrue(output.isDirect());
+    }
+
+    /** Test. */
+    @Test
+    public void givenOversizedBuffersTrimShrinksThem() {
+        DirectBuffers buffers = DirectBuffers.forCurrentThread();
+        ByteBuffer small = buffers.growOutput(DirectBuffers.MAX_RETAINED_CAPACITY);
+        buffers.trim();
+        assertSame(small, buffers.output());
+
+        buffers.growOutput(DirectBuffers.MAX_RETAINED_CAPACITY + 1);
+        buffers.trim();
+        assertTrue(buffers.output().capacity() <= DirectBuffers.MAX_RETAINED_CAPACITY);
+        assertTrue(buffers.output().isDirect());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.EntityGraph;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Tests for keeping the ancestors of an entity hierarchy up to date. */
+public class EntityGraphTests {
+    private static final String ADMIN = "Role::\"Admin\"";
+    private static final String MANAGER = "Role::\"Manager\"";
+    private static final String CREW = "Role::\"7th Crew\"";
+    private static final String ALICE = "User::\"alice\"";
+
+    private static Entity entity(String uid, String... parents) {
+        return new Entity(uid, new HashMap<>(), Set.of(parents));
+    }
+
+    private static EntityGraph chain() {
+        return new EntityGraph(
+                List.of(
+                        entity(ALICE, CREW),
+                        entity(CREW, MANAGER),
+                        entity(MANAGER, ADMIN),
+                        entity(ADMIN)));
+    }
+
+    /** Test. */
+    @Test
+    public void givenChainAncestorsAreClosed() {
+        EntityGraph graph = chain();
+        assertEquals(4, graph.size());
+        assertEquals(Set.of(CREW, MANAGER, ADMIN), graph.ancestors(ALICE));
+        assertEquals(Set.of(MANAGER, ADMIN), graph.ancestors(CREW));
+        assertEquals(Set.of(), graph.ancestors(ADMIN));
+        assertEquals(Set.of(CREW, MANAGER, ADMIN), graph.ancestors("User :: \"alice\""));
+    }
+
+    /** Test. */
+    @Test
+    public void givenParentEditsDescendantsAreUpdated() {
+        EntityGraph graph = chain();
+        graph.put(entity("Role::\"Owner\""));
+        graph.addParent(ADMIN, "Role::\"Owner\"");
+        assertEquals(Set.of(CREW, MANAGER, ADMIN, "Role::\"Owner\""), graph.ancestors(ALICE));
+
+        assertTrue(graph.removeParent(CREW, MANAGER));
+        assertFalse(graph.removeParent(CREW, MANAGER));
+        assertEquals(Set.of(CREW), graph.ancestors(ALICE));
+        assertEquals(Set.of(ADMIN, "Role::\"Owner\""), graph.ancestors(MANAGER));
+    }
+
+    /** Test. */
+    @Test
+    public void givenDiamondRemovingOnePathKeepsTheOther() {
+        EntityGraph graph = chain();
+        graph.addParent(ALICE, MANAGER);
+        graph.removeParent(ALICE, CREW);
+        assertEquals(Set.of(MANAGER, ADMIN), graph.ancestors(ALICE));
+        graph.addParent(ALICE, CREW);
+        graph.removeParent(CREW, MANAGER);
+        assertEquals(Set.of(CREW, MANAGER, ADMIN), graph.ancestors(ALICE));
+    }
+
+    /** Test. */
+    @Test
+    public void givenCycleEditIsRejected() {
+        EntityGraph graph = chain();
+        assertThrows(IllegalArgumentException.class, () -> graph.addParent(ADMIN, ALICE));
+        assertThrows(IllegalArgumentException.class, () -> graph.addParent(ADMIN, ADMIN));
+        assertThrows(IllegalArgumentException.class, () -> graph.put(entity(MANAGER, CREW)));
+        assertEquals(Set.of(), graph.ancestors(ADMIN));
+        assertEquals(Set.of(ADMIN), graph.ancestors(MANAGER));
+    }
+
+    /** Test. */
+    @Test
+    public void givenRemovedEntityChildrenKeepItAsParent() {
+        EntityGraph graph = chain();
+        assertTrue(graph.remove(MANAGER));
+        assertFalse(graph.remove(MANAGER));
+        assertFalse(graph.contains(MANAGER));
+        assertEquals(3, graph.size());
+        assertEquals(Set.of(CREW, MANAGER), graph.ancestors(ALICE));
+    }
+
+    /** Test. */
+    @Test
+    public void givenParentAddedLaterItsAncestorsAreInherited() {
+        EntityGraph graph = new EntityGraph(List.of(entity(ALICE, CREW)));
+        assertEquals(Set.of(CREW), graph.ancestors(ALICE));
+        graph.put(entity(CREW, MANAGER));
+        graph.put(entity(MANAGER, ADMIN));
+        assertEquals(Set.of(CREW, MANAGER, ADMIN), graph.ancestors(ALICE));
+        assertThrows(
+                IllegalArgumentException.class, () -> graph.addParent("User::\"bob\"", ALICE));
+    }
+
+    /** Test. */
+    @Test
+    public void givenGraphEntitiesHaveClosedParents() {
+        Map<String, Set<String>> parents =
+                chain().toEntities().stream()
+                        .collect(Collectors.toMap(e -> e.uid, e -> e.parents));
+        assertEquals(
+                Map.of(
+                        ALICE, Set.of(CREW, MANAGER, ADMIN),
+                        CREW, Set.of(MANAGER, ADMIN),
+                        MANAGER, Set.of(ADMIN),
+                        ADMIN, Set.of()),
+                parents);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.value.EntityUID;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/** Tests for parsing and building entity UIDs. */
+public class EntityUIDTests {
+    /** The regular expression entity UIDs used to be checked against. */
+    private static final Pattern REGEX =
+            Pattern.compile(
+                    "^([A-Za-z_]([A-Za-z0-9_])*::)+\""
+                            + "([^\\\"\\\\]|\\\\\\\\|\\\\\\\"|\\\\u[A-Fa-f0-9]{4,6})*\"$");
+
+    private static boolean validByRegex(String euid) {
+        if (euid == null || euid.isEmpty()) {
+            return false;
+        }
+        String trimmed = euid.trim();
+        return trimmed.length() <= 1024 && REGEX.matcher(trimmed).matches();
+    }
+
+    private static boolean valid(String euid) {
+        try {
+            new EntityUID(euid);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomStringsParserAgreesWithRegex() {
+        String[] pieces = {
+            "A", "z", "_", "9", ":", "::", "\"", "\\", "\\\\", "\\\"", "\\u", "00", "fF", "G",
+            " ", "é"
+        };
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder euid = new StringBuilder();
+            if (random.nextBoolean()) {
+                euid.append("Notion::User::\"");
+            }
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                euid.append(pieces[random.nextInt(pieces.length)]);
+            }
+            if (random.nextBoolean()) {
+                euid.append('"');
+            }
+            String s = euid.toString();
+            assertEquals(validByRegex(s), valid(s), s);
+        }
+        String longId = "User::\"" + "a".repeat(1016) + "\"";
+        assertEquals(1024, longId.length());
+        assertEquals(validByRegex(longId), valid(longId));
+        assertEquals(validByRegex(longId + " "), valid(longId + " "));
+        assertEquals(validByRegex("a" + longId), valid("a" + longId));
+    }
+
+    /** Test. */
+    @Test
+    public void givenEntityUIDPartsAreParsed() {
+        EntityUID uid = new EntityUID(" Notion::Workspace::User::\"al\\\"i\\\\ce\\u00e9\" ");
+        assertEquals(List.of("Notion", "Workspace"), uid.getNamespace());
+        assertEquals("User", uid.getTypeName());
+        assertEquals("Notion::Workspace::User", uid.getType());
+        assertEquals("al\"i\\ce\u00e9", uid.getId());
+
+        EntityUID plain = new EntityUID("User::\"\"");
+        assertEquals(List.of(), plain.getNamespace());
+        assertEquals("User", plain.getTypeName());
+        assertEquals("", plain.getId());
+
+        assertEquals("\uD83D\uDE00x", new EntityUID("A::\"\\u1F600x\"").getId());
+        assertEquals("\u0410", new EntityUID("A::\"\\u00410\"").getId());
+        assertEquals("\uDBFF\uDFFF0", new EntityUID("A::\"\\u10FFFF0\"").getId());
+        assertEquals(
+                new StringBuilder().appendCodePoint(0x789AB).append("456").toString(),
+                new EntityUID("A::\"\\u789AB456\"").getId());
+    }
+
+    /** Test. */
+    @Test
+    public void givenTypeAndIdUIDIsEscapedAndShared() {
+        EntityUID uid = EntityUID.of("Notion::User", "김\"수\\빈");
+        assertEquals("Notion::User::\"김\\\"수\\\\빈\"", uid.euid);
+        assertEquals("김\"수\\빈", uid.getId());
+        assertEquals("User", uid.getTypeName());
+        assertEquals(uid, new EntityUID(uid.euid));
+        assertEquals("김\"수\\빈", new EntityUID(uid.euid).getId());
+        assertSame(uid, EntityUID.of("Notion::User", "김\"수\\빈"));
+        assertSame(uid, EntityUID.valueOf(uid.euid));
+
+        assertThrows(IllegalArgumentException.class, () -> EntityUID.of("Notion:User", "a"));
+        assertThrows(IllegalArgumentException.class, () -> EntityUID.of("Notion::", "a"));
+        assertThrows(IllegalArgumentException.class, () -> EntityUID.of("", "a"));
+        assertThrows(IllegalArgumentException.class, () -> EntityUID.of("User", "a".repeat(1020)));
+        assertThrows(IllegalArgumentException.class, () -> EntityUID.valueOf("User::alice"));
+    }
+
+    /** Test. */
+    @Test
+    public void givenSameTextUIDsAreEqual() {
+        EntityUID uid = new EntityUID("User::\"alice\"");
+        EntityUID padded = new EntityUID("  User::\"alice\"\n");
+        assertEquals(uid, padded);
+        assertEquals(uid.hashCode(), padded.hashCode());
+        assertNotEquals(uid, new EntityUID("User::\"bob\""));
+        assertNotEquals(uid, new EntityUID("Admin::\"alice\""));
+    }
+}
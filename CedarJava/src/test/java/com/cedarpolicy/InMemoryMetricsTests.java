@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.metrics.InMemoryHistogram;
+import com.cedarpolicy.metrics.InMemoryMetricsRegistry;
+import com.cedarpolicy.metrics.MetricsRegistry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the in-memory metrics registry and its histograms. */
+public class InMemoryMetricsTests {
+    /** Test. */
+    @Test
+    public void givenSmallValuesPercentilesAreExact() {
+        InMemoryHistogram histogram = new InMemoryHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    /** Test. */
+    @Test
+    public void givenLargeValuesPercentilesAreWithinPrecision() {
+        InMemoryHistogram histogram = new InMemoryHistogram();
+        Random random = new Random(0x5eed);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + (long) (random.nextDouble() * 50_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact, percentile + ": " + reported + " < " + exact);
+            assertTrue(reported <= exact * 1.016, percentile + ": " + reported + " >> " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    /** Test. */
+    @Test
+    public void givenExtremeValuesTheyAreRecorded() {
+        InMemoryHistogram histogram = new InMemoryHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getMin());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    /** Test. */
+    @Test
+    public void givenEmptyHistogramStatisticsAreZero() {
+        InMemoryHistogram histogram = new InMemoryHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    /** Test. */
+    @Test
+    public void givenRegistryMetricsAreKeptByName() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        registry.counter("calls").increment();
+        registry.counter("calls").increment();
+        registry.counter("errors").increment();
+        registry.timer("native").recordNanos(1_000);
+        registry.histogram("size").record(42);
+
+        assertEquals(2, registry.getCount("calls"));
+        assertEquals(0, registry.getCount("unused"));
+        assertEquals(Map.of("calls", 2L, "errors", 1L), registry.getCounts());
+        assertSame(registry.timer("native"), registry.getTimers().get("native"));
+        assertEquals(1_000, registry.getTimers().get("native").getMax());
+        assertEquals(42, registry.getHistograms().get("size").getMax());
+        assertEquals(1, registry.getHistograms().size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenNoopRegistryNothingIsKept() {
+        MetricsRegistry registry = MetricsRegistry.noop();
+        registry.counter("calls").increment();
+        registry.timer("native").recordNanos(1);
+        registry.histogram("size").record(1);
+        assertSame(registry, MetricsRegistry.noop());
+    }
+}
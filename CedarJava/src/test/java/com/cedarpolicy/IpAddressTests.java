@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.value.IpAddress;
+import com.cedarpolicy.value.IpRangeSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/** Tests for parsing IP addresses and matching them against ranges. */
+public class IpAddressTests {
+    /** The regular expressions addresses used to be checked against. */
+    private static final Pattern IPV4 =
+            Pattern.compile(
+                    "^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.)"
+                            + "{3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
+
+    private static final Pattern IPV6 =
+            Pattern.compile(
+                    "^(([0-9A-Fa-f]{1,4}:){7}([0-9A-Fa-f]{1,4}|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:){6}(:[0-9A-Fa-f]{1,4}|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:){5}(((:[0-9A-Fa-f]{1,4}){1,2})|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:){4}(((:[0-9A-Fa-f]{1,4}){1,3})|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:){3}(((:[0-9A-Fa-f]{1,4}){1,4})|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:){2}(((:[0-9A-Fa-f]{1,4}){1,5})|:))|"
+                            + "(([0-9A-Fa-f]{1,4}:)(((:[0-9A-Fa-f]{1,4}){1,6})|:))|"
+                            + "((:)(((:[0-9A-Fa-f]{1,4}){1,7})|:))|$");
+
+    private static boolean validByRegex(String ip) {
+        String trimmed = ip.trim();
+        return (trimmed.length() >= 6 && trimmed.length() <= 15 && IPV4.matcher(trimmed).matches())
+                || (trimmed.length() >= 3
+                        && trimmed.length() <= 39
+                        && IPV6.matcher(trimmed).matches());
+    }
+
+    private static boolean valid(String ip) {
+        try {
+            new IpAddress(ip);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomStringsParserAcceptsWhatRegexDid() {
+        String[] pieces = {
+            "1", "25", "255", "256", "0", ".", ":", "::", "ab", "FfFf", "g", " ", "/"
+        };
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder ip = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                ip.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String s = ip.toString();
+            if (validByRegex(s)) {
+                assertTrue(valid(s), s);
+            }
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenAddressesAreParsed() {
+        assertTrue(new IpAddress("192.168.1.0").isIpv4());
+        assertEquals(32, new IpAddress(" 192.168.1.0 ").getPrefixLength());
+        assertEquals(24, new IpAddress("192.168.1.0/24").getPrefixLength());
+        assertTrue(new IpAddress("::").isIpv6());
+        assertEquals(128, new IpAddress("1:2:3:4:5:6:7:8").getPrefixLength());
+        assertEquals(new IpAddress("::1"), new IpAddress("0:0:0:0:0:0:0:1"));
+        assertEquals(new IpAddress("fe80::1:0:0:0/64"), new IpAddress("FE80:0::1:0:0:0/64"));
+        assertEquals(new IpAddress("10.0.0.1").hashCode(), new IpAddress("10.0.0.01").hashCode());
+        assertNotEquals(new IpAddress("10.0.0.0/8"), new IpAddress("10.0.0.0/9"));
+        assertNotEquals(new IpAddress("0.0.0.0/0"), new IpAddress("::/0"));
+
+        for (String invalid :
+                new String[] {
+                    "", "1.2.3", "1.2.3.4.5", "1.2.3.256", "1.2.3.4/33", "1.2.3.4/",
+                    "1.2.3.4/0024", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::",
+                    ":1:2:3:4:5:6:7", "1::/129", "12345::", "::ffff:127.0.0.1", "1.2.3.4/8/8"
+                }) {
+            assertThrows(IllegalArgumentException.class, () -> new IpAddress(invalid), invalid);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new IpAddress(null));
+    }
+
+    /** Test. */
+    @Test
+    public void givenRangesAddressesAreClassified() {
+        assertTrue(new IpAddress("10.1.2.3").isInRange(new IpAddress("10.0.0.0/8")));
+        assertTrue(new IpAddress("10.1.0.0/16").isInRange(new IpAddress("10.0.0.0/8")));
+        assertFalse(new IpAddress("10.0.0.0/8").isInRange(new IpAddress("10.1.0.0/16")));
+        assertFalse(new IpAddress("11.0.0.1").isInRange(new IpAddress("10.0.0.0/8")));
+        assertTrue(new IpAddress("11.0.0.1").isInRange(new IpAddress("0.0.0.0/0")));
+        assertFalse(new IpAddress("::1").isInRange(new IpAddress("0.0.0.0/0")));
+        assertTrue(new IpAddress("2001:db8::1").isInRange(new IpAddress("2001:db8::/32")));
+        assertTrue(new IpAddress("2001:db8::1").isInRange(new IpAddress("2001:db8::/127")));
+        assertFalse(new IpAddress("2001:db8::2").isInRange(new IpAddress("2001:db8::/127")));
+
+        assertTrue(new IpAddress("127.0.0.1").isLoopback());
+        assertTrue(new IpAddress("127.0.0.0/8").isLoopback());
+        assertFalse(new IpAddress("127.0.0.0/7").isLoopback());
+        assertTrue(new IpAddress("::1").isLoopback());
+        assertFalse(new IpAddress("::2").isLoopback());
+        assertTrue(new IpAddress("224.0.0.1").isMulticast());
+        assertTrue(new IpAddress("239.255.255.255").isMulticast());
+        assertFalse(new IpAddress("240.0.0.1").isMulticast());
+        assertTrue(new IpAddress("ff02::1").isMulticast());
+        assertFalse(new IpAddress("fe02::1").isMulticast());
+    }
+
+    /** Test. */
+    @Test
+    public void givenRangeSetItAgreesWithCheckingEachRange() {
+        Random random = new Random(7);
+        List<IpAddress> ranges = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ranges.add(random.nextInt(4) == 0 ? randomIpv6(random) : randomIpv4(random));
+        }
+        IpRangeSet set = new IpRangeSet(ranges);
+        for (int i = 0; i < 20000; i++) {
+            IpAddress ip = random.nextInt(4) == 0 ? randomIpv6(random) : randomIpv4(random);
+            IpAddress longest = null;
+            for (IpAddress range : ranges) {
+                if (ip.isInRange(range)
+                        && (longest == null
+                                || range.getPrefixLength() > longest.getPrefixLength())) {
+                    longest = range;
+                }
+            }
+            assertEquals(longest != null, set.contains(ip), ip.toString());
+            assertEquals(Optional.ofNullable(longest), set.longestMatch(ip), ip.toString());
+        }
+
+        IpRangeSet small =
+                new IpRangeSet(
+                        List.of(
+                                new IpAddress("10.0.0.0/8"),
+                                new IpAddress("10.1.2.3/8"),
+                                new IpAddress("10.1.0.0/16")));
+        assertEquals(2, small.size());
+        assertEquals(
+                Optional.of(new IpAddress("10.1.0.0/16")),
+                small.longestMatch(new IpAddress("10.1.9.9")));
+        assertEquals(
+                Optional.of(new IpAddress("10.0.0.0/8")),
+                small.longestMatch(new IpAddress("10.2.9.9")));
+        assertFalse(small.contains(new IpAddress("0.0.0.0/0")));
+        assertFalse(small.contains(new IpAddress("::a00:1")));
+        assertFalse(new IpRangeSet(List.of()).contains(new IpAddress("10.0.0.1")));
+        assertTrue(new IpRangeSet(List.of(new IpAddress("::/0"))).contains(new IpAddress("::1")));
+    }
+
+    /** Addresses clustered in a few networks, so that ranges overlap. */
+    private static IpAddress randomIpv4(Random random) {
+        return new IpAddress(
+                "10."
+                        + random.nextInt(4)
+                        + "."
+                        + random.nextInt(256)
+                        + "."
+                        + random.nextInt(256)
+                        + "/"
+                        + (8 + random.nextInt(25)));
+    }
+
+    private static IpAddress randomIpv6(Random random) {
+        return new IpAddress(
+                "2001:db8:"
+                        + Integer.toHexString(random.nextInt(4))
+                        + "::"
+                        + Integer.toHexString(random.nextInt(65536))
+                        + "/"
+                        + (32 + random.nextInt(97)));
+    }
+}
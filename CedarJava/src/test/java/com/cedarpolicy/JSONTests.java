@@ -16,6 +16,8 @@
 
 package com.cedarpolicy;
 
+import static com.cedarpolicy.CedarJson.cborReader;
+import static com.cedarpolicy.CedarJson.cborWriter;
 import static com.cedarpolicy.CedarJson.objectReader;
 import static com.cedarpolicy.CedarJson.objectWriter;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -26,20 +28,35 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import com.cedarpolicy.model.AuthorizationRequest;
 import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.exception.InvalidValueDeserializationException;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
 import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.Decimal;
 import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.IpAddress;
 import com.cedarpolicy.value.PrimBool;
 import com.cedarpolicy.value.PrimLong;
 import com.cedarpolicy.value.PrimString;
 import com.cedarpolicy.value.Value;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 /** Test. JSON (de)serialization */
@@ -177,4 +194,195 @@ public class JSONTests {
 
         assertJSONEqual(listJson, l);
     }
+
+    /** Test. */
+    @Test
+    public void testExtensions() {
+        IpAddress ip = new IpAddress("192.168.1.0");
+        ObjectNode ipJson = JsonNodeFactory.instance.objectNode();
+        ipJson.putObject("__extn").put("fn", "ip").put("arg", "192.168.1.0");
+        assertJSONEqual(ipJson, ip);
+        assertJSONEqual(ipJson, ip);
+
+        Decimal decimal = new Decimal("1.2345");
+        ObjectNode decimalJson = JsonNodeFactory.instance.objectNode();
+        decimalJson.putObject("__extn").put("fn", "decimal").put("arg", "1.2345");
+        assertJSONEqual(decimalJson, decimal);
+        assertJSONEqual(decimalJson, decimal);
+    }
+
+    /** Test. Values are written the same way each time, inside records and lists. */
+    @Test
+    public void testRecord() {
+        EntityUID owner = new EntityUID("User::\"al\\\"ice\"");
+        PrimString title = new PrimString("\"quoted\" caf\u00e9");
+        CedarList tags = new CedarList();
+        tags.add(title);
+        tags.add(new PrimBool(true));
+        CedarMap inner = new CedarMap();
+        inner.put("owner", owner);
+        CedarMap record = new CedarMap();
+        record.put("title", title);
+        record.put("tags", tags);
+        record.put("inner", inner);
+        record.put("size", new PrimLong(-7L));
+
+        ObjectNode recordJson = JsonNodeFactory.instance.objectNode();
+        recordJson.put("title", title.value);
+        recordJson.putArray("tags").add(title.value).add(true);
+        recordJson.putObject("inner").putObject("owner").put(ESCAPE_SEQ, owner.euid);
+        recordJson.put("size", -7);
+
+        for (int i = 0; i < 2; i++) {
+            String json = assertDoesNotThrow(() -> objectWriter().writeValueAsString(record));
+            byte[] cbor = assertDoesNotThrow(() -> cborWriter().writeValueAsBytes(record));
+            assertEquals(recordJson, assertDoesNotThrow(() -> objectReader().readTree(json)));
+            assertEquals(recordJson, assertDoesNotThrow(() -> cborReader().readTree(cbor)));
+        }
+    }
+
+    private static Value readValue(String json) throws JsonProcessingException {
+        return objectReader().forType(Value.class).readValue(json);
+    }
+
+    /** Test. */
+    @Test
+    public void testDeserializeValues() {
+        String json =
+                "[3000000000, true, \"hello\", {\"__entity\": \"User::\\\"alice\\\"\"},"
+                        + " {\"__extn\": {\"fn\": \"ip\", \"arg\": \"192.168.1.0\"}},"
+                        + " {\"__extn\": {\"arg\": \"1.2345\", \"fn\": \"decimal\"}},"
+                        + " [[]], {\"__expr\": \"x\"}, {}]";
+        CedarList expected = new CedarList();
+        expected.add(new PrimLong(3000000000L));
+        expected.add(new PrimBool(true));
+        expected.add(new PrimString("hello"));
+        expected.add(new EntityUID("User::\"alice\""));
+        expected.add(new IpAddress("192.168.1.0"));
+        expected.add(new Decimal("1.2345"));
+        expected.add(new CedarList(List.of(new CedarList())));
+        expected.add(new CedarMap(Map.of("__expr", new PrimString("x"))));
+        expected.add(new CedarMap());
+
+        String expectedJson = assertDoesNotThrow(() -> objectWriter().writeValueAsString(expected));
+        byte[] expectedCbor = assertDoesNotThrow(() -> cborWriter().writeValueAsBytes(expected));
+        Value fromJson = assertDoesNotThrow(() -> readValue(json));
+        Value fromCbor =
+                assertDoesNotThrow(
+                        () -> cborReader().forType(Value.class).readValue(expectedCbor));
+        assertJSONEqual(assertDoesNotThrow(() -> objectReader().readTree(expectedJson)), fromJson);
+        assertJSONEqual(assertDoesNotThrow(() -> objectReader().readTree(expectedJson)), fromCbor);
+    }
+
+    /** Test. */
+    @Test
+    public void testDeserializeInvalidValues() {
+        for (String json :
+                List.of(
+                        "{\"a\": 1}",
+                        "{\"__entity\": 1}",
+                        "{\"__entity\": \"User::\\\"alice\\\"\", \"__expr\": \"x\"}",
+                        "{\"__expr\": \"x\", \"__extn\": {\"fn\": \"ip\"}}",
+                        "{\"__extn\": {\"fn\": \"date\", \"arg\": \"2023-01-01\"}}",
+                        "{\"__extn\": {\"fn\": \"ip\"}}",
+                        "{\"__extn\": \"ip\"}",
+                        "100000000000000000000")) {
+            assertThrows(
+                    InvalidValueDeserializationException.class, () -> readValue(json), json);
+        }
+        assertThrows(NullPointerException.class, () -> readValue("[null]"));
+    }
+
+    /** Test. The CBOR and JSON encodings carry the same tree. */
+    @Test
+    public void testCborMatchesJson() {
+        CedarList l = new CedarList();
+        l.add(new PrimLong(3000000000L));
+        l.add(new EntityUID("silver::\"jakob\""));
+        l.add(new PrimString("hello world"));
+        AuthorizationRequest q =
+                new AuthorizationRequest(
+                        "gandalf", "opens", "moria", Map.of("items", l), Optional.empty());
+        JsonNode json =
+                assertDoesNotThrow(() -> objectReader().readTree(objectWriter().writeValueAsString(q)));
+        JsonNode cbor =
+                assertDoesNotThrow(() -> cborReader().readTree(cborWriter().writeValueAsBytes(q)));
+        assertEquals(json, cbor);
+    }
+
+    /** Test. Entities are streamed in the format Cedar reads them from. */
+    @Test
+    public void testSlice() {
+        Slice slice =
+                new BasicSlice(
+                        Set.of(new Policy("permit(principal, action, resource);", "p0")),
+                        Set.of(
+                                new Entity(
+                                        "User::\"alice\"",
+                                        Map.of("age", new PrimLong(30L)),
+                                        Set.of("Group::\"admins\""))));
+        ObjectNode expected = JsonNodeFactory.instance.objectNode();
+        expected.putObject("policies").put("p0", "permit(principal, action, resource);");
+        ObjectNode entity = expected.putArray("entities").addObject();
+        entity.putObject("uid").put(ESCAPE_SEQ, "User::\"alice\"");
+        entity.putObject("attrs").put("age", 30L);
+        entity.putArray("parents").addObject().put(ESCAPE_SEQ, "Group::\"admins\"");
+        expected.putObject("templates");
+        expected.putArray("template_instantiations");
+        assertJSONEqual(expected, slice);
+    }
+
+    /** Test. Policies are sorted by ID when map entries are ordered by key. */
+    @Test
+    public void testSlicePoliciesOrderedByKey() {
+        Map<String, String> policies = new LinkedHashMap<>();
+        policies.put("p1", "forbid(principal, action, resource);");
+        policies.put("p0", "permit(principal, action, resource);");
+        Slice slice = new OrderedSlice(policies);
+        String json =
+                assertDoesNotThrow(
+                        () ->
+                                objectWriter()
+                                        .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                                        .writeValueAsString(slice));
+        assertTrue(json.indexOf("\"p0\"") < json.indexOf("\"p1\""), json);
+    }
+
+    private static final class OrderedSlice implements Slice {
+        private final Map<String, String> policies;
+
+        OrderedSlice(Map<String, String> policies) {
+            this.policies = policies;
+        }
+
+        @Override
+        public Map<String, String> getPolicies() {
+            return policies;
+        }
+
+        @Override
+        public Map<String, Map<String, Value>> getAttributes() {
+            return Map.of();
+        }
+
+        @Override
+        public Map<String, List<String>> getParents() {
+            return Map.of();
+        }
+
+        @Override
+        public Set<Entity> getEntities() {
+            return Set.of();
+        }
+
+        @Override
+        public Map<String, String> getTemplates() {
+            return Map.of();
+        }
+
+        @Override
+        public List<TemplateInstantiation> getTemplateInstantiations() {
+            return List.of();
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for entity stores kept in the native library. */
+public class NativeEntityStoreTests {
+    private static WrapperAuthorizationEngine engine;
+    private static NativePolicySet policySet;
+
+    private static final AuthorizationRequest REQUEST =
+            new AuthorizationRequest(
+                    "User::\"alice\"",
+                    "Action::\"view\"",
+                    "Photo::\"door\"",
+                    new HashMap<>(),
+                    Optional.empty());
+
+    /** Test. */
+    @Test
+    public void givenUpsertAndRemoveDecisionFollowsHierarchy() {
+        Set<Entity> entities = Set.of(new Entity("User::\"alice\""), new Entity("Photo::\"door\""));
+        try (NativeEntityStore store = assertDoesNotThrow(() -> engine.createEntityStore(entities))) {
+            assertEquals(1, store.getVersion());
+            assertFalse(
+                    assertDoesNotThrow(() -> engine.isAuthorized(REQUEST, policySet, store))
+                            .isAllowed());
+
+            Entity admin =
+                    new Entity("User::\"alice\"", new HashMap<>(), Set.of("Group::\"admins\""));
+            assertEquals(2, assertDoesNotThrow(() -> store.upsert(admin)));
+            assertTrue(
+                    assertDoesNotThrow(() -> engine.isAuthorized(REQUEST, policySet, store))
+                            .isAllowed());
+
+            assertEquals(3, assertDoesNotThrow(() -> store.remove("User::\"alice\"")));
+            assertEquals(3, store.getVersion());
+            assertFalse(
+                    assertDoesNotThrow(() -> engine.isAuthorized(REQUEST, policySet, store))
+                            .isAllowed());
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenInvalidRemovalStoreIsUnchanged() {
+        try (NativeEntityStore store =
+                assertDoesNotThrow(() -> engine.createEntityStore(Set.of()))) {
+            assertThrows(BadRequestException.class, () -> store.remove("not a uid"));
+            assertEquals(1, store.getVersion());
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenClosedEntityStoreThrows() {
+        NativeEntityStore store = assertDoesNotThrow(() -> engine.createEntityStore(Set.of()));
+        store.close();
+        store.close();
+        assertTrue(store.isClosed());
+        assertThrows(AuthException.class, () -> engine.isAuthorized(REQUEST, policySet, store));
+        assertThrows(AuthException.class, () -> store.remove("User::\"alice\""));
+    }
+
+    @BeforeAll
+    private static void setUp() {
+        engine = new WrapperAuthorizationEngine();
+        policySet =
+                assertDoesNotThrow(
+                        () ->
+                                engine.createPolicySet(
+                                        Set.of(
+                                                new Policy(
+                                                        "permit(principal in Group::\"admins\", action, resource);",
+                                                        "p0"))));
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        if (policySet != null) {
+            policySet.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.EntityTypeAndId;
+import com.cedarpolicy.model.slice.Instantiation;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for policy sets compiled once in the native library. */
+public class NativePolicySetTests {
+    private static WrapperAuthorizationEngine engine;
+
+    private static final Set<Entity> ENTITIES =
+            Set.of(
+                    new Entity("User::\"alice\"", new HashMap<>(), Set.of("Group::\"admins\"")),
+                    new Entity("Group::\"admins\""),
+                    new Entity("Photo::\"door\""));
+
+    /** Test. */
+    @Test
+    public void givenPolicySetHandleDecisionsMatchSlice() {
+        Set<Policy> policies =
+                Set.of(
+                        new Policy(
+                                "permit(principal in Group::\"admins\", action, resource);", "p0"),
+                        new Policy("forbid(principal == User::\"bob\", action, resource);", "p1"));
+        try (NativePolicySet policySet = assertDoesNotThrow(() -> engine.createPolicySet(policies))) {
+            for (String principal : List.of("User::\"alice\"", "User::\"bob\"")) {
+                AuthorizationRequest q = request(principal);
+                AuthorizationResponse prepared =
+                        assertDoesNotThrow(() -> engine.isAuthorized(q, policySet, ENTITIES));
+                AuthorizationResponse sliced =
+                        assertDoesNotThrow(
+                                () -> engine.isAuthorized(q, new BasicSlice(policies, ENTITIES)));
+                assertEquals(sliced.getDecision(), prepared.getDecision());
+                assertEquals(sliced.getReasons(), prepared.getReasons());
+            }
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenTemplateInstantiationPolicySetAllows() {
+        Set<Policy> templates =
+                Set.of(new Policy("permit(principal == ?principal, action, resource);", "t0"));
+        List<TemplateInstantiation> links =
+                List.of(
+                        new TemplateInstantiation(
+                                "t0",
+                                "t0_alice",
+                                List.of(
+                                        new Instantiation(
+                                                "?principal",
+                                                new EntityTypeAndId("User", "alice")))));
+        try (NativePolicySet policySet =
+                assertDoesNotThrow(() -> engine.createPolicySet(Set.of(), templates, links))) {
+            AuthorizationResponse response =
+                    assertDoesNotThrow(
+                            () -> engine.isAuthorized(request("User::\"alice\""), policySet, ENTITIES));
+            assertTrue(response.isAllowed());
+            assertEquals(Set.of("t0_alice"), response.getReasons());
+        }
+    }
+
+    /** Test. */
+    @Test
+    public void givenInvalidPolicyThrowsBadRequestError() {
+        Set<Policy> policies = Set.of(new Policy("permit {", "p0"));
+        assertThrows(BadRequestException.class, () -> engine.createPolicySet(policies));
+    }
+
+    /** Test. */
+    @Test
+    public void givenClosedPolicySetThrows() {
+        NativePolicySet policySet =
+                assertDoesNotThrow(
+                        () ->
+                                engine.createPolicySet(
+                                        Set.of(new Policy("permit(principal, action, resource);", "p0"))));
+        assertFalse(policySet.isClosed());
+        policySet.close();
+        policySet.close();
+        assertTrue(policySet.isClosed());
+        assertThrows(
+                AuthException.class,
+                () -> engine.isAuthorized(request("User::\"alice\""), policySet, ENTITIES));
+    }
+
+    private static AuthorizationRequest request(String principal) {
+        return new AuthorizationRequest(
+                principal, "Action::\"view\"", "Photo::\"door\"", new HashMap<>(), Optional.empty());
+    }
+
+    @BeforeAll
+    private static void setUp() {
+        engine = new WrapperAuthorizationEngine();
+    }
+}
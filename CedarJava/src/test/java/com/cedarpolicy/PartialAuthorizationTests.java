@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.PartialAuthorizationResponse;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests for partially evaluating queries with an unknown principal or resource. */
+public class PartialAuthorizationTests {
+    private static WrapperAuthorizationEngine engine;
+
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(
+                            new Policy(
+                                    "permit(principal, action, resource == Photo::\"public\");",
+                                    "public"),
+                            new Policy(
+                                    "permit(principal == User::\"alice\", action, resource)"
+                                            + " when { resource.owner == principal };",
+                                    "own")),
+                    Set.of(new Entity("User::\"alice\"")));
+
+    private static AuthorizationRequest request(String principal, Optional<String> resource) {
+        return new AuthorizationRequest(
+                Optional.of(principal),
+                "Action::\"view\"",
+                resource,
+                new HashMap<>(),
+                Optional.empty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenUnknownResourceReturnsResiduals() {
+        PartialAuthorizationResponse response =
+                assertDoesNotThrow(
+                        () ->
+                                engine.isAuthorizedPartial(
+                                        request("User::\"alice\"", Optional.empty()), SLICE));
+        assertFalse(response.reachedDecision());
+        assertEquals(Set.of("public", "own"), response.getResiduals().keySet());
+    }
+
+    /** Test. */
+    @Test
+    public void givenKnownResourceReturnsDecision() {
+        PartialAuthorizationResponse response =
+                assertDoesNotThrow(
+                        () ->
+                                engine.isAuthorizedPartial(
+                                        request("User::\"bob\"", Optional.of("Photo::\"public\"")),
+                                        SLICE));
+        assertEquals(Optional.of(AuthorizationResponse.Decision.Allow), response.getDecision());
+        assertTrue(response.getResiduals().isEmpty());
+    }
+
+    @BeforeAll
+    private static void setUp() {
+        engine = new WrapperAuthorizationEngine();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static com.cedarpolicy.CedarJson.objectWriter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.PersistentList;
+import com.cedarpolicy.value.PersistentMap;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the persistent map and list, and the values that share them. */
+public class PersistentCollectionsTests {
+    /** A key whose hash code is chosen by the test, so keys can collide in some or all bits. */
+    private static final class Key {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+
+    private static Key randomKey(Random random) {
+        int id = random.nextInt(3000);
+        // Few distinct hashes, many sharing their low bits or all of them.
+        int hash = id % 7 == 0 ? 42 : (id % 5 == 0 ? (id << 20) : id * 0x9E3779B9);
+        return new Key(id, hash);
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomChangesMapAgreesWithHashMap() {
+        Random random = new Random(42);
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        Map<Key, Integer> expected = new HashMap<>();
+        List<PersistentMap<Key, Integer>> versions = new ArrayList<>();
+        List<Map<Key, Integer>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            Key key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(10);
+                map = map.plus(key, value);
+                expected.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.hashCode(), map.hashCode());
+            if (i % 1000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new HashMap<>(expected));
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected, new HashMap<>(map));
+        assertEquals(expected.keySet(), map.keySet());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(expectedVersions.get(i), versions.get(i));
+            assertEquals(expectedVersions.get(i).hashCode(), versions.get(i).hashCode());
+        }
+        for (Key key : expected.keySet()) {
+            map = map.minus(key);
+        }
+        assertEquals(0, map.size());
+        assertEquals(Map.of(), map);
+        assertEquals(0, map.hashCode());
+    }
+
+    /** Test. */
+    @Test
+    public void givenPersistentMapChangesReturnNewMaps() {
+        PersistentMap<String, Value> base =
+                PersistentMap.copyOf(Map.of("a", new PrimLong(1L), "b", new PrimString("x")));
+        PersistentMap<String, Value> changed = base.plus("a", new PrimLong(2L));
+        assertEquals(new PrimLong(1L), base.get("a"));
+        assertEquals(new PrimLong(2L), changed.get("a"));
+        assertNotEquals(base, changed);
+        assertSame(base, base.plus("a", new PrimLong(1L)));
+        assertSame(base, base.minus("c"));
+        assertSame(base, PersistentMap.copyOf(base));
+        assertEquals(base, changed.plus("a", new PrimLong(1L)));
+        assertThrows(NullPointerException.class, () -> base.plus("c", null));
+        assertThrows(NullPointerException.class, () -> base.plus(null, new PrimLong(1L)));
+        assertThrows(UnsupportedOperationException.class, () -> base.put("c", new PrimLong(1L)));
+        assertThrows(UnsupportedOperationException.class, () -> base.remove("a"));
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomChangesListAgreesWithArrayList() {
+        Random random = new Random(7);
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+        PersistentList<Integer> snapshot = list;
+        List<Integer> expectedSnapshot = List.of();
+        for (int i = 0; i < 40000; i++) {
+            if (!expected.isEmpty() && random.nextInt(4) == 0) {
+                int index = random.nextInt(expected.size());
+                int value = random.nextInt(100);
+                list = list.with(index, value);
+                expected.set(index, value);
+            } else {
+                int value = random.nextInt(100);
+                list = list.plus(value);
+                expected.add(value);
+            }
+            assertEquals(expected.size(), list.size());
+            assertEquals(expected.hashCode(), list.hashCode());
+            if (i == 1500) {
+                snapshot = list;
+                expectedSnapshot = new ArrayList<>(expected);
+            }
+        }
+        assertEquals(expected, list);
+        assertEquals(list, expected);
+        assertEquals(expectedSnapshot, snapshot);
+        assertEquals(expected, PersistentList.copyOf(expected));
+        assertEquals(expected.hashCode(), PersistentList.copyOf(expected).hashCode());
+        List<Integer> longer = new ArrayList<>(expected);
+        longer.add(1);
+        assertEquals(longer, PersistentList.copyOf(expected).plus(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> PersistentList.empty().get(0));
+        assertThrows(NullPointerException.class, () -> PersistentList.empty().plus(null));
+        PersistentList<Integer> result = list;
+        assertThrows(UnsupportedOperationException.class, () -> result.add(1));
+    }
+
+    /** Test. */
+    @Test
+    public void givenPersistentCollectionsValuesShareThem() throws Exception {
+        PersistentMap<String, Value> context =
+                PersistentMap.<String, Value>empty()
+                        .plus("level", new PrimLong(3L))
+                        .plus(
+                                "tags",
+                                new CedarList(PersistentList.copyOf(List.of(new PrimString("a")))));
+        AuthorizationRequest request =
+                new AuthorizationRequest(
+                        "User::\"alice\"",
+                        "Action::\"view\"",
+                        "Photo::\"1\"",
+                        context,
+                        Optional.empty());
+        assertSame(context, request.context);
+        Entity entity = new Entity("User::\"alice\"", context, new HashSet<>());
+        assertSame(context, entity.attrs);
+        CedarMap record = new CedarMap(context);
+        assertSame(context, record.map);
+        assertThrows(UnsupportedOperationException.class, () -> record.put("x", new PrimLong(1L)));
+
+        Map<String, Value> copied = new HashMap<>(context);
+        assertEquals(new CedarMap(copied), record);
+        assertEquals(new CedarMap(copied).hashCode(), record.hashCode());
+        assertEquals(
+                objectWriter().writeValueAsString(new CedarMap(copied)),
+                objectWriter().writeValueAsString(record));
+
+        Map<String, Value> mutable = new HashMap<>(context);
+        AuthorizationRequest copiedRequest =
+                new AuthorizationRequest(
+                        "User::\"alice\"",
+                        "Action::\"view\"",
+                        "Photo::\"1\"",
+                        mutable,
+                        Optional.empty());
+        mutable.clear();
+        assertEquals(context, copiedRequest.context);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.AuthorizationResponse;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.PolicyIndex;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.Value;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/** Tests that pruning a slice with a {@link PolicyIndex} never changes Cedar's decision. */
+public class PolicyIndexEquivalenceTests {
+    private static WrapperAuthorizationEngine engine;
+
+    private static final List<String> USERS =
+            List.of("User::\"alice\"", "User::\"bob\"", "User::\"carol\"", "User::\"dave\"");
+    private static final List<String> GROUPS = List.of("Group::\"admins\"", "Group::\"staff\"");
+    private static final List<String> ACTIONS =
+            List.of("Action::\"view\"", "Action::\"edit\"", "Action::\"delete\"");
+    private static final String WRITE = "Action::\"write\"";
+    private static final List<String> PHOTOS =
+            List.of("Photo::\"beach\"", "Photo::\"door\"", "Photo::\"cat\"");
+    private static final List<String> ALBUMS = List.of("Album::\"trips\"", "Album::\"pets\"");
+
+    private static <T> T pick(Random random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String principalScope(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "principal";
+            case 1:
+                return "principal == " + pick(random, USERS);
+            default:
+                return "principal in " + pick(random, GROUPS);
+        }
+    }
+
+    private static String actionScope(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "action";
+            case 1:
+                return "action == " + pick(random, ACTIONS);
+            case 2:
+                return "action in " + WRITE;
+            default:
+                return "action in [" + pick(random, ACTIONS) + ", " + pick(random, ACTIONS) + "]";
+        }
+    }
+
+    private static String resourceScope(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "resource";
+            case 1:
+                return "resource == " + pick(random, PHOTOS);
+            default:
+                return "resource in " + pick(random, ALBUMS);
+        }
+    }
+
+    private static Slice randomSlice(Random random) {
+        Set<Policy> policies = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String effect = random.nextInt(4) == 0 ? "forbid" : "permit";
+            String condition = random.nextBoolean() ? "" : " when { context.level > 2 }";
+            policies.add(
+                    new Policy(
+                            effect
+                                    + "("
+                                    + principalScope(random)
+                                    + ", "
+                                    + actionScope(random)
+                                    + ", "
+                                    + resourceScope(random)
+                                    + ")"
+                                    + condition
+                                    + ";",
+                            "p" + i));
+        }
+        Set<Entity> entities = new HashSet<>();
+        for (String user : USERS) {
+            Set<String> parents = new HashSet<>();
+            for (String group : GROUPS) {
+                if (random.nextBoolean()) {
+                    parents.add(group);
+                }
+            }
+            entities.add(new Entity(user, new HashMap<>(), parents));
+        }
+        for (String group : GROUPS) {
+            entities.add(new Entity(group));
+        }
+        for (String photo : PHOTOS) {
+            entities.add(new Entity(photo, new HashMap<>(), Set.of(pick(random, ALBUMS))));
+        }
+        for (String album : ALBUMS) {
+            entities.add(new Entity(album));
+        }
+        entities.add(new Entity(WRITE));
+        entities.add(new Entity("Action::\"view\""));
+        entities.add(new Entity("Action::\"edit\"", new HashMap<>(), Set.of(WRITE)));
+        entities.add(new Entity("Action::\"delete\"", new HashMap<>(), Set.of(WRITE)));
+        return new BasicSlice(policies, entities);
+    }
+
+    /** Test. */
+    @Test
+    public void givenRandomSlicesPrunedDecisionsMatch() {
+        Random random = new Random(0x5eed);
+        for (int round = 0; round < 20; round++) {
+            Slice slice = randomSlice(random);
+            PolicyIndex index = new PolicyIndex(slice);
+            for (String principal : USERS) {
+                for (String action : ACTIONS) {
+                    for (String resource : PHOTOS) {
+                        HashMap<String, Value> context = new HashMap<>();
+                        context.put("level", new PrimLong((long) round % 5));
+                        AuthorizationRequest q =
+                                new AuthorizationRequest(
+                                        principal, action, resource, context, Optional.empty());
+                        AuthorizationResponse full =
+                                assertDoesNotThrow(() -> engine.isAuthorized(q, slice));
+                        AuthorizationResponse pruned =
+                                assertDoesNotThrow(
+                                        () -> engine.isAuthorized(q, index.sliceFor(q)));
+                        assertEquals(full.getDecision(), pruned.getDecision(), q.toString());
+                        assertEquals(full.getReasons(), pruned.getReasons(), q.toString());
+                        assertEquals(full.getErrors(), pruned.getErrors(), q.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @BeforeAll
+    private static void setUp() {
+        engine = new WrapperAuthorizationEngine();
+    }
+}
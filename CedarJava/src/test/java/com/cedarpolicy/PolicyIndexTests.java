@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.schema.Schema;
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.PolicyIndex;
+import com.cedarpolicy.model.slice.Slice;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for selecting the policies whose scope could match a request. */
+public class PolicyIndexTests {
+    private static final Slice SLICE =
+            new BasicSlice(
+                    Set.of(
+                            new Policy("permit(principal, action, resource);", "any"),
+                            new Policy(
+                                    "permit(principal == User::\"alice\", action, resource);",
+                                    "alice"),
+                            new Policy(
+                                    "@id(\"admins\")\n"
+                                            + "permit(\n"
+                                            + "  principal in Group::\"admins\", // comment\n"
+                                            + "  action in [Action::\"view\", Action::\"edit\"],\n"
+                                            + "  resource\n"
+                                            + ") when { true };",
+                                    "admins"),
+                            new Policy(
+                                    "forbid(principal, action == Action :: \"delete\", resource);",
+                                    "delete"),
+                            new Policy(
+                                    "permit(principal, action, resource in Album::\"trips\");",
+                                    "trips"),
+                            new Policy(
+                                    "permit(principal == User::\"\\u{61}lice\", action, resource);",
+                                    "escaped"),
+                            new Policy("not a policy", "unreadable")),
+                    Set.of(
+                            new Entity(
+                                    "User::\"alice\"", new HashMap<>(), Set.of("Team::\"dev\"")),
+                            new Entity(
+                                    "Team::\"dev\"", new HashMap<>(), Set.of("Group::\"admins\"")),
+                            new Entity(
+                                    "Photo::\"beach\"",
+                                    new HashMap<>(),
+                                    Set.of("Album::\"trips\"")),
+                            new Entity("User::\"bob\"")));
+
+    private static final PolicyIndex INDEX = new PolicyIndex(SLICE);
+
+    private static AuthorizationRequest request(String principal, String action, String resource) {
+        return new AuthorizationRequest(
+                principal, action, resource, new HashMap<>(), Optional.empty());
+    }
+
+    /** Test. */
+    @Test
+    public void givenEqualityConstraintsOnlyMatchingPoliciesAreCandidates() {
+        assertEquals(
+                Set.of("any", "escaped", "unreadable"),
+                INDEX.candidatePolicies(
+                        request("User::\"bob\"", "Action::\"view\"", "Photo::\"door\"")));
+        assertEquals(
+                Set.of("any", "delete", "escaped", "unreadable"),
+                INDEX.candidatePolicies(
+                        request("User::\"bob\"", "Action::\"delete\"", "Photo::\"door\"")));
+    }
+
+    /** Test. */
+    @Test
+    public void givenInConstraintsDescendantsMatch() {
+        assertEquals(
+                Set.of("any", "alice", "admins", "trips", "escaped", "unreadable"),
+                INDEX.candidatePolicies(
+                        request("User::\"alice\"", "Action::\"edit\"", "Photo::\"beach\"")));
+    }
+
+    /** Test. */
+    @Test
+    public void givenUncomparablePartsTheyDoNotPrune() {
+        assertEquals(
+                Set.of("any", "alice", "delete", "trips", "escaped", "unreadable"),
+                INDEX.candidatePolicies(
+                        new AuthorizationRequest(
+                                Optional.empty(),
+                                "Action::\"delete\"",
+                                Optional.empty(),
+                                new HashMap<>(),
+                                Optional.empty())));
+        Schema schema = assertDoesNotThrow(() -> new Schema("{}"));
+        AuthorizationRequest withSchema =
+                new AuthorizationRequest(
+                        Optional.empty(),
+                        "Action::\"delete\"",
+                        Optional.empty(),
+                        new HashMap<>(),
+                        Optional.of(schema));
+        assertEquals(SLICE.getPolicies().keySet(), INDEX.candidatePolicies(withSchema));
+    }
+
+    /** Test. */
+    @Test
+    public void givenNothingPrunedSliceIsReused() {
+        Slice slice =
+                new BasicSlice(
+                        Set.of(new Policy("permit(principal, action, resource);", "p")), Set.of());
+        assertSame(
+                slice,
+                new PolicyIndex(slice)
+                        .sliceFor(request("User::\"bob\"", "Action::\"view\"", "Photo::\"a\"")));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static com.cedarpolicy.CedarJson.cborMapper;
+import static com.cedarpolicy.CedarJson.cborReader;
+import static com.cedarpolicy.CedarJson.cborWriter;
+import static com.cedarpolicy.CedarJson.objectMapper;
+import static com.cedarpolicy.CedarJson.objectReader;
+import static com.cedarpolicy.CedarJson.objectWriter;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cedarpolicy.model.slice.BasicSlice;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.EntityTypeAndId;
+import com.cedarpolicy.model.slice.Instantiation;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimBool;
+import com.cedarpolicy.value.PrimLong;
+import com.cedarpolicy.value.Value;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for slices serialized once and spliced into each request. */
+public class PreparedSliceTests {
+    private static Slice slice(Set<Policy> policies, Set<Entity> entities) {
+        return new BasicSlice(
+                policies,
+                entities,
+                Set.of(new Policy("permit(principal == ?principal, action, resource);", "t0")),
+                List.of(
+                        new TemplateInstantiation(
+                                "t0",
+                                "t0-alice",
+                                List.of(
+                                        new Instantiation(
+                                                "?principal",
+                                                new EntityTypeAndId("User", "alice"))))));
+    }
+
+    private static Set<Policy> policies() {
+        Set<Policy> policies = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            policies.add(
+                    new Policy(
+                            "permit(principal, action, resource == Photo::\"" + i + "\");",
+                            "p" + i));
+        }
+        return policies;
+    }
+
+    private static Set<Entity> entities() {
+        Set<Entity> entities = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Value> attrs = new HashMap<>();
+            CedarList tags = new CedarList();
+            tags.add(new PrimBool(i % 2 == 0));
+            tags.add(new EntityUID("User::\"alice\""));
+            attrs.put("size", new PrimLong((long) i));
+            attrs.put("tags", tags);
+            entities.add(
+                    new Entity("Photo::\"" + i + "\"", attrs, Set.of("Album::\"" + i % 3 + "\"")));
+        }
+        return entities;
+    }
+
+    /** A request-like object with fields on either side of the slice. */
+    private static Map<String, Object> request(Slice slice) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("principal", "User::\"alice\"");
+        request.put("slice", slice);
+        request.put("context", Map.of("level", new PrimLong(3L)));
+        return request;
+    }
+
+    private static JsonNode json(Object value) {
+        return withEntitySet(
+                assertDoesNotThrow(
+                        () -> objectReader().readTree(objectWriter().writeValueAsString(value))));
+    }
+
+    private static JsonNode cbor(Object value) {
+        return withEntitySet(
+                assertDoesNotThrow(
+                        () -> cborReader().readTree(cborWriter().writeValueAsBytes(value))));
+    }
+
+    /** Sort the entities of a serialized request, since their order does not matter. */
+    private static JsonNode withEntitySet(JsonNode request) {
+        ArrayNode entities = (ArrayNode) request.path("slice").path("entities");
+        List<JsonNode> sorted = new ArrayList<>();
+        entities.forEach(sorted::add);
+        sorted.sort(Comparator.comparing(JsonNode::toString));
+        entities.removeAll();
+        entities.addAll(sorted);
+        return request;
+    }
+
+    /** Test. */
+    @Test
+    public void givenJsonPreparedSliceMatchesOriginal() {
+        Slice original = slice(policies(), entities());
+        PreparedSlice prepared = assertDoesNotThrow(() -> new PreparedSlice(original));
+        assertEquals(json(request(original)), json(request(prepared)));
+    }
+
+    /** Test. */
+    @Test
+    public void givenCborPreparedSliceMatchesOriginal() {
+        Slice original = slice(policies(), entities());
+        PreparedSlice prepared = assertDoesNotThrow(() -> new PreparedSlice(original));
+        assertEquals(cbor(request(original)), cbor(request(prepared)));
+    }
+
+    /** Test. */
+    @Test
+    public void givenCborWriterGeneratorCanWriteEncodedValues() {
+        assertTrue(
+                assertDoesNotThrow(
+                                () ->
+                                        cborMapper()
+                                                .getFactory()
+                                                .createGenerator(new ByteArrayOutputStream()))
+                        instanceof CedarCborFactory.Generator);
+    }
+
+    /** Test. */
+    @Test
+    public void givenCborPreparedSlicesInArrayAllAreCounted() {
+        PreparedSlice prepared =
+                assertDoesNotThrow(() -> new PreparedSlice(slice(policies(), entities())));
+        JsonNode slices =
+                assertDoesNotThrow(
+                        () ->
+                                cborReader()
+                                        .readTree(
+                                                cborWriter()
+                                                        .writeValueAsBytes(
+                                                                List.of(prepared, prepared))));
+        assertEquals(2, slices.size());
+        assertEquals(slices.get(0), slices.get(1));
+    }
+
+    /** Test. */
+    @Test
+    public void givenOtherGeneratorPreparedSliceIsSerializedFromContents() {
+        Slice original = slice(policies(), entities());
+        PreparedSlice prepared = assertDoesNotThrow(() -> new PreparedSlice(original));
+        assertEquals(
+                withEntitySet(objectMapper().valueToTree(request(original))),
+                withEntitySet(objectMapper().valueToTree(request(prepared))));
+    }
+
+    /** Test. */
+    @Test
+    public void givenChangesToSourcePreparedSliceIsUnchanged() {
+        Set<Policy> policies = policies();
+        Set<Entity> entities = entities();
+        Slice original = slice(policies, entities);
+        PreparedSlice prepared = assertDoesNotThrow(() -> new PreparedSlice(original));
+        String json = assertDoesNotThrow(() -> objectWriter().writeValueAsString(prepared));
+
+        original.getPolicies().put("extra", "forbid(principal, action, resource);");
+        original.getEntities().clear();
+
+        assertEquals(20, prepared.getPolicies().size());
+        assertEquals(20, prepared.getEntities().size());
+        assertEquals(json, assertDoesNotThrow(() -> objectWriter().writeValueAsString(prepared)));
+        assertThrows(
+                UnsupportedOperationException.class, () -> prepared.getPolicies().remove("p0"));
+        assertEquals(List.of("Album::\"1\""), prepared.getParents().get("Photo::\"4\""));
+    }
+}
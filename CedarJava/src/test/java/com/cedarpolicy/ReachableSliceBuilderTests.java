@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.cedarpolicy.model.AuthorizationRequest;
+import com.cedarpolicy.model.slice.Entity;
+import com.cedarpolicy.model.slice.EntityTypeAndId;
+import com.cedarpolicy.model.slice.Instantiation;
+import com.cedarpolicy.model.slice.Policy;
+import com.cedarpolicy.model.slice.ReachableSliceBuilder;
+import com.cedarpolicy.model.slice.Slice;
+import com.cedarpolicy.model.slice.TemplateInstantiation;
+import com.cedarpolicy.value.CedarList;
+import com.cedarpolicy.value.CedarMap;
+import com.cedarpolicy.value.EntityUID;
+import com.cedarpolicy.value.PrimString;
+import com.cedarpolicy.value.Value;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Tests for slicing the entities a request can reach out of a large entity graph. */
+public class ReachableSliceBuilderTests {
+    private static Entity entity(String uid, Map<String, Value> attrs, String... parents) {
+        return new Entity(uid, attrs, Set.of(parents));
+    }
+
+    private static List<Entity> graph() {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i == 7) {
+                continue;
+            }
+            entities.add(entity("Doc::\"" + i + "\"", Map.of(), "Folder::\"" + (i % 10) + "\""));
+        }
+        for (int i = 0; i < 10; i++) {
+            entities.add(entity("Folder::\"" + i + "\"", Map.of(), "Workspace::\"main\""));
+        }
+        entities.add(
+                entity(
+                        "Doc::\"7\"",
+                        Map.of(
+                                "owner",
+                                new EntityUID("User::\"alice\""),
+                                "title",
+                                new PrimString("plans")),
+                        "Folder::\"7\""));
+        entities.add(entity("Workspace::\"main\"", Map.of()));
+        entities.add(
+                entity(
+                        "User::\"alice\"",
+                        Map.of(
+                                "profile",
+                                new CedarMap(Map.of("manager", new EntityUID("User::\"bob\"")))),
+                        "Team::\"dev\""));
+        entities.add(entity("User::\"bob\"", Map.of()));
+        entities.add(entity("User::\"carol\"", Map.of()));
+        entities.add(entity("User::\"dave\"", Map.of()));
+        entities.add(entity("User::\"erin\"", Map.of()));
+        entities.add(entity("Team::\"dev\"", Map.of()));
+        entities.add(entity("Team::\"ops\"", Map.of()));
+        entities.add(entity("Action::\"view\"", Map.of(), "Action::\"read\""));
+        entities.add(entity("Action::\"read\"", Map.of()));
+        return entities;
+    }
+
+    private static Set<String> uids(Slice slice) {
+        return slice.getEntities().stream().map(e -> e.uid).collect(Collectors.toSet());
+    }
+
+    /** Test. */
+    @Test
+    public void givenRequestOnlyReachableEntitiesAreSliced() {
+        ReachableSliceBuilder builder = new ReachableSliceBuilder(graph());
+        Map<String, Value> context = new HashMap<>();
+        context.put("delegates", new CedarList(List.of(new EntityUID("User::\"carol\""))));
+        AuthorizationRequest q =
+                new AuthorizationRequest(
+                        Optional.of("User::\"dave\""),
+                        "Action::\"view\"",
+                        Optional.of("Doc::\"7\""),
+                        context,
+                        Optional.empty());
+        Set<Policy> policies =
+                Set.of(
+                        new Policy(
+                                "permit(principal, action, resource)"
+                                        + " when { principal in Team :: \"ops\" };",
+                                "p0"));
+
+        Slice slice = builder.sliceFor(q, policies);
+        assertEquals(
+                Set.of(
+                        "User::\"dave\"",
+                        "Action::\"view\"",
+                        "Action::\"read\"",
+                        "Doc::\"7\"",
+                        "Folder::\"7\"",
+                        "Workspace::\"main\"",
+                        "User::\"alice\"",
+                        "Team::\"dev\"",
+                        "User::\"bob\"",
+                        "User::\"carol\"",
+                        "Team::\"ops\""),
+                uids(slice));
+        assertEquals(policies.size(), slice.getPolicies().size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenTemplateInstantiationSlotEntitiesAreSliced() {
+        ReachableSliceBuilder builder = new ReachableSliceBuilder(graph());
+        AuthorizationRequest q =
+                new AuthorizationRequest(
+                        Optional.of("User::\"dave\""),
+                        "Action::\"view\"",
+                        Optional.of("Doc::\"1\""),
+                        new HashMap<>(),
+                        Optional.empty());
+        Set<Policy> templates =
+                Set.of(new Policy("permit(principal == ?principal, action, resource);", "t0"));
+        List<TemplateInstantiation> links =
+                List.of(
+                        new TemplateInstantiation(
+                                "t0",
+                                "t0-erin",
+                                List.of(
+                                        new Instantiation(
+                                                "?principal",
+                                                new EntityTypeAndId("User", "erin")))));
+
+        Slice slice = builder.sliceFor(q, Set.of(), templates, links);
+        assertEquals(
+                Set.of(
+                        "User::\"dave\"",
+                        "Action::\"view\"",
+                        "Action::\"read\"",
+                        "Doc::\"1\"",
+                        "Folder::\"1\"",
+                        "Workspace::\"main\"",
+                        "User::\"erin\""),
+                uids(slice));
+    }
+}
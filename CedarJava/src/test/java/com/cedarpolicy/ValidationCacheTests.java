@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cedarpolicy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.cedarpolicy.model.ValidationQuery;
+import com.cedarpolicy.model.ValidationResult;
+import com.cedarpolicy.model.exception.AuthException;
+import com.cedarpolicy.model.exception.BadRequestException;
+import com.cedarpolicy.model.schema.Schema;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/** Tests for reusing the validation notes of unchanged policies. */
+public class ValidationCacheTests {
+    /** Validator that notes every policy containing "bad" and records what it was asked. */
+    private static final class RecordingValidator implements ValidationCache.Validator {
+        private final List<Set<String>> calls = new ArrayList<>();
+
+        @Override
+        public ValidationResult validate(ValidationQuery q) {
+            calls.add(new HashSet<>(q.getPolicySet().keySet()));
+            List<ValidationResult.Note> notes = new ArrayList<>();
+            for (Map.Entry<String, String> policy : q.getPolicySet().entrySet()) {
+                if (policy.getValue().contains("bad")) {
+                    notes.add(new ValidationResult.Note(policy.getKey(), "bad policy"));
+                }
+            }
+            return new ValidationResult(notes);
+        }
+    }
+
+    private static Schema schema(String entityType) throws Exception {
+        return new Schema(
+                "{\"\": {\"entityTypes\": {\"" + entityType + "\": {}}, \"actions\": {}}}");
+    }
+
+    private static Set<String> notedPolicies(ValidationResult result) {
+        return result.getNotes().stream()
+                .map(ValidationResult.Note::getPolicyId)
+                .collect(Collectors.toSet());
+    }
+
+    /** Test. */
+    @Test
+    public void givenOneChangedPolicyOnlyItIsRevalidated() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        RecordingValidator validator = new RecordingValidator();
+        Map<String, String> policies = new HashMap<>();
+        policies.put("p0", "permit(principal, action, resource);");
+        policies.put("p1", "bad");
+        policies.put("p2", "forbid(principal, action, resource);");
+
+        ValidationResult first =
+                cache.validate(new ValidationQuery(schema("User"), policies), validator);
+        assertEquals(Set.of("p1"), notedPolicies(first));
+
+        policies.put("p2", "bad again");
+        ValidationResult second =
+                cache.validate(new ValidationQuery(schema("User"), policies), validator);
+        assertEquals(Set.of("p1", "p2"), notedPolicies(second));
+        assertEquals(List.of(Set.of("p0", "p1", "p2"), Set.of("p2")), validator.calls);
+
+        cache.validate(new ValidationQuery(schema("User"), policies), validator);
+        assertEquals(2, validator.calls.size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenChangedSchemaEveryPolicyIsRevalidated() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        RecordingValidator validator = new RecordingValidator();
+        Map<String, String> policies = Map.of("p0", "permit(principal, action, resource);");
+
+        cache.validate(new ValidationQuery(schema("User"), policies), validator);
+        cache.validate(new ValidationQuery(schema("Group"), policies), validator);
+        assertEquals(2, validator.calls.size());
+        assertEquals(2, cache.size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenFailedValidationNothingIsCached() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        Map<String, String> policies = Map.of("p0", "permit(principal, action, resource);");
+        ValidationQuery query = new ValidationQuery(schema("User"), policies);
+
+        assertThrows(
+                AuthException.class,
+                () ->
+                        cache.validate(
+                                query,
+                                q -> {
+                                    throw new AuthException("unparseable");
+                                }));
+        assertEquals(0, cache.size());
+    }
+
+    /** Test. */
+    @Test
+    public void givenClearedCacheEveryPolicyIsRevalidated() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        RecordingValidator validator = new RecordingValidator();
+        Map<String, String> policies = Map.of("p0", "permit(principal, action, resource);");
+        ValidationQuery query = new ValidationQuery(schema("User"), policies);
+
+        cache.validate(query, validator);
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.validate(query, validator);
+        assertEquals(List.of(Set.of("p0"), Set.of("p0")), validator.calls);
+    }
+
+    /** Test. */
+    @Test
+    public void givenNewSchemaAndNoPoliciesSchemaIsStillValidated() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        BadRequestException malformed = new BadRequestException(new String[] {"bad schema"});
+        ValidationCache.Validator validator =
+                q -> {
+                    if (q.getPolicySet().isEmpty()) {
+                        throw malformed;
+                    }
+                    return new ValidationResult(List.of());
+                };
+        ValidationQuery empty = new ValidationQuery(schema("User"), Map.of());
+
+        assertSame(
+                malformed,
+                assertThrows(BadRequestException.class, () -> cache.validate(empty, validator)));
+    }
+
+    /** Test. */
+    @Test
+    public void givenAcceptedSchemaCachedPoliciesSkipTheValidator() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        RecordingValidator validator = new RecordingValidator();
+        ValidationQuery empty = new ValidationQuery(schema("User"), Map.of());
+
+        cache.validate(empty, validator);
+        cache.validate(empty, validator);
+        assertEquals(List.of(Set.of()), validator.calls);
+    }
+
+    /** Test. */
+    @Test
+    public void givenSchemaWithReorderedKeysNotesAreReused() throws Exception {
+        ValidationCache cache = new ValidationCache(100);
+        RecordingValidator validator = new RecordingValidator();
+        Map<String, String> policies = Map.of("p0", "permit(principal, action, resource);");
+        Schema ordered =
+                new Schema("{\"\": {\"entityTypes\": {\"A\": {}, \"B\": {}}, \"actions\": {}}}");
+        Schema reordered =
+                new Schema("{\"\": {\"actions\": {}, \"entityTypes\": {\"B\": {}, \"A\": {}}}}");
+
+        cache.validate(new ValidationQuery(ordered, policies), validator);
+        cache.validate(new ValidationQuery(reordered, policies), validator);
+        assertEquals(1, validator.calls.size());
+    }
+}
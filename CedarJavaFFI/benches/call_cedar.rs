@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! Per-call overhead of dispatching an authorization: handing it to the evaluation pool, as
+//! `callCedarJNI` does, against evaluating on the calling thread and against spawning and joining
+//! a thread for every call, as it used to.
+//!
+//! Run with `cargo bench --bench call_cedar`. Criterion prints the time per call of each variant
+//! and keeps the results under `target/criterion`.
+
+use cedar_java_ffi::{call_cedar, call_cedar_on_pool};
+use criterion::{black_box, criterion_group, criterion_main, Criterion};
+use std::thread;
+
+const CALL: &str = "AuthorizationOperation";
+const INPUT: &str = r#"
+{
+  "principal": "User::\"alice\"",
+  "action": "Action::\"view\"",
+  "resource": "Photo::\"door\"",
+  "context": {},
+  "slice": {
+    "policies": { "001": "permit(principal == User::\"alice\", action, resource);" },
+    "entities": [],
+    "templates": {},
+    "template_instantiations": []
+  }
+}
+"#;
+
+fn dispatch(c: &mut Criterion) {
+    let mut group = c.benchmark_group("call_cedar");
+    group.bench_function("calling_thread", |b| {
+        b.iter(|| call_cedar(black_box(CALL), black_box(INPUT)))
+    });
+    group.bench_function("evaluation_pool", |b| {
+        b.iter(|| {
+            call_cedar_on_pool(
+                black_box(String::from(CALL)),
+                black_box(String::from(INPUT)),
+            )
+        })
+    });
+    group.bench_function("spawned_thread", |b| {
+        b.iter(|| {
+            let (call, input) = (String::from(CALL), String::from(INPUT));
+            thread::spawn(move || call_cedar(black_box(&call), black_box(&input)))
+                .join()
+                .unwrap()
+        })
+    });
+    group.finish();
+}
+
+criterion_group!(benches, dispatch);
+criterion_main!(benches);
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use crate::entity_store::ENTITY_STORES;
+use crate::policy_set::{PolicySetSpec, POLICY_SETS};
+use crate::pool::evaluation_pool;
+use crate::wire::json_call;
+use cedar_policy::frontend::utils::InterfaceResult;
+use cedar_policy::{
+    Authorizer, Context, Decision, Diagnostics, Entities, EntityUid, Request, Response, Schema,
+};
+use serde::{Deserialize, Serialize};
+use std::str::FromStr;
+use std::sync::Arc;
+
+/// The principal, action, resource and context of a query, as serialized by the Java
+/// `AuthorizationRequest` class.
+#[derive(Debug, Deserialize)]
+pub struct RequestSpec {
+    principal: Option<String>,
+    action: Option<String>,
+    resource: Option<String>,
+    #[serde(default = "empty_context")]
+    context: serde_json::Value,
+    #[serde(default)]
+    schema: Option<serde_json::Value>,
+}
+
+fn empty_context() -> serde_json::Value {
+    serde_json::Value::Object(serde_json::Map::new())
+}
+
+impl RequestSpec {
+    /// Parse the optional schema sent along with the request.
+    pub fn take_schema(&mut self) -> Result<Option<Schema>, String> {
+        parse_schema(self.schema.take())
+    }
+
+    pub fn into_request(self, schema: Option<&Schema>) -> Result<Request, String> {
+        let principal = parse_uid(self.principal.as_deref())?;
+        let action = parse_uid(self.action.as_deref())?;
+        let resource = parse_uid(self.resource.as_deref())?;
+        let context = Context::from_json_value(self.context, schema.zip(action.as_ref()))
+            .map_err(|e| format!("failed to parse context: {e}"))?;
+        Ok(Request::new(principal, action, resource, context))
+    }
+
+    /// Like `into_request`, but a missing principal, action or resource is left unknown for
+    /// partial evaluation instead of being unspecified.
+    pub fn into_partial_request(self, schema: Option<&Schema>) -> Result<Request, String> {
+        let principal = parse_uid(self.principal.as_deref())?;
+        let action = parse_uid(self.action.as_deref())?;
+        let resource = parse_uid(self.resource.as_deref())?;
+        let context = Context::from_json_value(self.context, schema.zip(action.as_ref()))
+            .map_err(|e| format!("failed to parse context: {e}"))?;
+        let mut builder = Request::builder().context(context);
+        if principal.is_some() {
+            builder = builder.principal(principal);
+        }
+        if action.is_some() {
+            builder = builder.action(action);
+        }
+        if resource.is_some() {
+            builder = builder.resource(resource);
+        }
+        Ok(builder.build())
+    }
+}
+
+pub fn parse_schema(schema: Option<serde_json::Value>) -> Result<Option<Schema>, String> {
+    match schema {
+        None | Some(serde_json::Value::Null) => Ok(None),
+        Some(json) => Schema::from_json_value(json)
+            .map(Some)
+            .map_err(|e| format!("failed to parse schema: {e}")),
+    }
+}
+
+fn parse_uid(uid: Option<&str>) -> Result<Option<EntityUid>, String> {
+    match uid {
+        None => Ok(None),
+        Some(uid) => EntityUid::from_str(uid)
+            .map(Some)
+            .map_err(|e| format!("failed to parse {uid}: {e}")),
+    }
+}
+
+pub fn parse_entities(
+    entities: serde_json::Value,
+    schema: Option<&Schema>,
+) -> Result<Entities, String> {
+    Entities::from_json_value(entities, schema)
+        .map_err(|e| format!("failed to parse entities: {e}"))
+}
+
+/// An authorization result in the shape the Java `AuthorizationResponse` class reads.
+#[derive(Debug, Serialize)]
+pub struct AuthorizationAnswer {
+    decision: &'static str,
+    diagnostics: AnswerDiagnostics,
+}
+
+#[derive(Debug, Serialize)]
+pub struct AnswerDiagnostics {
+    reason: Vec<String>,
+    errors: Vec<String>,
+}
+
+/// The name of a decision in the Java `AuthorizationResponse.Decision` enum.
+pub fn decision_name(decision: Decision) -> &'static str {
+    match decision {
+        Decision::Allow => "Allow",
+        Decision::Deny => "Deny",
+    }
+}
+
+impl From<&Diagnostics> for AnswerDiagnostics {
+    fn from(diagnostics: &Diagnostics) -> Self {
+        Self {
+            reason: diagnostics.reason().map(ToString::to_string).collect(),
+            errors: diagnostics.errors().map(|e| e.to_string()).collect(),
+        }
+    }
+}
+
+impl From<Response> for AuthorizationAnswer {
+    fn from(response: Response) -> Self {
+        Self {
+            decision: decision_name(response.decision()),
+            diagnostics: response.diagnostics().into(),
+        }
+    }
+}
+
+/// A query against a policy set compiled by `CreatePolicySetOperation`, and either an entity
+/// store created by `CreateEntityStoreOperation` or entities sent along with the query.
+#[derive(Debug, Deserialize)]
+pub struct PreparedAuthorizationCall {
+    #[serde(flatten)]
+    request: RequestSpec,
+    policy_set: i64,
+    #[serde(default)]
+    entity_store: Option<i64>,
+    #[serde(default = "no_entities")]
+    entities: serde_json::Value,
+}
+
+fn no_entities() -> serde_json::Value {
+    serde_json::Value::Array(Vec::new())
+}
+
+/// `PreparedAuthorizationOperation`: evaluate a query against a policy set handle, so the policy
+/// text is neither shipped nor parsed again, and optionally an entity store handle, so the
+/// entities are not either.
+pub fn json_prepared_is_authorized(input: &str) -> InterfaceResult {
+    json_call(input, prepared_is_authorized)
+}
+
+pub fn prepared_is_authorized(
+    mut call: PreparedAuthorizationCall,
+) -> Result<AuthorizationAnswer, String> {
+    let policies = POLICY_SETS
+        .get(call.policy_set)
+        .ok_or_else(|| format!("unknown policy set handle {}", call.policy_set))?;
+    let schema = call.request.take_schema()?;
+    let entities = match call.entity_store {
+        Some(handle) => ENTITY_STORES
+            .get(handle)
+            .ok_or_else(|| format!("unknown entity store handle {handle}"))?
+            .snapshot()?,
+        None => Arc::new(parse_entities(call.entities, schema.as_ref())?),
+    };
+    let request = call.request.into_request(schema.as_ref())?;
+    let authorizer = Authorizer::new();
+    let response = authorizer.is_authorized(&request, &policies, &entities);
+    Ok(response.into())
+}
+
+/// A query against a slice, as serialized by the Java `WrapperAuthorizationEngine` for
+/// `AuthorizationOperation`.
+#[derive(Debug, Deserialize)]
+pub struct AuthorizationCall {
+    #[serde(flatten)]
+    request: RequestSpec,
+    slice: SliceSpec,
+}
+
+/// `AuthorizationOperation` for the CBOR protocol. The JSON protocol hands the same call to
+/// `cedar_policy::frontend::is_authorized::json_is_authorized`, which only reads JSON text.
+pub fn is_authorized(mut call: AuthorizationCall) -> Result<AuthorizationAnswer, Vec<String>> {
+    let schema = call.request.take_schema().map_err(|e| vec![e])?;
+    let policies = call.slice.policies.build()?;
+    let entities = parse_entities(call.slice.entities, schema.as_ref())
+        .map_err(|e| vec![e])?;
+    let request = call
+        .request
+        .into_request(schema.as_ref())
+        .map_err(|e| vec![e])?;
+    let authorizer = Authorizer::new();
+    let response = authorizer.is_authorized(&request, &policies, &entities);
+    Ok(response.into())
+}
+
+/// Batches at least this large are split across the evaluation pool.
+const PARALLEL_BATCH_SIZE: usize = 64;
+
+/// Many queries against one slice, as serialized by the Java `isAuthorizedBatch`.
+#[derive(Debug, Deserialize)]
+pub struct BatchAuthorizationCall {
+    requests: Vec<RequestSpec>,
+    slice: SliceSpec,
+    #[serde(default)]
+    schema: Option<serde_json::Value>,
+}
+
+/// A slice in the shape the Java `SliceJsonSerializer` writes.
+#[derive(Debug, Deserialize)]
+pub struct SliceSpec {
+    #[serde(flatten)]
+    pub policies: PolicySetSpec,
+    #[serde(default = "no_entities")]
+    pub entities: serde_json::Value,
+}
+
+/// `BatchAuthorizationOperation`: parse a slice once and evaluate every query against it,
+/// returning the answers in the order of the queries.
+pub fn json_is_authorized_batch(input: &str) -> InterfaceResult {
+    json_call(input, is_authorized_batch)
+}
+
+pub fn is_authorized_batch(
+    call: BatchAuthorizationCall,
+) -> Result<Vec<AuthorizationAnswer>, Vec<String>> {
+    let schema = parse_schema(call.schema).map_err(|e| vec![e])?;
+    let policies = call.slice.policies.build()?;
+    let entities = parse_entities(call.slice.entities, schema.as_ref())
+        .map_err(|e| vec![e])?;
+    let requests = call
+        .requests
+        .into_iter()
+        .enumerate()
+        .map(|(i, spec)| {
+            spec.into_request(schema.as_ref())
+                .map_err(|e| format!("request {i}: {e}"))
+        })
+        .collect::<Result<Vec<_>, _>>()
+        .map_err(|e| vec![e])?;
+
+    let evaluate = move |chunk: &[Request]| -> Vec<AuthorizationAnswer> {
+        let authorizer = Authorizer::new();
+        chunk
+            .iter()
+            .map(|request| authorizer.is_authorized(request, &policies, &entities).into())
+            .collect()
+    };
+    let pool = evaluation_pool();
+    if requests.len() < PARALLEL_BATCH_SIZE || pool.threads() == 1 {
+        return Ok(evaluate(&requests));
+    }
+    let chunk_size = (requests.len() + pool.threads() - 1) / pool.threads();
+    pool
+        .map_chunks(requests, chunk_size, evaluate)
+        .map_err(|_| vec![String::from("evaluation panicked")])
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+    use crate::entity_store::{json_create_entity_store, json_update_entity_store};
+    use crate::policy_set::json_create_policy_set;
+
+    fn succeeded(result: InterfaceResult) -> serde_json::Value {
+        let result = serde_json::to_value(result).unwrap();
+        serde_json::from_str(result["result"].as_str().unwrap()).unwrap()
+    }
+
+    fn create_policy_set(policies: &str) -> i64 {
+        succeeded(json_create_policy_set(policies))["handle"]
+            .as_i64()
+            .unwrap()
+    }
+
+    fn decision(input: String) -> String {
+        let answer = succeeded(json_prepared_is_authorized(&input));
+        answer["decision"].as_str().unwrap().to_string()
+    }
+
+    #[test]
+    fn evaluates_against_a_policy_set_handle() {
+        let handle = create_policy_set(
+            r#"{ "policies": { "001": "permit(principal == User::\"alice\", action, resource);" } }"#,
+        );
+        let query = |principal: &str| {
+            format!(
+                r#"{{ "principal": "User::\"{principal}\"", "action": "Action::\"view\"",
+                      "resource": "Photo::\"door\"", "context": {{}}, "schema": null,
+                      "policy_set": {handle}, "entities": [] }}"#
+            )
+        };
+        assert_eq!(decision(query("alice")), "Allow");
+        assert_eq!(decision(query("bob")), "Deny");
+    }
+
+    #[test]
+    fn evaluates_against_an_entity_store_handle() {
+        let policy_set = create_policy_set(
+            r#"{ "policies": { "001": "permit(principal in Role::\"admin\", action, resource);" } }"#,
+        );
+        let alice = |parents: &str| {
+            format!(
+                r#"{{ "uid": {{ "__expr": "User::\"alice\"" }}, "attrs": {{}}, "parents": {parents} }}"#
+            )
+        };
+        let entities = format!(r#"{{ "entities": [{}] }}"#, alice("[]"));
+        let store = succeeded(json_create_entity_store(&entities))["handle"]
+            .as_i64()
+            .unwrap();
+        let query = format!(
+            r#"{{ "principal": "User::\"alice\"", "action": "Action::\"view\"",
+                  "resource": "Photo::\"door\"", "policy_set": {policy_set},
+                  "entity_store": {store} }}"#
+        );
+        assert_eq!(decision(query.clone()), "Deny");
+
+        let upsert = alice(r#"[{ "__expr": "Role::\"admin\"" }]"#);
+        let update = format!(r#"{{ "handle": {store}, "upsert": [{upsert}] }}"#);
+        succeeded(json_update_entity_store(&update));
+        assert_eq!(decision(query), "Allow");
+    }
+
+    #[test]
+    fn batch_answers_are_in_request_order() {
+        let users: Vec<_> = (0..2 * PARALLEL_BATCH_SIZE)
+            .map(|i| format!("u{i}"))
+            .collect();
+        let requests: Vec<_> = users
+            .iter()
+            .map(|user| {
+                serde_json::json!({
+                    "principal": format!("User::\"{user}\""),
+                    "action": "Action::\"view\"",
+                    "resource": "Photo::\"door\"",
+                })
+            })
+            .collect();
+        let call = serde_json::json!({
+            "requests": requests,
+            "slice": {
+                "policies": { "001": "permit(principal == User::\"u7\", action, resource);" },
+                "entities": [],
+            },
+        });
+        let answers = succeeded(json_is_authorized_batch(&call.to_string()));
+        let answers = answers.as_array().unwrap();
+        assert_eq!(answers.len(), users.len());
+        for (user, answer) in users.iter().zip(answers) {
+            let expected = if user == "u7" { "Allow" } else { "Deny" };
+            assert_eq!(answer["decision"], expected, "decision for {user}");
+        }
+    }
+
+    #[test]
+    fn batch_with_a_bad_request_names_it() {
+        let call = r#"{ "requests": [{ "principal": "nope", "action": null, "resource": null }],
+                        "slice": { "policies": {} } }"#;
+        match json_is_authorized_batch(call) {
+            InterfaceResult::Success { .. } => panic!("expected a failure"),
+            InterfaceResult::Failure { errors, .. } => assert!(errors[0].starts_with("request 0")),
+        };
+    }
+
+    #[test]
+    fn unknown_handle_is_a_bad_request() {
+        let result = json_prepared_is_authorized(
+            r#"{ "principal": null, "action": null, "resource": null, "policy_set": -1 }"#,
+        );
+        match result {
+            InterfaceResult::Success { .. } => panic!("expected a failure, not {:?}", result),
+            InterfaceResult::Failure { .. } => {}
+        };
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use crate::authorize::{parse_entities, parse_schema};
+use crate::handles::HandleRegistry;
+use crate::wire::json_call;
+use cedar_policy::frontend::utils::InterfaceResult;
+use cedar_policy::{Entities, EntityId, EntityTypeName, EntityUid, Schema};
+use serde::{Deserialize, Serialize};
+use std::collections::HashMap;
+use std::str::FromStr;
+use std::sync::{Arc, Mutex, MutexGuard, PoisonError};
+
+/// Entity stores created by `CreateEntityStoreOperation`, keyed by the handle returned to Java.
+pub static ENTITY_STORES: HandleRegistry<EntityStore> = HandleRegistry::new();
+
+/// A long-lived set of entities that is updated with deltas instead of being re-sent with every
+/// request.
+///
+/// The parsed `Entities` (including the transitive closure of the hierarchy) is built lazily and
+/// shared by every query until the next update, so a stable hierarchy is ingested once. Neither
+/// building it nor applying an update holds the lock queries take to read the current snapshot:
+/// both work on a copy of the entity map and swap the result in, so a large store stays readable
+/// while it is rebuilt.
+pub struct EntityStore {
+    schema: Option<Schema>,
+    /// Serializes updates, so each builds on the one before without holding `state`.
+    writer: Mutex<()>,
+    state: Mutex<StoreState>,
+}
+
+struct StoreState {
+    entities: Arc<HashMap<EntityUid, serde_json::Value>>,
+    version: u64,
+    snapshot: Option<Arc<Entities>>,
+}
+
+#[derive(Debug, Deserialize)]
+pub struct CreateEntityStoreCall {
+    #[serde(default)]
+    entities: Vec<serde_json::Value>,
+    #[serde(default)]
+    schema: Option<serde_json::Value>,
+}
+
+#[derive(Debug, Deserialize)]
+pub struct UpdateEntityStoreCall {
+    handle: i64,
+    #[serde(default)]
+    upsert: Vec<serde_json::Value>,
+    #[serde(default)]
+    remove: Vec<String>,
+}
+
+#[derive(Debug, Deserialize)]
+pub struct EntityStoreHandle {
+    handle: i64,
+}
+
+#[derive(Debug, Serialize)]
+pub struct EntityStoreVersion {
+    handle: i64,
+    version: u64,
+}
+
+impl EntityStore {
+    fn new(schema: Option<Schema>) -> Self {
+        Self {
+            schema,
+            writer: Mutex::new(()),
+            state: Mutex::new(StoreState {
+                entities: Arc::new(HashMap::new()),
+                version: 0,
+                snapshot: None,
+            }),
+        }
+    }
+
+    /// Insert or replace `upsert` and delete `remove`, atomically. Every upserted entity is
+    /// checked before anything is changed, so a bad entity leaves the store untouched.
+    /// Returns the new version.
+    fn update(&self, upsert: Vec<serde_json::Value>, remove: Vec<String>) -> Result<u64, String> {
+        let mut checked = Vec::with_capacity(upsert.len());
+        for entity in upsert {
+            let uid = entity_uid(&entity)?;
+            parse_entities(serde_json::Value::Array(vec![entity.clone()]), self.schema.as_ref())?;
+            checked.push((uid, entity));
+        }
+        let removed = remove
+            .iter()
+            .map(|uid| EntityUid::from_str(uid).map_err(|e| format!("failed to parse {uid}: {e}")))
+            .collect::<Result<Vec<_>, _>>()?;
+
+        let _writer = self.writer.lock().unwrap_or_else(PoisonError::into_inner);
+        let current = Arc::clone(&self.lock().entities);
+        let mut entities = HashMap::clone(&current);
+        for uid in removed {
+            entities.remove(&uid);
+        }
+        entities.extend(checked);
+
+        let mut state = self.lock();
+        state.entities = Arc::new(entities);
+        state.version += 1;
+        state.snapshot = None;
+        Ok(state.version)
+    }
+
+    /// The entities as of the latest update, parsed once per version. The parse runs outside the
+    /// lock; if an update lands meanwhile, the result is returned to this caller but not kept.
+    pub fn snapshot(&self) -> Result<Arc<Entities>, String> {
+        let (entities, version) = {
+            let state = self.lock();
+            if let Some(snapshot) = &state.snapshot {
+                return Ok(Arc::clone(snapshot));
+            }
+            (Arc::clone(&state.entities), state.version)
+        };
+        let json = serde_json::Value::Array(entities.values().cloned().collect());
+        let snapshot = Arc::new(parse_entities(json, self.schema.as_ref())?);
+        let mut state = self.lock();
+        if state.version == version {
+            state.snapshot = Some(Arc::clone(&snapshot));
+        }
+        Ok(snapshot)
+    }
+
+    fn lock(&self) -> MutexGuard<'_, StoreState> {
+        self.state.lock().unwrap_or_else(PoisonError::into_inner)
+    }
+}
+
+/// Read the uid of an entity in any of the JSON forms Cedar accepts: `{"__expr": "T::\"id\""}`,
+/// `{"__entity": {"type": "T", "id": "id"}}` or `{"type": "T", "id": "id"}`.
+fn entity_uid(entity: &serde_json::Value) -> Result<EntityUid, String> {
+    let uid = &entity["uid"];
+    if let Some(expr) = uid["__expr"].as_str() {
+        return EntityUid::from_str(expr).map_err(|e| format!("failed to parse {expr}: {e}"));
+    }
+    let uid = uid.get("__entity").unwrap_or(uid);
+    match (uid["type"].as_str(), uid["id"].as_str()) {
+        (Some(ty), Some(id)) => {
+            let ty = EntityTypeName::from_str(ty).map_err(|e| e.to_string())?;
+            let id = EntityId::from_str(id).map_err(|e| e.to_string())?;
+            Ok(EntityUid::from_type_name_and_id(ty, id))
+        }
+        _ => Err(format!("entity has no valid uid: {entity}")),
+    }
+}
+
+/// `CreateEntityStoreOperation`: load the initial entities and return the store's handle.
+pub fn json_create_entity_store(input: &str) -> InterfaceResult {
+    json_call(input, create_entity_store)
+}
+
+pub fn create_entity_store(call: CreateEntityStoreCall) -> Result<EntityStoreVersion, String> {
+    let store = EntityStore::new(parse_schema(call.schema)?);
+    let version = store.update(call.entities, Vec::new())?;
+    Ok(EntityStoreVersion {
+        handle: ENTITY_STORES.insert(store),
+        version,
+    })
+}
+
+/// `UpdateEntityStoreOperation`: apply upserts and removals and return the new version.
+pub fn json_update_entity_store(input: &str) -> InterfaceResult {
+    json_call(input, update_entity_store)
+}
+
+pub fn update_entity_store(call: UpdateEntityStoreCall) -> Result<EntityStoreVersion, String> {
+    let store = ENTITY_STORES
+        .get(call.handle)
+        .ok_or_else(|| format!("unknown entity store handle {}", call.handle))?;
+    let version = store.update(call.upsert, call.remove)?;
+    Ok(EntityStoreVersion {
+        handle: call.handle,
+        version,
+    })
+}
+
+/// `ReleaseEntityStoreOperation`: drop the registry's reference to an entity store. Succeeds with
+/// `false` when the handle is unknown, so releasing twice is harmless.
+pub fn json_release_entity_store(input: &str) -> InterfaceResult {
+    json_call(input, release_entity_store)
+}
+
+pub fn release_entity_store(h: EntityStoreHandle) -> Result<bool, String> {
+    Ok(ENTITY_STORES.remove(h.handle))
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+    use serde_json::json;
+
+    fn user(id: &str, parents: &[&str]) -> serde_json::Value {
+        let parents: Vec<_> = parents
+            .iter()
+            .map(|p| json!({ "__expr": format!("Role::\"{p}\"") }))
+            .collect();
+        json!({ "uid": { "__expr": format!("User::\"{id}\"") }, "attrs": {}, "parents": parents })
+    }
+
+    #[test]
+    fn updates_bump_the_version_and_replace_the_snapshot() {
+        let store = EntityStore::new(None);
+        assert_eq!(store.update(vec![user("alice", &[])], Vec::new()), Ok(1));
+        let first = store.snapshot().unwrap();
+        assert!(Arc::ptr_eq(&first, &store.snapshot().unwrap()));
+
+        let update = store.update(vec![user("alice", &["admin"])], Vec::new());
+        assert_eq!(update, Ok(2));
+        assert!(!Arc::ptr_eq(&first, &store.snapshot().unwrap()));
+
+        let update = store.update(Vec::new(), vec![String::from("User::\"alice\"")]);
+        assert_eq!(update, Ok(3));
+        assert_eq!(store.lock().entities.len(), 0);
+    }
+
+    #[test]
+    fn snapshots_are_built_outside_the_lock() {
+        let store = EntityStore::new(None);
+        store.update(vec![user("alice", &[])], Vec::new()).unwrap();
+        let entities = Arc::clone(&store.lock().entities);
+        store.update(vec![user("bob", &[])], Vec::new()).unwrap();
+        // The map a reader took before the update is unchanged by it.
+        assert_eq!(entities.len(), 1);
+        assert_eq!(store.lock().entities.len(), 2);
+        let snapshot = store.snapshot().unwrap();
+        assert!(Arc::ptr_eq(&snapshot, &store.snapshot().unwrap()));
+    }
+
+    #[test]
+    fn invalid_upsert_leaves_the_store_untouched() {
+        let store = EntityStore::new(None);
+        store.update(vec![user("alice", &[])], Vec::new()).unwrap();
+        let bad = json!({ "uid": { "__expr": "not a uid" }, "attrs": {}, "parents": [] });
+        assert!(store.update(vec![user("bob", &[]), bad], Vec::new()).is_err());
+        assert_eq!(store.lock().version, 1);
+        assert_eq!(store.lock().entities.len(), 1);
+    }
+
+    #[test]
+    fn reads_every_uid_form() {
+        let expr = json!({ "uid": { "__expr": "User::\"alice\"" } });
+        let escaped = json!({ "uid": { "__entity": { "type": "User", "id": "alice" } } });
+        let plain = json!({ "uid": { "type": "User", "id": "alice" } });
+        let alice = EntityUid::from_str("User::\"alice\"").unwrap();
+        assert_eq!(entity_uid(&expr), Ok(alice.clone()));
+        assert_eq!(entity_uid(&escaped), Ok(alice.clone()));
+        assert_eq!(entity_uid(&plain), Ok(alice));
+    }
+}
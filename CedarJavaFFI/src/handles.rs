@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use std::collections::BTreeMap;
+use std::sync::atomic::{AtomicI64, Ordering};
+use std::sync::{Arc, PoisonError, RwLock, RwLockReadGuard, RwLockWriteGuard};
+
+/// Long-lived native objects that Java refers to through an opaque `long` handle.
+///
+/// Lookups hand out an `Arc` clone of the entry, so a handle can be released from Java while
+/// another thread is still evaluating against it: the object is dropped once the last in-flight
+/// call returns. Handles are never reused.
+pub struct HandleRegistry<T> {
+    next: AtomicI64,
+    entries: RwLock<BTreeMap<i64, Arc<T>>>,
+}
+
+impl<T> HandleRegistry<T> {
+    pub const fn new() -> Self {
+        Self {
+            next: AtomicI64::new(1),
+            entries: RwLock::new(BTreeMap::new()),
+        }
+    }
+
+    /// Take ownership of `value` and return the handle it can be looked up by.
+    pub fn insert(&self, value: T) -> i64 {
+        let handle = self.next.fetch_add(1, Ordering::Relaxed);
+        self.write().insert(handle, Arc::new(value));
+        handle
+    }
+
+    pub fn get(&self, handle: i64) -> Option<Arc<T>> {
+        self.read().get(&handle).cloned()
+    }
+
+    /// Drop the registry's reference to `handle`. Returns `false` if it was not registered.
+    pub fn remove(&self, handle: i64) -> bool {
+        self.write().remove(&handle).is_some()
+    }
+
+    // A panic while holding the lock cannot leave the map half-updated, so poisoning is ignored.
+    fn read(&self) -> RwLockReadGuard<'_, BTreeMap<i64, Arc<T>>> {
+        self.entries.read().unwrap_or_else(PoisonError::into_inner)
+    }
+
+    fn write(&self) -> RwLockWriteGuard<'_, BTreeMap<i64, Arc<T>>> {
+        self.entries.write().unwrap_or_else(PoisonError::into_inner)
+    }
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+
+    #[test]
+    fn handles_are_unique_and_released_once() {
+        let registry = HandleRegistry::new();
+        let first = registry.insert("first");
+        let second = registry.insert("second");
+        assert_ne!(first, second);
+        assert_eq!(registry.get(first).as_deref(), Some(&"first"));
+        assert!(registry.remove(first));
+        assert!(!registry.remove(first));
+        assert!(registry.get(first).is_none());
+        assert_eq!(registry.get(second).as_deref(), Some(&"second"));
+    }
+
+    #[test]
+    fn released_entries_outlive_in_flight_users() {
+        let registry = HandleRegistry::new();
+        let handle = registry.insert(String::from("policy set"));
+        let in_flight = registry.get(handle).unwrap();
+        assert!(registry.remove(handle));
+        assert_eq!(in_flight.as_str(), "policy set");
+    }
+}
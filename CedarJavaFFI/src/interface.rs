@@ -14,20 +14,43 @@
  * limitations under the License.
  */
 
+use crate::authorize::{
+    is_authorized, is_authorized_batch, json_is_authorized_batch, json_prepared_is_authorized,
+    prepared_is_authorized,
+};
+use crate::entity_store::{
+    create_entity_store, json_create_entity_store, json_release_entity_store,
+    json_update_entity_store, release_entity_store, update_entity_store,
+};
+use crate::partial::{is_authorized_partial, json_is_authorized_partial};
+use crate::policy_set::{
+    create_policy_set, json_create_policy_set, json_release_policy_set, release_policy_set,
+};
+use crate::pool::evaluation_pool;
+use crate::wire::{cbor_call, cbor_failure, cbor_via_json, CBOR_PROTOCOL_VERSION};
 use cedar_policy::frontend::{
     is_authorized::json_is_authorized, utils::InterfaceResult, validate::json_validate,
 };
 use jni::{
-    objects::{JClass, JString},
-    sys::jstring,
+    objects::{JByteBuffer, JClass, JString},
+    sys::{jint, jstring},
     JNIEnv,
 };
 use jni_fn::jni_fn;
 use serde::{Deserialize, Serialize};
-use std::thread;
+use std::any::Any;
+use std::cell::RefCell;
 
 const V0_AUTH_OP: &str = "AuthorizationOperation";
 const V0_VALIDATE_OP: &str = "ValidateOperation";
+const CREATE_POLICY_SET_OP: &str = "CreatePolicySetOperation";
+const RELEASE_POLICY_SET_OP: &str = "ReleasePolicySetOperation";
+const PREPARED_AUTH_OP: &str = "PreparedAuthorizationOperation";
+const BATCH_AUTH_OP: &str = "BatchAuthorizationOperation";
+const CREATE_ENTITY_STORE_OP: &str = "CreateEntityStoreOperation";
+const UPDATE_ENTITY_STORE_OP: &str = "UpdateEntityStoreOperation";
+const RELEASE_ENTITY_STORE_OP: &str = "ReleaseEntityStoreOperation";
+const PARTIAL_AUTH_OP: &str = "PartialAuthorizationOperation";
 
 fn build_err_obj(env: JNIEnv<'_>, err: &str) -> jstring {
     env.new_string(
@@ -41,9 +64,35 @@ fn build_err_obj(env: JNIEnv<'_>, err: &str) -> jstring {
     .into_raw()
 }
 
-fn call_cedar_in_thread(call_str: String, input_str: String) -> String {
-    let result = call_cedar(&call_str, &input_str);
-    result
+/// Run `f` on the evaluation pool, whose threads have a stack of known size, and wait for it. A
+/// panic is turned into `on_panic(message)` instead of being allowed to unwind into the JVM.
+fn evaluating<T: Send + 'static>(
+    f: impl FnOnce() -> T + Send + 'static,
+    on_panic: impl FnOnce(&str) -> T,
+) -> T {
+    evaluation_pool()
+        .run(f)
+        .unwrap_or_else(|cause| on_panic(panic_message(cause.as_ref())))
+}
+
+/// The message a panic was raised with.
+fn panic_message(cause: &(dyn Any + Send)) -> &str {
+    cause
+        .downcast_ref::<&str>()
+        .copied()
+        .or_else(|| cause.downcast_ref::<String>().map(String::as_str))
+        .unwrap_or("unknown cause")
+}
+
+fn panic_err_json(message: &str) -> String {
+    serde_json::to_string(&InterfaceResult::fail_internally(format!(
+        "Authorization failed: {message}"
+    )))
+    .expect("could not serialise response")
+}
+
+fn panic_err_cbor(message: &str) -> Vec<u8> {
+    cbor_failure(true, vec![format!("Authorization failed: {message}")])
 }
 
 /// The main JNI entry point
@@ -61,21 +110,13 @@ pub fn callCedarJNI(
         Ok(call_str) => call_str.into(),
         _ => return getting_err(),
     };
-    let j_call_str = j_call_str.clone();
 
     let j_input_str: String = match env.get_string(j_input) {
         Ok(s) => s.into(),
         Err(_) => return parsing_err(),
     };
-    let mut j_input_str = j_input_str.clone();
-    j_input_str.push(' ');
-
-    let handle = thread::spawn(move || call_cedar_in_thread(j_call_str, j_input_str));
 
-    let result = match handle.join() {
-        Ok(s) => s,
-        Err(e) => format!("Authorization thread failed {e:?}"),
-    };
+    let result = call_cedar_on_pool(j_call_str, j_input_str);
 
     let res = env.new_string(result);
     match res {
@@ -100,17 +141,119 @@ pub fn getCedarJNIVersion(env: JNIEnv<'_>) -> jstring {
         .into_raw()
 }
 
-fn call_cedar(call: &str, input: &str) -> String {
-    let call = String::from(call);
-    let input = String::from(input);
-    let result = match call.as_str() {
-        V0_AUTH_OP => json_is_authorized(&input),
-        V0_VALIDATE_OP => json_validate(&input),
+thread_local! {
+    /// A CBOR response that did not fit in the caller's output buffer, kept until the same thread
+    /// collects it with `takeCedarJNIResponse`.
+    static PENDING_RESPONSE: RefCell<Option<Vec<u8>>> = RefCell::new(None);
+}
+
+/// The JNI entry point for the CBOR protocol. The request is the first `input_len` bytes of the
+/// direct buffer `j_input`, copied once to hand it to the evaluation pool, and the response is
+/// written to the direct buffer `j_output`.
+///
+/// Returns the length of the response, or -1 if it cannot be handed back to Java. A response
+/// longer than `j_output` is kept back; the caller collects it with `takeCedarJNIResponse` after
+/// allocating a large enough buffer, so the call is never evaluated twice.
+#[jni_fn("com.cedarpolicy.WrapperAuthorizationEngine")]
+pub fn callCedarJNIDirect(
+    env: JNIEnv<'_>,
+    _class: JClass<'_>,
+    j_call: JString<'_>,
+    j_input: JByteBuffer<'_>,
+    input_len: jint,
+    j_output: JByteBuffer<'_>,
+) -> jint {
+    let input = env.get_direct_buffer_address(j_input);
+    let input_len = usize::try_from(input_len);
+    let response = match (env.get_string(j_call), input, input_len) {
+        (Ok(call), Ok(input), Ok(len)) if len <= input.len() => {
+            let call: String = call.into();
+            let input = input[..len].to_vec();
+            evaluating(move || call_cedar_cbor(&call, &input), panic_err_cbor)
+        }
+        _ => cbor_failure(false, vec![String::from("Failed getting Java arguments")]),
+    };
+    write_response(env, j_output, response)
+}
+
+/// Copy the response `callCedarJNIDirect` kept back on this thread into the direct buffer
+/// `j_output`. Returns its length, or -1 if there is none or it still does not fit.
+#[jni_fn("com.cedarpolicy.WrapperAuthorizationEngine")]
+pub fn takeCedarJNIResponse(
+    env: JNIEnv<'_>,
+    _class: JClass<'_>,
+    j_output: JByteBuffer<'_>,
+) -> jint {
+    match PENDING_RESPONSE.with(|pending| pending.borrow_mut().take()) {
+        Some(response) => write_response(env, j_output, response),
+        None => -1,
+    }
+}
+
+fn write_response(env: JNIEnv<'_>, j_output: JByteBuffer<'_>, response: Vec<u8>) -> jint {
+    let len = match jint::try_from(response.len()) {
+        Ok(len) => len,
+        Err(_) => return -1,
+    };
+    match env.get_direct_buffer_address(j_output) {
+        Ok(output) if response.len() <= output.len() => {
+            output[..response.len()].copy_from_slice(&response);
+        }
+        Ok(_) => PENDING_RESPONSE.with(|pending| *pending.borrow_mut() = Some(response)),
+        Err(_) => return -1,
+    }
+    len
+}
+
+/// The CBOR protocol version `callCedarJNIDirect` speaks. A library without this function only
+/// speaks JSON.
+#[jni_fn("com.cedarpolicy.WrapperAuthorizationEngine")]
+pub fn getCedarJNIProtocolVersion(_env: JNIEnv<'_>, _class: JClass<'_>) -> jint {
+    CBOR_PROTOCOL_VERSION
+}
+
+/// Run `call_cedar` on the evaluation pool, as `callCedarJNI` does for every request. A panic
+/// becomes an internal error response. Public so it can be benchmarked without a JVM.
+pub fn call_cedar_on_pool(call: String, input: String) -> String {
+    evaluating(move || call_cedar(&call, &input), panic_err_json)
+}
+
+/// Dispatch a JSON call to the operation named by `call` and serialize its result. It is public
+/// so it can be benchmarked without a JVM.
+pub fn call_cedar(call: &str, input: &str) -> String {
+    let result = match call {
+        V0_AUTH_OP => json_is_authorized(input),
+        V0_VALIDATE_OP => json_validate(input),
+        CREATE_POLICY_SET_OP => json_create_policy_set(input),
+        RELEASE_POLICY_SET_OP => json_release_policy_set(input),
+        PREPARED_AUTH_OP => json_prepared_is_authorized(input),
+        BATCH_AUTH_OP => json_is_authorized_batch(input),
+        CREATE_ENTITY_STORE_OP => json_create_entity_store(input),
+        UPDATE_ENTITY_STORE_OP => json_update_entity_store(input),
+        RELEASE_ENTITY_STORE_OP => json_release_entity_store(input),
+        PARTIAL_AUTH_OP => json_is_authorized_partial(input),
         _ => InterfaceResult::fail_internally(format!("unsupported operation: {}", call)),
     };
     serde_json::to_string(&result).expect("could not serialise response")
 }
 
+/// Dispatch a CBOR call to the operation named by `call` and encode its result.
+pub fn call_cedar_cbor(call: &str, input: &[u8]) -> Vec<u8> {
+    match call {
+        V0_AUTH_OP => cbor_call(input, is_authorized),
+        V0_VALIDATE_OP => cbor_via_json(input, json_validate),
+        CREATE_POLICY_SET_OP => cbor_call(input, create_policy_set),
+        RELEASE_POLICY_SET_OP => cbor_call(input, release_policy_set),
+        PREPARED_AUTH_OP => cbor_call(input, prepared_is_authorized),
+        BATCH_AUTH_OP => cbor_call(input, is_authorized_batch),
+        CREATE_ENTITY_STORE_OP => cbor_call(input, create_entity_store),
+        UPDATE_ENTITY_STORE_OP => cbor_call(input, update_entity_store),
+        RELEASE_ENTITY_STORE_OP => cbor_call(input, release_entity_store),
+        PARTIAL_AUTH_OP => cbor_call(input, is_authorized_partial),
+        _ => cbor_failure(true, vec![format!("unsupported operation: {}", call)]),
+    }
+}
+
 #[derive(Debug, Serialize, Deserialize)]
 struct JavaInterfaceCall {
     pub call: String,
@@ -241,6 +384,33 @@ mod test {
         assert_success(result);
     }
 
+    #[test]
+    fn cbor_authorization_call_succeeds() {
+        let call = serde_json::json!({
+            "principal": "User::\"alice\"",
+            "action": "Photo::\"view\"",
+            "resource": "Photo::\"photo\"",
+            "context": {},
+            "slice": {
+                "policies": { "001": "permit(principal == User::\"alice\", action, resource);" },
+                "entities": [],
+            },
+        });
+        let mut input = Vec::new();
+        ciborium::ser::into_writer(&call, &mut input).unwrap();
+        let result = call_cedar_cbor("AuthorizationOperation", &input);
+        let result: serde_json::Value = ciborium::de::from_reader(result.as_slice()).unwrap();
+        assert_eq!(result["success"], true, "{result}");
+        assert_eq!(result["result"]["decision"], "Allow");
+    }
+
+    #[test]
+    fn unrecognised_cbor_call_fails() {
+        let result = call_cedar_cbor("BadOperation", &[]);
+        let result: serde_json::Value = ciborium::de::from_reader(result.as_slice()).unwrap();
+        assert_eq!(result["success"], false);
+    }
+
     fn assert_success(result: String) {
         let result: InterfaceResult = serde_json::from_str(result.as_str()).unwrap();
         match result {
@@ -15,6 +15,13 @@
  */
 
 #![forbid(unsafe_code)]
+mod authorize;
+mod entity_store;
+mod handles;
 mod interface;
+mod partial;
+mod policy_set;
+mod pool;
+mod wire;
 
 pub use interface::*;
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use crate::authorize::{decision_name, parse_entities, AnswerDiagnostics, RequestSpec, SliceSpec};
+use crate::wire::json_call;
+use cedar_policy::frontend::utils::InterfaceResult;
+use cedar_policy::{Authorizer, PartialResponse};
+use serde::{Deserialize, Serialize};
+use std::collections::BTreeMap;
+
+/// A query whose principal, action or resource may be left out, as serialized by the Java
+/// `WrapperAuthorizationEngine` for `PartialAuthorizationOperation`. Whatever is left out is
+/// treated as unknown rather than as absent.
+#[derive(Debug, Deserialize)]
+pub struct PartialAuthorizationCall {
+    #[serde(flatten)]
+    request: RequestSpec,
+    slice: SliceSpec,
+}
+
+/// The result of a partial evaluation in the shape the Java `PartialAuthorizationResponse` class
+/// reads. When the unknowns do not matter there is a `decision` and no residuals; otherwise there
+/// is no decision, and `residuals` maps the ID of every policy that still depends on an unknown to
+/// the part of it that remains to be evaluated.
+#[derive(Debug, Serialize)]
+pub struct PartialAnswer {
+    decision: Option<&'static str>,
+    residuals: BTreeMap<String, String>,
+    diagnostics: AnswerDiagnostics,
+}
+
+impl From<PartialResponse> for PartialAnswer {
+    fn from(response: PartialResponse) -> Self {
+        match response {
+            PartialResponse::Concrete(response) => Self {
+                decision: Some(decision_name(response.decision())),
+                residuals: BTreeMap::new(),
+                diagnostics: response.diagnostics().into(),
+            },
+            PartialResponse::Residual(response) => Self {
+                decision: None,
+                residuals: response
+                    .residuals()
+                    .policies()
+                    .map(|policy| (policy.id().to_string(), policy.to_string()))
+                    .collect(),
+                diagnostics: response.diagnostics().into(),
+            },
+        }
+    }
+}
+
+/// `PartialAuthorizationOperation`: evaluate a query with an unknown principal, action or resource
+/// against a slice, returning either a decision or the residual policies.
+pub fn json_is_authorized_partial(input: &str) -> InterfaceResult {
+    json_call(input, is_authorized_partial)
+}
+
+pub fn is_authorized_partial(
+    mut call: PartialAuthorizationCall,
+) -> Result<PartialAnswer, Vec<String>> {
+    let schema = call.request.take_schema().map_err(|e| vec![e])?;
+    let policies = call.slice.policies.build()?;
+    let entities = parse_entities(call.slice.entities, schema.as_ref())
+        .map_err(|e| vec![e])?;
+    let request = call
+        .request
+        .into_partial_request(schema.as_ref())
+        .map_err(|e| vec![e])?;
+    let authorizer = Authorizer::new();
+    let response = authorizer.is_authorized_partial(&request, &policies, &entities);
+    Ok(response.into())
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+
+    fn answer(resource: Option<&str>) -> serde_json::Value {
+        let call = serde_json::json!({
+            "principal": "User::\"alice\"",
+            "action": "Action::\"view\"",
+            "resource": resource,
+            "slice": {
+                "policies": {
+                    "own": "permit(principal, action, resource)
+                            when { resource.owner == principal };",
+                    "public": "permit(principal, action, resource == Photo::\"public\");",
+                },
+                "entities": [],
+            },
+        });
+        let result = serde_json::to_value(json_is_authorized_partial(&call.to_string())).unwrap();
+        serde_json::from_str(result["result"].as_str().unwrap()).unwrap()
+    }
+
+    #[test]
+    fn unknown_resource_leaves_residuals() {
+        let answer = answer(None);
+        assert_eq!(answer["decision"], serde_json::Value::Null);
+        let residuals = answer["residuals"].as_object().unwrap();
+        assert!(residuals.contains_key("own"), "residuals: {residuals:?}");
+        assert!(residuals.contains_key("public"), "residuals: {residuals:?}");
+    }
+
+    #[test]
+    fn unknown_principal_is_not_unspecified() {
+        let call = serde_json::json!({
+            "action": "Action::\"view\"",
+            "resource": "Photo::\"door\"",
+            "slice": {
+                "policies": { "alice": "permit(principal == User::\"alice\", action, resource);" },
+                "entities": [],
+            },
+        });
+        let result = serde_json::to_value(json_is_authorized_partial(&call.to_string())).unwrap();
+        let answer: serde_json::Value =
+            serde_json::from_str(result["result"].as_str().unwrap()).unwrap();
+        assert_eq!(answer["decision"], serde_json::Value::Null);
+        assert!(answer["residuals"].as_object().unwrap().contains_key("alice"));
+    }
+
+    #[test]
+    fn known_resource_is_decided() {
+        let answer = answer(Some("Photo::\"public\""));
+        assert_eq!(answer["decision"], "Allow");
+        assert_eq!(answer["residuals"], serde_json::json!({}));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use crate::handles::HandleRegistry;
+use crate::wire::json_call;
+use cedar_policy::frontend::utils::InterfaceResult;
+use cedar_policy::{
+    EntityId, EntityTypeName, EntityUid, Policy, PolicyId, PolicySet, SlotId, Template,
+};
+use serde::{Deserialize, Serialize};
+use std::collections::HashMap;
+use std::str::FromStr;
+
+/// Policy sets compiled by `CreatePolicySetOperation`, keyed by the handle returned to Java.
+pub static POLICY_SETS: HandleRegistry<PolicySet> = HandleRegistry::new();
+
+/// The policies, templates and template links of a slice, in the same JSON shape the Java
+/// `SliceJsonSerializer` uses for them.
+#[derive(Debug, Deserialize)]
+pub struct PolicySetSpec {
+    #[serde(default)]
+    policies: HashMap<String, String>,
+    #[serde(default)]
+    templates: HashMap<String, String>,
+    #[serde(default)]
+    template_instantiations: Vec<TemplateInstantiation>,
+}
+
+#[derive(Debug, Deserialize)]
+struct TemplateInstantiation {
+    template_id: String,
+    result_policy_id: String,
+    instantiations: Vec<Instantiation>,
+}
+
+#[derive(Debug, Deserialize)]
+struct Instantiation {
+    slot: String,
+    value: EntityTypeAndId,
+}
+
+#[derive(Debug, Deserialize)]
+struct EntityTypeAndId {
+    ty: String,
+    eid: String,
+}
+
+#[derive(Debug, Deserialize)]
+pub struct PolicySetHandle {
+    handle: i64,
+}
+
+#[derive(Debug, Serialize)]
+pub struct CreatedPolicySet {
+    handle: i64,
+}
+
+impl PolicySetSpec {
+    /// Parse every policy and template and link the template instantiations. All errors are
+    /// collected rather than stopping at the first one.
+    pub fn build(self) -> Result<PolicySet, Vec<String>> {
+        let mut set = PolicySet::new();
+        let mut errors = Vec::new();
+        for (id, src) in self.policies {
+            match Policy::parse(Some(id.clone()), src) {
+                Ok(policy) => {
+                    if let Err(e) = set.add(policy) {
+                        errors.push(format!("failed to add policy {id}: {e}"));
+                    }
+                }
+                Err(e) => errors.push(format!("failed to parse policy {id}: {e}")),
+            }
+        }
+        for (id, src) in self.templates {
+            match Template::parse(Some(id.clone()), src) {
+                Ok(template) => {
+                    if let Err(e) = set.add_template(template) {
+                        errors.push(format!("failed to add template {id}: {e}"));
+                    }
+                }
+                Err(e) => errors.push(format!("failed to parse template {id}: {e}")),
+            }
+        }
+        for link in self.template_instantiations {
+            if let Err(e) = link.apply(&mut set) {
+                errors.push(format!(
+                    "failed to instantiate template {} as {}: {e}",
+                    link.template_id, link.result_policy_id
+                ));
+            }
+        }
+        if errors.is_empty() {
+            Ok(set)
+        } else {
+            Err(errors)
+        }
+    }
+}
+
+impl TemplateInstantiation {
+    fn apply(&self, set: &mut PolicySet) -> Result<(), String> {
+        let mut vals = HashMap::new();
+        for instantiation in &self.instantiations {
+            let slot = match instantiation.slot.as_str() {
+                "?principal" => SlotId::principal(),
+                "?resource" => SlotId::resource(),
+                other => return Err(format!("unknown slot {other}")),
+            };
+            vals.insert(slot, instantiation.value.to_uid()?);
+        }
+        let template_id = PolicyId::from_str(&self.template_id).map_err(|e| e.to_string())?;
+        let new_id = PolicyId::from_str(&self.result_policy_id).map_err(|e| e.to_string())?;
+        set.link(template_id, new_id, vals).map_err(|e| e.to_string())
+    }
+}
+
+impl EntityTypeAndId {
+    fn to_uid(&self) -> Result<EntityUid, String> {
+        let ty = EntityTypeName::from_str(&self.ty).map_err(|e| e.to_string())?;
+        let eid = EntityId::from_str(&self.eid).map_err(|e| e.to_string())?;
+        Ok(EntityUid::from_type_name_and_id(ty, eid))
+    }
+}
+
+/// `CreatePolicySetOperation`: compile a policy set once and return its handle.
+pub fn json_create_policy_set(input: &str) -> InterfaceResult {
+    json_call(input, create_policy_set)
+}
+
+pub fn create_policy_set(spec: PolicySetSpec) -> Result<CreatedPolicySet, Vec<String>> {
+    Ok(CreatedPolicySet {
+        handle: POLICY_SETS.insert(spec.build()?),
+    })
+}
+
+/// `ReleasePolicySetOperation`: drop the registry's reference to a policy set. Succeeds with
+/// `false` when the handle is unknown, so releasing twice is harmless.
+pub fn json_release_policy_set(input: &str) -> InterfaceResult {
+    json_call(input, release_policy_set)
+}
+
+pub fn release_policy_set(h: PolicySetHandle) -> Result<bool, String> {
+    Ok(POLICY_SETS.remove(h.handle))
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+
+    #[test]
+    fn builds_policies_templates_and_links() {
+        let input = r#"
+        {
+            "policies": { "p0": "permit(principal, action, resource);" },
+            "templates": { "t0": "permit(principal == ?principal, action, resource);" },
+            "template_instantiations": [
+                {
+                    "template_id": "t0",
+                    "result_policy_id": "t0_alice",
+                    "instantiations": [
+                        { "slot": "?principal", "value": { "ty": "User", "eid": "alice" } }
+                    ]
+                }
+            ]
+        }
+        "#;
+        let spec: PolicySetSpec = serde_json::from_str(input).unwrap();
+        let set = spec.build().unwrap();
+        assert_eq!(set.policies().count(), 2);
+    }
+
+    #[test]
+    fn collects_every_parse_error() {
+        let input = r#"{ "policies": { "bad0": "permit {", "bad1": "forbid(" } }"#;
+        let spec: PolicySetSpec = serde_json::from_str(input).unwrap();
+        assert_eq!(spec.build().unwrap_err().len(), 2);
+    }
+}
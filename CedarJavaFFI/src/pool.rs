@@ -0,0 +1,281 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! The native threads Cedar evaluates on.
+//!
+//! Every JNI call is evaluated on one process-wide pool of threads, built on first use, instead of
+//! on the calling JVM thread. Cedar's evaluator recurses over policies and values, and a stack
+//! overflow aborts the whole JVM rather than panicking, so evaluation needs a stack of known size
+//! however small the caller's is. The pool is sized and its stacks set once, from the environment:
+//!
+//! - `CEDAR_JAVA_FFI_THREADS`: number of threads, by default the number of available cores.
+//! - `CEDAR_JAVA_FFI_STACK_SIZE`: stack size of each thread in bytes, by default 8 MiB.
+
+use std::any::Any;
+use std::cell::Cell;
+use std::num::NonZeroUsize;
+use std::panic::{self, AssertUnwindSafe};
+use std::sync::atomic::{AtomicUsize, Ordering};
+use std::sync::mpsc::{self, Receiver, Sender};
+use std::sync::{Arc, Condvar, Mutex, MutexGuard, OnceLock, PoisonError};
+use std::thread;
+
+/// The stack size of evaluation threads unless `CEDAR_JAVA_FFI_STACK_SIZE` is set.
+pub const DEFAULT_STACK_SIZE: usize = 8 * 1024 * 1024;
+
+type Job = Box<dyn FnOnce() + Send + 'static>;
+
+static POOL: OnceLock<EvaluationPool> = OnceLock::new();
+
+thread_local! {
+    /// Whether this thread belongs to an evaluation pool.
+    static ON_POOL: Cell<bool> = Cell::new(false);
+}
+
+/// A fixed set of threads with a known stack size, fed from one queue.
+pub struct EvaluationPool {
+    jobs: Mutex<Sender<Job>>,
+    threads: usize,
+}
+
+/// The process-wide pool, started on first use.
+pub fn evaluation_pool() -> &'static EvaluationPool {
+    POOL.get_or_init(|| {
+        EvaluationPool::new(
+            configured("CEDAR_JAVA_FFI_THREADS")
+                .unwrap_or_else(|| thread::available_parallelism().map_or(1, NonZeroUsize::get)),
+            configured("CEDAR_JAVA_FFI_STACK_SIZE").unwrap_or(DEFAULT_STACK_SIZE),
+        )
+    })
+}
+
+/// A positive number from the environment, if set.
+fn configured(name: &str) -> Option<usize> {
+    std::env::var(name)
+        .ok()?
+        .trim()
+        .parse()
+        .ok()
+        .filter(|&n| n > 0)
+}
+
+impl EvaluationPool {
+    pub fn new(threads: usize, stack_size: usize) -> Self {
+        let (sender, receiver) = mpsc::channel::<Job>();
+        let receiver = Arc::new(Mutex::new(receiver));
+        for i in 0..threads {
+            let receiver = Arc::clone(&receiver);
+            thread::Builder::new()
+                .name(format!("cedar-eval-{i}"))
+                .stack_size(stack_size)
+                .spawn(move || work(&receiver))
+                .expect("could not start a Cedar evaluation thread");
+        }
+        Self {
+            jobs: Mutex::new(sender),
+            threads,
+        }
+    }
+
+    /// The number of threads in the pool.
+    pub fn threads(&self) -> usize {
+        self.threads
+    }
+
+    /// Run `f` on a pool thread and wait for its result, or for the panic it raised. On a pool
+    /// thread already, `f` runs in place.
+    pub fn run<T: Send + 'static>(
+        &self,
+        f: impl FnOnce() -> T + Send + 'static,
+    ) -> thread::Result<T> {
+        if ON_POOL.with(Cell::get) {
+            return panic::catch_unwind(AssertUnwindSafe(f));
+        }
+        let (sender, receiver) = mpsc::sync_channel(1);
+        self.submit(Box::new(move || {
+            let _ = sender.send(panic::catch_unwind(AssertUnwindSafe(f)));
+        }));
+        receiver.recv().unwrap_or_else(|_| {
+            Err(Box::new("the evaluation thread stopped") as Box<dyn Any + Send>)
+        })
+    }
+
+    /// Apply `f` to `items` in chunks of `chunk_size`, spread over the calling thread and the
+    /// pool, and return the results in the order of the items.
+    ///
+    /// The calling thread takes chunks as well and only waits for chunks another thread has
+    /// already started, so this finishes even when every pool thread is busy, including when it
+    /// is called from a pool thread.
+    pub fn map_chunks<T, R, F>(
+        &self,
+        items: Vec<T>,
+        chunk_size: usize,
+        f: F,
+    ) -> thread::Result<Vec<R>>
+    where
+        T: Send + Sync + 'static,
+        R: Send + 'static,
+        F: Fn(&[T]) -> Vec<R> + Send + Sync + 'static,
+    {
+        let chunk_size = chunk_size.max(1);
+        let chunks = (items.len() + chunk_size - 1) / chunk_size;
+        let len = items.len();
+        let batch = Arc::new(Batch {
+            items,
+            chunk_size,
+            f,
+            next: AtomicUsize::new(0),
+            state: Mutex::new(BatchState {
+                results: (0..chunks).map(|_| None).collect(),
+                done: 0,
+            }),
+            finished: Condvar::new(),
+        });
+        for _ in 1..chunks.min(self.threads) {
+            let batch = Arc::clone(&batch);
+            self.submit(Box::new(move || batch.work()));
+        }
+        batch.work();
+
+        let mut state = batch.lock();
+        while state.done < chunks {
+            state = batch
+                .finished
+                .wait(state)
+                .unwrap_or_else(PoisonError::into_inner);
+        }
+        let mut results = Vec::with_capacity(len);
+        for chunk in state.results.drain(..) {
+            results.extend(chunk.expect("every chunk is done")?);
+        }
+        Ok(results)
+    }
+
+    fn submit(&self, job: Job) {
+        self.jobs
+            .lock()
+            .unwrap_or_else(PoisonError::into_inner)
+            .send(job)
+            .expect("the Cedar evaluation threads stopped");
+    }
+}
+
+fn work(receiver: &Mutex<Receiver<Job>>) {
+    ON_POOL.with(|on_pool| on_pool.set(true));
+    loop {
+        let job = receiver
+            .lock()
+            .unwrap_or_else(PoisonError::into_inner)
+            .recv();
+        match job {
+            // Jobs catch their own panics; this only keeps the thread alive if one does not.
+            Ok(job) => drop(panic::catch_unwind(AssertUnwindSafe(job))),
+            Err(_) => return,
+        }
+    }
+}
+
+/// The shared state of one `map_chunks` call.
+struct Batch<T, R, F> {
+    items: Vec<T>,
+    chunk_size: usize,
+    f: F,
+    /// The next chunk to take.
+    next: AtomicUsize,
+    state: Mutex<BatchState<R>>,
+    finished: Condvar,
+}
+
+struct BatchState<R> {
+    results: Vec<Option<thread::Result<Vec<R>>>>,
+    done: usize,
+}
+
+impl<T, R, F: Fn(&[T]) -> Vec<R>> Batch<T, R, F> {
+    /// Take and evaluate chunks until none are left.
+    fn work(&self) {
+        loop {
+            let chunk = self.next.fetch_add(1, Ordering::Relaxed);
+            let start = chunk.saturating_mul(self.chunk_size);
+            if start >= self.items.len() {
+                return;
+            }
+            let end = (start + self.chunk_size).min(self.items.len());
+            let items = &self.items[start..end];
+            let result = panic::catch_unwind(AssertUnwindSafe(|| (self.f)(items)));
+            let mut state = self.lock();
+            state.results[chunk] = Some(result);
+            state.done += 1;
+            self.finished.notify_all();
+        }
+    }
+
+    fn lock(&self) -> MutexGuard<'_, BatchState<R>> {
+        self.state.lock().unwrap_or_else(PoisonError::into_inner)
+    }
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+
+    #[test]
+    fn runs_on_a_pool_thread() {
+        let pool = EvaluationPool::new(2, DEFAULT_STACK_SIZE);
+        let name = pool.run(|| thread::current().name().map(String::from));
+        assert!(name.unwrap().unwrap().starts_with("cedar-eval-"));
+    }
+
+    #[test]
+    fn returns_panics() {
+        let pool = EvaluationPool::new(1, DEFAULT_STACK_SIZE);
+        assert!(pool.run(|| panic!("boom")).is_err());
+        assert_eq!(pool.run(|| 42).unwrap(), 42);
+    }
+
+    #[test]
+    fn maps_chunks_in_order() {
+        let pool = EvaluationPool::new(4, DEFAULT_STACK_SIZE);
+        let items: Vec<usize> = (0..1000).collect();
+        let doubled = pool.map_chunks(items, 7, |chunk: &[usize]| -> Vec<usize> {
+            chunk.iter().map(|i| i * 2).collect()
+        });
+        assert_eq!(doubled.unwrap(), (0..1000).map(|i| i * 2).collect::<Vec<_>>());
+    }
+
+    #[test]
+    fn maps_chunks_from_a_busy_pool() {
+        let pool = Arc::new(EvaluationPool::new(1, DEFAULT_STACK_SIZE));
+        let inner = Arc::clone(&pool);
+        let sum = pool.run(move || {
+            let items: Vec<u64> = (0..100).collect();
+            let sums = inner.map_chunks(items, 10, |chunk| vec![chunk.iter().sum::<u64>()]);
+            sums.unwrap().iter().sum::<u64>()
+        });
+        assert_eq!(sum.unwrap(), 4950);
+    }
+
+    #[test]
+    fn reports_a_panicking_chunk() {
+        let pool = EvaluationPool::new(2, DEFAULT_STACK_SIZE);
+        let items: Vec<usize> = (0..10).collect();
+        let result = pool.map_chunks(items, 3, |chunk: &[usize]| {
+            assert!(!chunk.contains(&5), "bad item");
+            chunk.to_vec()
+        });
+        assert!(result.is_err());
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+//! The two encodings calls can cross JNI in. JSON text is always available. CBOR is used when
+//! CedarJava finds, at load time, that the library supports `CBOR_PROTOCOL_VERSION`.
+//!
+//! A CBOR response carries the result as a nested value. A JSON `InterfaceResult` carries it as
+//! a string of JSON, so the Java side has to parse the response twice.
+
+use cedar_policy::frontend::utils::InterfaceResult;
+use serde::{de::DeserializeOwned, Serialize};
+
+/// Version of the CBOR protocol, reported to Java by `getCedarJNIProtocolVersion`. Bump it
+/// whenever the shape of a CBOR request or response, or the entry points that carry them, change
+/// incompatibly.
+///
+/// 1. Requests and responses as `byte[]`.
+/// 2. Requests and responses in direct `ByteBuffer`s.
+pub const CBOR_PROTOCOL_VERSION: i32 = 2;
+
+/// The errors of a request that could not be answered.
+pub trait IntoErrors {
+    fn into_errors(self) -> Vec<String>;
+}
+
+impl IntoErrors for String {
+    fn into_errors(self) -> Vec<String> {
+        vec![self]
+    }
+}
+
+impl IntoErrors for Vec<String> {
+    fn into_errors(self) -> Vec<String> {
+        self
+    }
+}
+
+/// Decode a JSON call, run `op` on it and wrap the answer as an `InterfaceResult`. Errors from
+/// decoding or from `op` are reported as a bad request.
+pub fn json_call<C, R, E>(input: &str, op: impl FnOnce(C) -> Result<R, E>) -> InterfaceResult
+where
+    C: DeserializeOwned,
+    R: Serialize,
+    E: IntoErrors,
+{
+    match serde_json::from_str(input) {
+        Ok(call) => match op(call) {
+            Ok(answer) => InterfaceResult::succeed(answer),
+            Err(errors) => InterfaceResult::fail_bad_request(errors.into_errors()),
+        },
+        Err(e) => InterfaceResult::fail_bad_request(vec![e.to_string()]),
+    }
+}
+
+/// Decode a CBOR call, run `op` on it and encode the answer as a CBOR response.
+pub fn cbor_call<C, R, E>(input: &[u8], op: impl FnOnce(C) -> Result<R, E>) -> Vec<u8>
+where
+    C: DeserializeOwned,
+    R: Serialize,
+    E: IntoErrors,
+{
+    match ciborium::de::from_reader(input) {
+        Ok(call) => match op(call) {
+            Ok(answer) => encode(&CborResponse::success(answer)),
+            Err(errors) => cbor_failure(false, errors.into_errors()),
+        },
+        Err(e) => cbor_failure(false, vec![format!("failed to decode CBOR: {e:?}")]),
+    }
+}
+
+/// Run an operation that only takes JSON on a CBOR call, by transcoding the call to JSON and the
+/// result back to CBOR.
+pub fn cbor_via_json(input: &[u8], op: impl FnOnce(&str) -> InterfaceResult) -> Vec<u8> {
+    let json = match ciborium::de::from_reader::<serde_json::Value, _>(input) {
+        Ok(json) => json.to_string(),
+        Err(e) => return cbor_failure(false, vec![format!("failed to decode CBOR: {e:?}")]),
+    };
+    match op(&json) {
+        InterfaceResult::Success { result } => {
+            match serde_json::from_str::<serde_json::Value>(&result) {
+                Ok(answer) => encode(&CborResponse::success(answer)),
+                Err(e) => cbor_failure(true, vec![e.to_string()]),
+            }
+        }
+        InterfaceResult::Failure {
+            is_internal,
+            errors,
+        } => cbor_failure(is_internal, errors),
+    }
+}
+
+/// A CBOR response reporting `errors`.
+pub fn cbor_failure(is_internal: bool, errors: Vec<String>) -> Vec<u8> {
+    encode(&CborResponse::<()> {
+        success: false,
+        is_internal,
+        result: None,
+        errors,
+    })
+}
+
+/// The CBOR counterpart of `InterfaceResult`, with the same field names.
+#[derive(Debug, Serialize)]
+struct CborResponse<T> {
+    success: bool,
+    #[serde(rename = "isInternal")]
+    is_internal: bool,
+    #[serde(skip_serializing_if = "Option::is_none")]
+    result: Option<T>,
+    errors: Vec<String>,
+}
+
+impl<T> CborResponse<T> {
+    fn success(result: T) -> Self {
+        Self {
+            success: true,
+            is_internal: false,
+            result: Some(result),
+            errors: Vec::new(),
+        }
+    }
+}
+
+fn encode<T: Serialize>(response: &CborResponse<T>) -> Vec<u8> {
+    let mut bytes = Vec::new();
+    ciborium::ser::into_writer(response, &mut bytes).expect("could not serialise response");
+    bytes
+}
+
+#[cfg(test)]
+mod test {
+    use super::*;
+    use serde::Deserialize;
+
+    #[derive(Deserialize)]
+    struct Call {
+        n: u64,
+    }
+
+    fn decode(bytes: &[u8]) -> serde_json::Value {
+        ciborium::de::from_reader(bytes).unwrap()
+    }
+
+    fn cbor(value: serde_json::Value) -> Vec<u8> {
+        let mut bytes = Vec::new();
+        ciborium::ser::into_writer(&value, &mut bytes).unwrap();
+        bytes
+    }
+
+    fn double(call: Call) -> Result<u64, String> {
+        call.n.checked_mul(2).ok_or_else(|| String::from("overflow"))
+    }
+
+    #[test]
+    fn cbor_results_are_nested_values() {
+        let response = decode(&cbor_call(&cbor(serde_json::json!({ "n": 21 })), double));
+        assert_eq!(response["success"], true);
+        assert_eq!(response["result"], 42);
+    }
+
+    #[test]
+    fn cbor_errors_are_bad_requests() {
+        let call = cbor(serde_json::json!({ "n": u64::MAX }));
+        let response = decode(&cbor_call(&call, double));
+        assert_eq!(response["success"], false);
+        assert_eq!(response["isInternal"], false);
+        assert_eq!(response["errors"][0], "overflow");
+
+        let response = decode(&cbor_call(b"not cbor", double));
+        assert_eq!(response["success"], false);
+    }
+
+    #[test]
+    fn json_only_operations_are_transcoded() {
+        let echo = |input: &str| InterfaceResult::Success {
+            result: input.to_string(),
+        };
+        let response = decode(&cbor_via_json(&cbor(serde_json::json!({ "n": 1 })), echo));
+        assert_eq!(response["result"]["n"], 1);
+    }
+}